@@ -0,0 +1,322 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.jarcompatibilitychecker;
+
+import net.minecraftforge.jarcompatibilitychecker.cache.IncrementalState;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassFilter;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassInfoCache;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassSource;
+import net.minecraftforge.jarcompatibilitychecker.data.ClassInfo;
+import net.minecraftforge.jarcompatibilitychecker.zip.ZipArchive;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps the base JAR loaded and rechecks the input JAR or class folder whenever it changes.
+ * Only changed input classes are parsed again, and only base classes affected by a change are compared again.
+ */
+final class CheckWatcher {
+    /**
+     * How long the input must stay unchanged before a burst of writes is considered finished.
+     */
+    private static final long DEBOUNCE_MILLIS = 250;
+
+    private final JarCompatibilityChecker checker;
+    private final Path baseJar;
+    private final Path input;
+    private final boolean folder;
+    private final Map<WatchKey, Path> watchedDirectories = new HashMap<>();
+    private Map<String, Long> inputHashes = new HashMap<>();
+    /**
+     * Hashes of the classes of JARs nested inside the input JAR.
+     */
+    private Map<String, Long> nestedHashes = new HashMap<>();
+    private final Map<Path, String> folderClasses = new HashMap<>();
+    private Map<String, IncrementalState.ClassState> classStates;
+    private ClassInfoCache baseCache;
+    private ClassInfoCache concreteCache;
+
+    CheckWatcher(JarCompatibilityChecker checker, Path baseJar, Path input) {
+        this.checker = checker;
+        this.baseJar = baseJar;
+        this.input = input.toAbsolutePath();
+        this.folder = Files.isDirectory(input);
+    }
+
+    void run() throws IOException, InterruptedException {
+        this.baseCache = ClassInfoCache.fromSource(ClassSource.ofJar(this.baseJar), this.checker.getBaseLibrarySources(), true, this.checker.getClassFilter(),
+                this.checker.getProgressListener(), this.checker.getCancellationToken(), this.checker.isOffHeapIndex());
+        this.concreteCache = ClassInfoCache.fromSource(ClassSource.ofClasses(Collections.emptyList()), this.checker.getConcreteLibrarySources(), false, ClassFilter.ALL,
+                this.checker.getProgressListener(), this.checker.getCancellationToken(), this.checker.isOffHeapIndex());
+        if (this.folder) {
+            try (Stream<Path> walker = Files.walk(this.input)) {
+                updateFolder(walker.filter(Files::isRegularFile).collect(Collectors.toSet()));
+            }
+        } else {
+            updateJar();
+        }
+        recheck(null);
+
+        try (WatchService watchService = this.input.getFileSystem().newWatchService()) {
+            if (this.folder) {
+                registerAll(watchService, this.input);
+            } else {
+                register(watchService, this.input.getParent());
+            }
+            this.checker.log("Watching " + this.input + " for changes");
+
+            while (true) {
+                Set<Path> changedPaths = new HashSet<>();
+                boolean overflow = collectEvents(watchService.take(), watchService, changedPaths);
+                // Keep collecting until the input has been quiet for the debounce period
+                WatchKey key;
+                while ((key = watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    overflow |= collectEvents(key, watchService, changedPaths);
+                }
+
+                Set<String> changedClasses;
+                if (this.folder) {
+                    if (overflow) {
+                        try (Stream<Path> walker = Files.walk(this.input)) {
+                            changedPaths.addAll(walker.filter(Files::isRegularFile).collect(Collectors.toSet()));
+                        }
+                        changedPaths.addAll(this.folderClasses.keySet());
+                    }
+                    changedClasses = updateFolder(changedPaths);
+                } else if (overflow || changedPaths.contains(this.input)) {
+                    changedClasses = updateJar();
+                } else {
+                    continue;
+                }
+
+                if (changedClasses != null && !changedClasses.isEmpty()) {
+                    this.checker.log("");
+                    this.checker.log("Detected changes to " + changedClasses.size() + " classes, rechecking");
+                    recheck(changedClasses);
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            // The watch service is closed when the thread is interrupted during take()
+            throw new InterruptedException("Watch service was closed");
+        }
+    }
+
+    private void recheck(@Nullable Set<String> changedClasses) throws IOException {
+        Map<String, IncrementalState.ClassState> classStates = new HashMap<>();
+        JarCompatibilityChecker.Report report = this.checker.startReport(false);
+        boolean budgetReached = this.checker.compareClasses(this.baseCache, this.concreteCache, this.classStates, changedClasses, classStates, report);
+        this.classStates = classStates;
+        report.finish(budgetReached);
+    }
+
+    /**
+     * @return {@code true} if events were lost and the whole input needs to be rescanned
+     */
+    private boolean collectEvents(WatchKey key, WatchService watchService, Set<Path> changedPaths) throws IOException {
+        Path directory = this.watchedDirectories.get(key);
+        boolean overflow = false;
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                overflow = true;
+                continue;
+            }
+
+            Path path = directory.resolve((Path) event.context());
+            if (this.folder && event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                // Classes in new packages are written into directories which are not watched yet
+                registerAll(watchService, path);
+                try (Stream<Path> walker = Files.walk(path)) {
+                    changedPaths.addAll(walker.filter(Files::isRegularFile).collect(Collectors.toSet()));
+                }
+            } else {
+                changedPaths.add(path);
+            }
+        }
+
+        if (!key.reset())
+            this.watchedDirectories.remove(key);
+
+        return overflow;
+    }
+
+    private void registerAll(WatchService watchService, Path root) throws IOException {
+        try (Stream<Path> walker = Files.walk(root)) {
+            for (Path directory : (Iterable<Path>) walker.filter(Files::isDirectory)::iterator) {
+                register(watchService, directory);
+            }
+        }
+    }
+
+    private void register(WatchService watchService, Path directory) throws IOException {
+        WatchKey key = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        this.watchedDirectories.put(key, directory);
+    }
+
+    /**
+     * Parses the given class files again, or removes them from the input if they no longer exist.
+     *
+     * @return the names of all classes whose contents changed
+     */
+    private Set<String> updateFolder(Set<Path> paths) throws IOException {
+        Set<String> changedClasses = new HashSet<>();
+
+        for (Path path : paths) {
+            String fileName = path.getFileName().toString();
+            if (fileName.startsWith(".") || (!fileName.endsWith(".class") && !fileName.endsWith(".dat")))
+                continue;
+
+            byte[] data;
+            try {
+                data = Files.readAllBytes(path);
+            } catch (NoSuchFileException e) {
+                data = null;
+            }
+
+            String oldName = data == null ? this.folderClasses.remove(path) : this.folderClasses.get(path);
+            if (data == null) {
+                if (oldName != null) {
+                    this.concreteCache.removeMainClass(oldName);
+                    this.inputHashes.remove(oldName);
+                    changedClasses.add(oldName);
+                }
+                continue;
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(data);
+            long hash = ((long) data.length << 32) | crc.getValue();
+            if (oldName != null && this.inputHashes.get(oldName) == hash)
+                continue;
+
+            ClassInfo info = ClassInfoCache.readClass(data, 0, data.length);
+            if (oldName != null && !oldName.equals(info.name)) {
+                this.concreteCache.removeMainClass(oldName);
+                this.inputHashes.remove(oldName);
+                changedClasses.add(oldName);
+            }
+            this.folderClasses.put(path, info.name);
+            this.concreteCache.putMainClass(info);
+            this.inputHashes.put(info.name, hash);
+            changedClasses.add(info.name);
+        }
+
+        return changedClasses;
+    }
+
+    /**
+     * Reads the input JAR again and parses every class whose size or CRC-32 changed.
+     * Classes of nested JARs are library classes, like in a full check, so changes to them only affect the main classes which inherit from them.
+     * The JAR is read into memory rather than mapped, since it may be rewritten in place at any moment.
+     *
+     * @return the names of all classes whose contents changed, or {@code null} if the JAR could not be read
+     */
+    @Nullable
+    private Set<String> updateJar() throws IOException {
+        ZipArchive zip;
+        List<ZipArchive> nested = new ArrayList<>();
+        try {
+            zip = ZipArchive.wrap(this.input.toString(), ByteBuffer.wrap(Files.readAllBytes(this.input)));
+            ClassInfoCache.openNestedJars(zip, nested);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            // Most likely a partially written JAR; the next write will trigger another update
+            this.checker.logDebug("Could not read " + this.input + ": " + e.getMessage());
+            return null;
+        }
+
+        Map<String, Long> hashes = new HashMap<>();
+        Map<String, Long> nestedHashes = new HashMap<>();
+        Set<String> changedClasses = new HashSet<>();
+        for (ZipArchive.Entry entry : zip.getEntries()) {
+            String className = getClassName(entry);
+            if (className == null)
+                continue;
+
+            long hash = hash(entry);
+            hashes.put(className, hash);
+            if (!isChanged(this.inputHashes, className, hash))
+                continue;
+
+            byte[] data = zip.readBytes(entry);
+            this.concreteCache.putMainClass(ClassInfoCache.readClass(data, 0, data.length));
+            changedClasses.add(className);
+        }
+
+        for (ZipArchive archive : nested) {
+            for (ZipArchive.Entry entry : archive.getEntries()) {
+                String className = getClassName(entry);
+                // Classes of the outer JAR and of earlier nested JARs take precedence
+                if (className == null || hashes.containsKey(className) || nestedHashes.containsKey(className))
+                    continue;
+
+                long hash = hash(entry);
+                nestedHashes.put(className, hash);
+                if (!isChanged(this.nestedHashes, className, hash))
+                    continue;
+
+                byte[] data = archive.readBytes(entry);
+                this.concreteCache.putLibraryClass(ClassInfoCache.readClass(data, 0, data.length));
+                changedClasses.add(className);
+            }
+        }
+
+        for (String className : this.inputHashes.keySet()) {
+            if (!hashes.containsKey(className)) {
+                this.concreteCache.removeMainClass(className);
+                changedClasses.add(className);
+            }
+        }
+        for (String className : this.nestedHashes.keySet()) {
+            if (!nestedHashes.containsKey(className)) {
+                this.concreteCache.removeLibraryClass(className);
+                changedClasses.add(className);
+            }
+        }
+
+        this.inputHashes = hashes;
+        this.nestedHashes = nestedHashes;
+        return changedClasses;
+    }
+
+    @Nullable
+    private static String getClassName(ZipArchive.Entry entry) {
+        if (!ClassInfoCache.isClassEntry(entry.name) || entry.name.startsWith("META-INF/"))
+            return null;
+
+        return entry.name.substring(0, entry.name.length() - ".class".length());
+    }
+
+    private static long hash(ZipArchive.Entry entry) {
+        return ((long) entry.size << 32) | (entry.crc & 0xFFFFFFFFL);
+    }
+
+    private static boolean isChanged(Map<String, Long> previousHashes, String className, long hash) {
+        Long previousHash = previousHashes.get(className);
+        return previousHash == null || previousHash != hash;
+    }
+}
@@ -11,21 +11,56 @@ import joptsimple.OptionSet;
 import joptsimple.OptionSpec;
 import joptsimple.util.EnumConverter;
 import net.minecraftforge.jarcompatibilitychecker.core.AnnotationCheckMode;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassFilter;
+import net.minecraftforge.jarcompatibilitychecker.core.CompareEngine;
 import net.minecraftforge.jarcompatibilitychecker.core.InternalAnnotationCheckMode;
+import net.minecraftforge.jarcompatibilitychecker.core.LibraryIndex;
+import net.minecraftforge.jarcompatibilitychecker.report.AsyncFileWriter;
+import net.minecraftforge.jarcompatibilitychecker.report.BaselineReportSink;
+import net.minecraftforge.jarcompatibilitychecker.report.BinaryReportReader;
+import net.minecraftforge.jarcompatibilitychecker.report.BinaryReportSink;
+import net.minecraftforge.jarcompatibilitychecker.report.JsonReportSink;
+import net.minecraftforge.jarcompatibilitychecker.report.ReportDiff;
+import net.minecraftforge.jarcompatibilitychecker.report.ReportMerge;
+import net.minecraftforge.jarcompatibilitychecker.report.ReportSink;
+import net.minecraftforge.jarcompatibilitychecker.report.SarifReportSink;
+import net.minecraftforge.jarcompatibilitychecker.report.SummaryReportSink;
+import net.minecraftforge.jarcompatibilitychecker.report.TextReportSink;
+import net.minecraftforge.jarcompatibilitychecker.zip.ZipArchive;
 
 import java.io.File;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.function.Consumer;
 
 public class ConsoleTool {
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("diff-reports")) {
+            diffReports(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("merge-reports")) {
+            mergeReports(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("index-library")) {
+            indexLibraries(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
         try {
             OptionParser parser = new OptionParser();
             OptionSpec<Void> quietO = parser.accepts("quiet", "Disabels some debug logging");
             OptionSpec<Void> apiO = parser.accepts("api", "Enables the API compatibility checking mode");
             OptionSpec<Void> binaryO = parser.accepts("binary", "Enables the binary compatibility checking mode. This option will override the API compatibility flag. Defaults to true.");
             OptionSpec<File> baseJarO = parser.accepts("base-jar", "Base JAR file that will be matched against for compatibility").withRequiredArg().ofType(File.class).required();
-            OptionSpec<File> inputJarO = parser.accepts("input-jar", "JAR file to validate against the base JAR").withRequiredArg().ofType(File.class).required();
+            OptionSpec<File> inputJarO = parser.accepts("input-jar", "JAR file or class folder to validate against the base JAR").withRequiredArg().ofType(File.class).required();
             OptionSpec<File> libO = parser.acceptsAll(ImmutableList.of("lib", "library"), "Libraries that the base JAR and input JAR both use").withRequiredArg().ofType(File.class);
             OptionSpec<File> baseLibO = parser.acceptsAll(ImmutableList.of("base-lib", "base-library"), "Libraries that only the base JAR uses").withRequiredArg().ofType(File.class);
             OptionSpec<File> inputLibO = parser.acceptsAll(ImmutableList.of("input-lib", "input-libary", "concrete-lib", "concrete-library"), "Libraries that only the input JAR uses").withRequiredArg().ofType(File.class);
@@ -37,6 +72,40 @@ public class ConsoleTool {
                     ImmutableList.of("internal-annotation-check-mode", "internal-ann-mode"),
                     "What mode to use for checking elements marked with an internal API annotation"
             ).withRequiredArg().withValuesConvertedBy(new EnumConverter<InternalAnnotationCheckMode>(InternalAnnotationCheckMode.class) {}).defaultsTo(InternalAnnotationCheckMode.DEFAULT_MODE);
+            OptionSpec<Void> internalInheritO = parser.acceptsAll(ImmutableList.of("internal-annotation-inherit", "internal-ann-inherit"),
+                    "Treats members and nested classes of internal classes, and classes in packages whose package-info is internal, as internal API");
+            OptionSpec<String> includeO = parser.accepts("include", "Glob of the classes to check, such as net/minecraftforge/api/**; if given, all other classes are skipped")
+                    .withRequiredArg();
+            OptionSpec<String> excludeO = parser.accepts("exclude", "Glob of classes to skip, such as **/shadow/**").withRequiredArg();
+            OptionSpec<String> shardO = parser.accepts("shard", "Only checks the given shard of the base classes, such as 2/4 for the second of four shards. "
+                    + "Classes are assigned to shards by a hash of their name; the binary reports of all shards can be combined with merge-reports").withRequiredArg();
+            OptionSpec<Void> failFastO = parser.accepts("fail-fast", "Stops checking as soon as the first error is found. Equivalent to --max-errors 1");
+            OptionSpec<Integer> maxErrorsO = parser.accepts("max-errors", "Stops checking once this many errors have been found")
+                    .availableUnless(failFastO).withRequiredArg().ofType(Integer.class);
+            OptionSpec<File> cacheDirO = parser.accepts("cache-dir", "Directory used to cache results, so an identical check replays the stored result instead of being run again")
+                    .withRequiredArg().ofType(File.class);
+            OptionSpec<File> incrementalO = parser.accepts("incremental", "File used to persist per-class results, so following checks only recompare classes which changed")
+                    .withRequiredArg().ofType(File.class);
+            OptionSpec<Integer> pipelineO = parser.accepts("pipeline", "Reads and parses classes on worker threads while earlier classes are compared. "
+                    + "Takes the number of worker threads, defaulting to one less than the number of processors").withOptionalArg().ofType(Integer.class);
+            OptionSpec<Void> offHeapIndexO = parser.accepts("off-heap-index", "Indexes library classes in off-heap buffers, which keeps heap use low for very large classpaths");
+            OptionSpec<CompareEngine> compareEngineO = parser.accepts("compare-engine", "How the members of each base class are matched to the members of its input class")
+                    .withRequiredArg().withValuesConvertedBy(new EnumConverter<CompareEngine>(CompareEngine.class) {}).defaultsTo(CompareEngine.DEFAULT);
+            OptionSpec<File> consumerO = parser.acceptsAll(ImmutableList.of("consumer", "consumer-jar"),
+                    "JAR files which depend on the base JAR; if given, only the base classes and members which they reference are checked").withRequiredArg().ofType(File.class);
+            OptionSpec<File> reportTextO = parser.accepts("report-text", "File to write the report to, in the same format as the console output")
+                    .withRequiredArg().ofType(File.class);
+            OptionSpec<File> reportJsonO = parser.accepts("report-json", "File to write the report to as JSON").withRequiredArg().ofType(File.class);
+            OptionSpec<File> reportSummaryO = parser.accepts("report-summary", "File to write only the totals of the report to").withRequiredArg().ofType(File.class);
+            OptionSpec<File> reportSarifO = parser.accepts("report-sarif", "File to write the report to as a SARIF log").withRequiredArg().ofType(File.class);
+            OptionSpec<File> reportBinaryO = parser.accepts("report-binary", "File to write the report to in a compact sorted binary format, which can be compared using diff-reports")
+                    .withRequiredArg().ofType(File.class);
+            OptionSpec<File> baselineO = parser.accepts("baseline", "File of known incompatibilities, which are not reported and do not count towards the exit code")
+                    .withRequiredArg().ofType(File.class);
+            OptionSpec<File> writeBaselineO = parser.accepts("write-baseline", "File to write all incompatibilities found to, for use with --baseline in following checks")
+                    .availableUnless(baselineO).withRequiredArg().ofType(File.class);
+            OptionSpec<Void> watchO = parser.accepts("watch", "Keeps running and rechecks the input JAR or class folder whenever it changes")
+                    .availableUnless(cacheDirO, incrementalO, reportTextO, reportJsonO, reportSummaryO, reportSarifO, reportBinaryO, writeBaselineO);
 
             OptionSet options;
             try {
@@ -58,14 +127,68 @@ public class ConsoleTool {
             AnnotationCheckMode annotationCheckMode = options.valueOf(annotationCheckModeO);
             List<String> internalAnnotations = options.valuesOf(internalAnnotationO);
             InternalAnnotationCheckMode internalAnnotationCheckMode = options.valueOf(internalAnnotationCheckModeO);
+            boolean inheritInternalApi = options.has(internalInheritO);
+            ClassFilter classFilter = ClassFilter.of(options.valuesOf(includeO), options.valuesOf(excludeO));
+            if (options.has(shardO)) {
+                try {
+                    classFilter = parseShard(classFilter, options.valueOf(shardO));
+                } catch (IllegalArgumentException ex) {
+                    System.err.println("Error: " + ex.getMessage());
+                    System.exit(-1);
+                    return;
+                }
+            }
+            int maxErrors = options.has(failFastO) ? 1 : options.has(maxErrorsO) ? options.valueOf(maxErrorsO) : 0;
+            File cacheDir = options.valueOf(cacheDirO);
+            File incrementalFile = options.valueOf(incrementalO);
+            int pipelineThreads = !options.has(pipelineO) ? 0 : options.hasArgument(pipelineO) ? options.valueOf(pipelineO)
+                    : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+            List<File> consumerJars = options.valuesOf(consumerO);
+            File baselineFile = options.valueOf(baselineO);
 
             Consumer<String> dbg = options.has(quietO) ? s -> {} : System.out::println;
 
-            // TODO allow logging to a file
             JarCompatibilityChecker checker = new JarCompatibilityChecker(baseJar, inputJar, checkBinary, annotationCheckMode, internalAnnotations, internalAnnotationCheckMode,
-                    commonLibs, baseLibs, concreteLibs, System.out::println, System.err::println, dbg);
+                    commonLibs, baseLibs, concreteLibs, System.out::println, System.err::println, dbg)
+                    .setInheritInternalApi(inheritInternalApi)
+                    .setClassFilter(classFilter)
+                    .setMaxErrors(maxErrors)
+                    .setCacheDirectory(cacheDir == null ? null : cacheDir.toPath())
+                    .setIncrementalStateFile(incrementalFile == null ? null : incrementalFile.toPath())
+                    .setPipelineThreads(pipelineThreads)
+                    .setOffHeapIndex(options.has(offHeapIndexO))
+                    .setCompareEngine(options.valueOf(compareEngineO))
+                    .setConsumerJars(consumerJars)
+                    .setBaselineFile(baselineFile == null ? null : baselineFile.toPath());
 
-            int incompatibilities = checker.check();
+            if (options.has(watchO)) {
+                checker.watch();
+                return;
+            }
+
+            List<ReportSink> sinks = new ArrayList<>();
+            int incompatibilities;
+            try {
+                if (options.has(reportTextO))
+                    sinks.add(new TextReportSink(new AsyncFileWriter(options.valueOf(reportTextO).toPath())));
+                if (options.has(reportJsonO))
+                    sinks.add(new JsonReportSink(new AsyncFileWriter(options.valueOf(reportJsonO).toPath())));
+                if (options.has(reportSummaryO))
+                    sinks.add(new SummaryReportSink(new AsyncFileWriter(options.valueOf(reportSummaryO).toPath())));
+                if (options.has(reportSarifO))
+                    sinks.add(new SarifReportSink(new AsyncFileWriter(options.valueOf(reportSarifO).toPath())));
+                if (options.has(reportBinaryO))
+                    sinks.add(new BinaryReportSink(Files.newOutputStream(options.valueOf(reportBinaryO).toPath())));
+                if (options.has(writeBaselineO))
+                    sinks.add(new BaselineReportSink(new AsyncFileWriter(options.valueOf(writeBaselineO).toPath())));
+                sinks.forEach(checker::addReportSink);
+
+                incompatibilities = checker.check();
+            } finally {
+                for (ReportSink sink : sinks) {
+                    sink.close();
+                }
+            }
             // Clamp to a max of 125 to prevent conflicting with special meaning exit codes - https://tldp.org/LDP/abs/html/exitcodes.html
             System.exit(Math.min(125, incompatibilities));
         } catch (Exception e) {
@@ -73,4 +196,195 @@ public class ConsoleTool {
             System.exit(-1);
         }
     }
+
+    /**
+     * @param shard a 1-based shard index and the number of shards, separated by a slash
+     */
+    private static ClassFilter parseShard(ClassFilter classFilter, String shard) {
+        int slash = shard.indexOf('/');
+        if (slash != -1) {
+            try {
+                int index = Integer.parseInt(shard.substring(0, slash));
+                int count = Integer.parseInt(shard.substring(slash + 1));
+                if (index >= 1 && index <= count)
+                    return classFilter.withShard(index - 1, count);
+            } catch (NumberFormatException ignored) {}
+        }
+
+        throw new IllegalArgumentException("Invalid shard '" + shard + "', expected <index>/<count> with an index from 1 to count");
+    }
+
+    /**
+     * Writes a library index next to each given library JAR, which is used instead of reading the JAR whenever it is passed as a library.
+     */
+    private static void indexLibraries(String[] args) {
+        try {
+            OptionParser parser = new OptionParser();
+            OptionSpec<Void> checkO = parser.accepts("check", "Only checks whether the index of each library is up to date, and exits with the number of missing or stale indexes");
+            OptionSpec<File> librariesO = parser.nonOptions("The library JARs to index").ofType(File.class);
+
+            OptionSet options;
+            List<File> libraries;
+            try {
+                options = parser.parse(args);
+                libraries = options.valuesOf(librariesO);
+                if (libraries.isEmpty())
+                    throw new IllegalArgumentException("Expected at least one library");
+            } catch (OptionException | IllegalArgumentException ex) {
+                System.err.println("Error: " + ex.getMessage());
+                System.err.println();
+                System.err.println("Usage: index-library [--check] <library>...");
+                parser.printHelpOn(System.err);
+                System.exit(-1);
+                return;
+            }
+
+            int stale = 0;
+            for (File library : libraries) {
+                Path jarPath = library.toPath();
+                Path indexPath = LibraryIndex.getIndexPath(jarPath);
+                if (options.has(checkO)) {
+                    LibraryIndex index;
+                    try (ZipArchive zip = ZipArchive.open(jarPath)) {
+                        index = LibraryIndex.open(indexPath, zip);
+                    }
+                    if (index == null)
+                        stale++;
+                    System.out.println((index == null ? "Missing or stale: " : "Up to date: ") + indexPath);
+                } else {
+                    int classes = LibraryIndex.write(jarPath, indexPath);
+                    System.out.println("Indexed " + classes + " classes of " + jarPath + " into " + indexPath);
+                }
+            }
+
+            System.exit(Math.min(125, stale));
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit(-1);
+        }
+    }
+
+    /**
+     * Merges binary reports, such as those of the shards of one check, and exits with the number of errors like a check would.
+     * The merged incompatibilities are printed in the console format and may be written to further reports.
+     */
+    private static void mergeReports(String[] args) {
+        try {
+            OptionParser parser = new OptionParser();
+            OptionSpec<File> reportTextO = parser.accepts("report-text", "File to write the merged report to, in the same format as the console output")
+                    .withRequiredArg().ofType(File.class);
+            OptionSpec<File> reportJsonO = parser.accepts("report-json", "File to write the merged report to as JSON").withRequiredArg().ofType(File.class);
+            OptionSpec<File> reportSarifO = parser.accepts("report-sarif", "File to write the merged report to as a SARIF log").withRequiredArg().ofType(File.class);
+            OptionSpec<File> reportBinaryO = parser.accepts("report-binary", "File to write the merged report to in the binary format").withRequiredArg().ofType(File.class);
+            OptionSpec<File> reportsO = parser.nonOptions("The binary reports to merge, written with --report-binary").ofType(File.class);
+
+            OptionSet options;
+            List<File> reports;
+            try {
+                options = parser.parse(args);
+                reports = options.valuesOf(reportsO);
+                if (reports.isEmpty())
+                    throw new IllegalArgumentException("Expected at least one report");
+            } catch (OptionException | IllegalArgumentException ex) {
+                System.err.println("Error: " + ex.getMessage());
+                System.err.println();
+                System.err.println("Usage: merge-reports [options] <report>...");
+                parser.printHelpOn(System.err);
+                System.exit(-1);
+                return;
+            }
+
+            List<ReportSink> sinks = new ArrayList<>();
+            int errors;
+            try {
+                if (options.has(reportTextO))
+                    sinks.add(new TextReportSink(new AsyncFileWriter(options.valueOf(reportTextO).toPath())));
+                if (options.has(reportJsonO))
+                    sinks.add(new JsonReportSink(new AsyncFileWriter(options.valueOf(reportJsonO).toPath())));
+                if (options.has(reportSarifO))
+                    sinks.add(new SarifReportSink(new AsyncFileWriter(options.valueOf(reportSarifO).toPath())));
+                if (options.has(reportBinaryO))
+                    sinks.add(new BinaryReportSink(Files.newOutputStream(options.valueOf(reportBinaryO).toPath())));
+
+                // Not closed, as closing would close System.err
+                Writer console = new OutputStreamWriter(System.err, StandardCharsets.UTF_8);
+                List<ReportSink> allSinks = new ArrayList<>(sinks);
+                allSinks.add(new TextReportSink(console));
+
+                List<Path> paths = new ArrayList<>();
+                for (File report : reports) {
+                    paths.add(report.toPath());
+                }
+                errors = ReportMerge.merge(paths, allSinks);
+            } finally {
+                for (ReportSink sink : sinks) {
+                    sink.close();
+                }
+            }
+
+            // Clamp to a max of 125 to prevent conflicting with special meaning exit codes - https://tldp.org/LDP/abs/html/exitcodes.html
+            System.exit(Math.min(125, errors));
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit(-1);
+        }
+    }
+
+    /**
+     * Prints the incompatibilities which were added or removed between two binary reports, and exits with the number of added errors.
+     */
+    private static void diffReports(String[] args) {
+        try {
+            OptionParser parser = new OptionParser();
+            OptionSpec<Void> unchangedO = parser.accepts("unchanged", "Also prints the incompatibilities which are in both reports");
+            OptionSpec<File> reportsO = parser.nonOptions("The old and new binary reports, written with --report-binary").ofType(File.class);
+
+            OptionSet options;
+            List<File> reports;
+            try {
+                options = parser.parse(args);
+                reports = options.valuesOf(reportsO);
+                if (reports.size() != 2)
+                    throw new IllegalArgumentException("Expected exactly two reports but got " + reports.size());
+            } catch (OptionException | IllegalArgumentException ex) {
+                System.err.println("Error: " + ex.getMessage());
+                System.err.println();
+                System.err.println("Usage: diff-reports [--unchanged] <old report> <new report>");
+                parser.printHelpOn(System.err);
+                System.exit(-1);
+                return;
+            }
+
+            boolean printUnchanged = options.has(unchangedO);
+            int[] counts = new int[4]; // added, removed, unchanged, added errors
+            ReportDiff.diff(reports.get(0).toPath(), reports.get(1).toPath(), new ReportDiff.Listener() {
+                @Override
+                public void added(BinaryReportReader.Record record) {
+                    counts[0]++;
+                    if (record.entry.error)
+                        counts[3]++;
+                    System.out.println("+ " + record);
+                }
+
+                @Override
+                public void removed(BinaryReportReader.Record record) {
+                    counts[1]++;
+                    System.out.println("- " + record);
+                }
+
+                @Override
+                public void unchanged(BinaryReportReader.Record oldRecord, BinaryReportReader.Record newRecord) {
+                    counts[2]++;
+                    if (printUnchanged)
+                        System.out.println("  " + newRecord);
+                }
+            });
+
+            System.out.println("Added: " + counts[0] + ", removed: " + counts[1] + ", unchanged: " + counts[2]);
+            System.exit(Math.min(125, counts[3]));
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit(-1);
+        }
+    }
 }
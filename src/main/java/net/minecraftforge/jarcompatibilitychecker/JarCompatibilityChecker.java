@@ -4,21 +4,40 @@
  */
 package net.minecraftforge.jarcompatibilitychecker;
 
+import com.google.common.collect.ImmutableList;
+import net.minecraftforge.jarcompatibilitychecker.cache.IncrementalState;
+import net.minecraftforge.jarcompatibilitychecker.cache.ResultCache;
 import net.minecraftforge.jarcompatibilitychecker.core.AnnotationCheckMode;
+import net.minecraftforge.jarcompatibilitychecker.core.Baseline;
+import net.minecraftforge.jarcompatibilitychecker.core.CancellationToken;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassFilter;
 import net.minecraftforge.jarcompatibilitychecker.core.ClassInfoCache;
 import net.minecraftforge.jarcompatibilitychecker.core.ClassInfoComparer;
 import net.minecraftforge.jarcompatibilitychecker.core.ClassInfoComparisonResults;
-import net.minecraftforge.jarcompatibilitychecker.core.Incompatibility;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassPipeline;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassSource;
+import net.minecraftforge.jarcompatibilitychecker.core.CompareEngine;
 import net.minecraftforge.jarcompatibilitychecker.core.InternalAnnotationCheckMode;
+import net.minecraftforge.jarcompatibilitychecker.core.InternalApiMatcher;
+import net.minecraftforge.jarcompatibilitychecker.core.ProgressListener;
+import net.minecraftforge.jarcompatibilitychecker.core.ReferenceIndex;
 import net.minecraftforge.jarcompatibilitychecker.data.ClassInfo;
+import net.minecraftforge.jarcompatibilitychecker.report.BaselineReportSink;
+import net.minecraftforge.jarcompatibilitychecker.report.CheckResult;
+import net.minecraftforge.jarcompatibilitychecker.report.ReportSink;
+import net.minecraftforge.jarcompatibilitychecker.zip.ZipArchive;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -30,12 +49,32 @@ public class JarCompatibilityChecker {
     private final AnnotationCheckMode annotationCheckMode;
     private final List<String> internalAnnotations;
     private final InternalAnnotationCheckMode internalAnnotationCheckMode;
+    private InternalApiMatcher internalApi;
     private final List<File> commonLibs;
     private final List<File> baseLibs;
     private final List<File> concreteLibs;
     private final Consumer<String> stdLogger;
     private final Consumer<String> errLogger;
     private final Consumer<String> dbgLogger;
+    private int maxErrors = 0;
+    @Nullable
+    private Path cacheDirectory;
+    @Nullable
+    private Path incrementalStateFile;
+    private List<File> consumerJars = ImmutableList.of();
+    private ClassFilter classFilter = ClassFilter.ALL;
+    private final List<ReportSink> reportSinks = new ArrayList<>();
+    @Nullable
+    private Path baselineFile;
+    @Nullable
+    private Baseline baseline;
+    @Nullable
+    private ReferenceIndex referenceIndex;
+    private ProgressListener progress = ProgressListener.NONE;
+    private CancellationToken cancellation = CancellationToken.NONE;
+    private int pipelineThreads = 0;
+    private boolean offHeapIndex;
+    private CompareEngine compareEngine = CompareEngine.DEFAULT;
 
     /**
      * Constructs a new JarCompatibilityChecker.
@@ -89,6 +128,7 @@ public class JarCompatibilityChecker {
             return inDescForm ? s.replace('.', '/') : 'L' + s.replace('.', '/') + ';';
         }).collect(Collectors.toList());
         this.internalAnnotationCheckMode = internalAnnotationCheckMode;
+        this.internalApi = new InternalApiMatcher(this.internalAnnotations, false);
         this.commonLibs = commonLibs;
         this.baseLibs = baseLibs;
         this.concreteLibs = concreteLibs;
@@ -97,7 +137,190 @@ public class JarCompatibilityChecker {
         this.dbgLogger = dbgLogger;
     }
 
-    private void log(String message) {
+    /**
+     * Sets the error budget of this checker.
+     * Once this many error-level incompatibilities have been found, all remaining comparison work is skipped
+     * and {@link #check()} reports only the incompatibilities found so far.
+     *
+     * @param maxErrors the maximum number of errors to find, or {@code 0} to check everything
+     * @return this checker
+     */
+    public JarCompatibilityChecker setMaxErrors(int maxErrors) {
+        if (maxErrors < 0)
+            throw new IllegalArgumentException("Max errors must not be negative: " + maxErrors);
+        this.maxErrors = maxErrors;
+        return this;
+    }
+
+    /**
+     * Sets the directory used to cache check results.
+     * Results are keyed by the contents of every JAR and library along with all check options,
+     * so an identical check replays the stored result instead of comparing the JARs again.
+     *
+     * @param cacheDirectory the cache directory, or {@code null} to disable caching
+     * @return this checker
+     */
+    public JarCompatibilityChecker setCacheDirectory(@Nullable Path cacheDirectory) {
+        this.cacheDirectory = cacheDirectory;
+        return this;
+    }
+
+    /**
+     * Enables incremental checking.
+     * The content hash, ancestors and comparison results of every class are persisted to the given file, and following checks only
+     * recompute classes which changed, or which inherit from a class which changed, since the previous check.
+     * All other results are reused from the file. A change to any library or check option causes a full check.
+     *
+     * @param incrementalStateFile the file to persist incremental state to, or {@code null} to disable incremental checking
+     * @return this checker
+     */
+    public JarCompatibilityChecker setIncrementalStateFile(@Nullable Path incrementalStateFile) {
+        this.incrementalStateFile = incrementalStateFile;
+        return this;
+    }
+
+    /**
+     * Restricts checking to the parts of the base jar which the given consumer jars reference.
+     * Base classes and members which no consumer links against, extends or overrides are not checked.
+     *
+     * @param consumerJars the jars which depend on the base jar, or an empty list to check the whole base jar
+     * @return this checker
+     */
+    public JarCompatibilityChecker setConsumerJars(List<File> consumerJars) {
+        this.consumerJars = consumerJars;
+        this.referenceIndex = null;
+        return this;
+    }
+
+    /**
+     * Restricts checking to the classes of the base jar selected by the given filter.
+     * Classes which are not selected are skipped before they are read, and are only parsed if a selected class inherits from them.
+     *
+     * @param classFilter the filter selecting the classes to check
+     * @return this checker
+     */
+    public JarCompatibilityChecker setClassFilter(ClassFilter classFilter) {
+        this.classFilter = classFilter;
+        return this;
+    }
+
+    ClassFilter getClassFilter() {
+        return this.classFilter;
+    }
+
+    /**
+     * Sets the baseline of known incompatibilities, which are left out of all reports and do not count towards the error budget or exit code.
+     * A baseline file can be generated from a previous check with a {@link BaselineReportSink}.
+     *
+     * @param baselineFile the baseline file, or {@code null} to report all incompatibilities
+     * @return this checker
+     */
+    public JarCompatibilityChecker setBaselineFile(@Nullable Path baselineFile) {
+        this.baselineFile = baselineFile;
+        this.baseline = null;
+        return this;
+    }
+
+    /**
+     * Adds a sink which receives every report of this checker in addition to the loggers.
+     * The checker does not close the sink.
+     *
+     * @param sink the sink to add
+     * @return this checker
+     */
+    public JarCompatibilityChecker addReportSink(ReportSink sink) {
+        this.reportSinks.add(sink);
+        return this;
+    }
+
+    /**
+     * Sets whether internal API status is inherited.
+     * When enabled, members and nested classes of a class marked internal, and classes in a package whose {@code package-info} is marked internal,
+     * are treated as internal API as well.
+     *
+     * @param inheritInternalApi whether internal API status is inherited from enclosing classes and packages
+     * @return this checker
+     */
+    public JarCompatibilityChecker setInheritInternalApi(boolean inheritInternalApi) {
+        this.internalApi = new InternalApiMatcher(this.internalAnnotations, inheritInternalApi);
+        return this;
+    }
+
+    /**
+     * Sets the listener which receives the progress of reading and comparing classes.
+     *
+     * @param progress the progress listener
+     * @return this checker
+     */
+    public JarCompatibilityChecker setProgressListener(ProgressListener progress) {
+        this.progress = progress;
+        return this;
+    }
+
+    /**
+     * Sets the token which cancels checking once it is cancelled from another thread.
+     * The token is polled while reading archive entries, parsing classes and comparing classes; a cancelled check throws a
+     * {@link java.util.concurrent.CancellationException} from {@link #check()} after closing the archives it opened.
+     *
+     * @param cancellation the cancellation token
+     * @return this checker
+     */
+    public JarCompatibilityChecker setCancellationToken(CancellationToken cancellation) {
+        this.cancellation = cancellation;
+        return this;
+    }
+
+    /**
+     * Enables pipelined checking, where worker threads read and parse the classes of the base jar and input jar while earlier classes are compared,
+     * instead of reading both jars completely before comparing. Only applies to checks which are not {@linkplain #setIncrementalStateFile(Path) incremental}.
+     *
+     * @param pipelineThreads the number of worker threads, or {@code 0} to read and compare in sequence
+     * @return this checker
+     */
+    public JarCompatibilityChecker setPipelineThreads(int pipelineThreads) {
+        if (pipelineThreads < 0)
+            throw new IllegalArgumentException("Pipeline threads must not be negative: " + pipelineThreads);
+        this.pipelineThreads = pipelineThreads;
+        return this;
+    }
+
+    /**
+     * Sets whether library classes are indexed off-heap.
+     * When enabled, the names and headers of all library classes, and of base and input classes which are not checked, are kept in direct buffers
+     * instead of heap objects, which keeps heap use low for classpaths with a very large number of classes.
+     *
+     * @param offHeapIndex whether to index library classes off-heap
+     * @return this checker
+     */
+    public JarCompatibilityChecker setOffHeapIndex(boolean offHeapIndex) {
+        this.offHeapIndex = offHeapIndex;
+        return this;
+    }
+
+    /**
+     * Sets how the members of each base class are matched to the members of its input class.
+     *
+     * @param compareEngine the engine to compare classes with
+     * @return this checker
+     */
+    public JarCompatibilityChecker setCompareEngine(CompareEngine compareEngine) {
+        this.compareEngine = compareEngine;
+        return this;
+    }
+
+    boolean isOffHeapIndex() {
+        return this.offHeapIndex;
+    }
+
+    ProgressListener getProgressListener() {
+        return this.progress;
+    }
+
+    CancellationToken getCancellationToken() {
+        return this.cancellation;
+    }
+
+    void log(String message) {
         this.stdLogger.accept(message);
     }
 
@@ -105,7 +328,7 @@ public class JarCompatibilityChecker {
         this.errLogger.accept(message);
     }
 
-    private void logDebug(String message) {
+    void logDebug(String message) {
         this.dbgLogger.accept(message);
     }
 
@@ -114,12 +337,59 @@ public class JarCompatibilityChecker {
      * Any incompatibilities will be logged to the error logger.
      *
      * @return the number of incompatibilities detected based on the current mode
+     * @throws java.util.concurrent.CancellationException if the {@linkplain #setCancellationToken(CancellationToken) cancellation token} was cancelled
      */
     public int check() throws IOException {
+        this.cancellation.throwIfCancelled();
+        logSettings();
+
+        String cacheKey = null;
+        ResultCache resultCache = null;
+        if (this.cacheDirectory != null) {
+            resultCache = new ResultCache(this.cacheDirectory);
+            cacheKey = computeCacheKey();
+            CheckResult cached = resultCache.load(cacheKey);
+            if (cached != null) {
+                logDebug("Replaying cached result " + cacheKey);
+                return report(cached);
+            }
+        }
+
+        // Incompatibilities are reported as each class is compared; the whole result is only kept if it needs to be cached
+        Report report = startReport(resultCache != null);
+        boolean budgetReached = this.incrementalStateFile != null ? compareIncremental(this.incrementalStateFile, report) : compare(report);
+        if (resultCache != null)
+            resultCache.store(cacheKey, report.getResult(budgetReached));
+
+        return report.finish(budgetReached);
+    }
+
+    /**
+     * Checks the base jar and input like {@link #check()}, then watches the input jar or input class folder for changes until the current thread is interrupted.
+     * The base jar stays loaded between checks, and only changed classes of the input are parsed again.
+     * Only base classes affected by a change are compared again; all other results are reused.
+     */
+    public void watch() throws IOException, InterruptedException {
+        logSettings();
+        new CheckWatcher(this, this.baseJar.toPath(), this.inputJar.toPath()).run();
+    }
+
+    private void logSettings() {
         logDebug("Compatibility mode: " + (this.checkBinary ? "Binary" : "API"));
         logDebug("Annotation check mode: " + (this.annotationCheckMode == null ? "NONE" : this.annotationCheckMode));
         logDebug("Internal API annotation check mode: " + this.internalAnnotationCheckMode);
         logDebug("Internal API annotations: " + this.internalAnnotations);
+        logDebug("Inherit internal API: " + this.internalApi.isInherited());
+        if (!this.classFilter.isAll())
+            logDebug("Class filter: " + this.classFilter);
+        if (this.maxErrors > 0)
+            logDebug("Max errors: " + this.maxErrors);
+        if (this.pipelineThreads > 0)
+            logDebug("Pipeline threads: " + this.pipelineThreads);
+        if (this.offHeapIndex)
+            logDebug("Off-heap library index: true");
+        if (this.compareEngine != CompareEngine.DEFAULT)
+            logDebug("Compare engine: " + this.compareEngine);
         logDebug("Base JAR: " + this.baseJar.getAbsolutePath());
         logDebug("Input JAR: " + this.inputJar.getAbsolutePath());
         for (File baseLib : this.baseLibs) {
@@ -131,54 +401,314 @@ public class JarCompatibilityChecker {
         for (File commonLib : this.commonLibs) {
             logDebug("Common Library: " + commonLib.getAbsolutePath());
         }
+        for (File consumerJar : this.consumerJars) {
+            logDebug("Consumer JAR: " + consumerJar.getAbsolutePath());
+        }
+        if (this.baselineFile != null)
+            logDebug("Baseline: " + this.baselineFile.toAbsolutePath());
+    }
 
-        List<File> baseFiles = new ArrayList<>(this.baseLibs);
-        baseFiles.addAll(this.commonLibs);
-        ClassInfoCache baseCache = ClassInfoCache.fromJarFile(this.baseJar, baseFiles);
-        List<File> concreteFiles = new ArrayList<>(this.concreteLibs);
-        concreteFiles.addAll(this.commonLibs);
-        ClassInfoCache concreteCache = ClassInfoCache.fromJarFile(this.inputJar, concreteFiles);
-        List<ClassInfoComparisonResults> classIncompatibilities = new ArrayList<>();
-
-        for (Map.Entry<String, ClassInfo> baseEntry : baseCache.getMainClasses().entrySet()) {
-            String baseClassName = baseEntry.getKey();
-            ClassInfo baseClassInfo = baseEntry.getValue();
-            ClassInfo concreteClassInfo = concreteCache.getMainClassInfo(baseClassName);
-
-            // log("Comparing " + baseClassName);
-            ClassInfoComparisonResults results = ClassInfoComparer.compare(this.checkBinary, this.annotationCheckMode, this.internalAnnotations, this.internalAnnotationCheckMode,
-                    baseCache, baseClassInfo, concreteCache, concreteClassInfo);
-            if (results.isIncompatible())
-                classIncompatibilities.add(results);
-        }
-
-        if (!classIncompatibilities.isEmpty()) {
-            int errorCount = 0;
-            int warningCount = 0;
-            for (ClassInfoComparisonResults compareResults : classIncompatibilities) {
-                for (Incompatibility<?> incompatibility : compareResults.getIncompatibilities()) {
-                    if (incompatibility.isError()) {
-                        errorCount++;
-                    } else {
-                        warningCount++;
+    /**
+     * @return whether the error budget was reached
+     */
+    private boolean compare(Report report) throws IOException {
+        // When pipelined, main classes are only indexed up front and are parsed by the pipeline workers
+        boolean pipelined = this.pipelineThreads > 0;
+        ClassInfoCache baseCache = ClassInfoCache.fromSource(ClassSource.ofJar(this.baseJar.toPath()), getBaseLibrarySources(), pipelined, this.classFilter,
+                this.progress, this.cancellation, this.offHeapIndex);
+        ClassSource inputSource = this.inputJar.isDirectory() ? ClassSource.ofFolder(this.inputJar.toPath()) : ClassSource.ofJar(this.inputJar.toPath());
+        ClassInfoCache concreteCache = ClassInfoCache.fromSource(inputSource, getConcreteLibrarySources(), pipelined, this.classFilter, this.progress, this.cancellation,
+                this.offHeapIndex);
+        ReferenceIndex.Scope references = getReferenceScope(baseCache);
+        Baseline baseline = getBaseline();
+        int suppressed = 0;
+        boolean budgetReached = false;
+        int compared = 0;
+
+        try (ClassPipeline pipeline = new ClassPipeline(baseCache, concreteCache, this.pipelineThreads, this.cancellation)) {
+            ClassPipeline.Pair pair;
+            while ((pair = pipeline.next()) != null) {
+                // log("Comparing " + pair.className);
+                ClassInfoComparisonResults results = ClassInfoComparer.compare(this.checkBinary, this.annotationCheckMode, this.internalApi, this.internalAnnotationCheckMode,
+                        baseCache, pair.base, concreteCache, pair.concrete, references, baseline, this.compareEngine);
+                this.progress.classesCompared(++compared, pipeline.size());
+                suppressed += results.getSuppressedCount();
+                if (results.isIncompatible()) {
+                    report.classResult(CheckResult.of(results));
+
+                    if (this.maxErrors > 0 && report.errorCount >= this.maxErrors) {
+                        budgetReached = true;
+                        break;
                     }
                 }
             }
+        }
+
+        if (baseline != null)
+            logDebug("Suppressed " + suppressed + " incompatibilities found in the baseline");
+        return budgetReached;
+    }
+
+    /**
+     * @return whether the error budget was reached
+     */
+    private boolean compareIncremental(Path stateFile, Report report) throws IOException {
+        String optionsKey = putLibraries(putOptions(ResultCache.newKey())).build();
+        IncrementalState previous = IncrementalState.load(stateFile);
+        if (previous != null && !previous.optionsKey.equals(optionsKey)) {
+            logDebug("Check options or libraries changed since the previous incremental check; checking all classes");
+            previous = null;
+        }
+
+        boolean inputFolder = this.inputJar.isDirectory();
+        try (ZipArchive baseZip = ZipArchive.open(this.baseJar.toPath()); ZipArchive inputZip = inputFolder ? null : ZipArchive.open(this.inputJar.toPath())) {
+            // Main classes are deferred so that only classes which need to be recompared, and their ancestors, are parsed
+            ClassInfoCache baseCache = ClassInfoCache.fromSource(visitor -> visitor.visitArchive(baseZip), getBaseLibrarySources(), true, this.classFilter,
+                    this.progress, this.cancellation, this.offHeapIndex);
+            ClassSource inputSource = inputZip == null ? ClassSource.ofFolder(this.inputJar.toPath()) : visitor -> visitor.visitArchive(inputZip);
+            ClassInfoCache concreteCache = ClassInfoCache.fromSource(inputSource, getConcreteLibrarySources(), true, this.classFilter,
+                    this.progress, this.cancellation, this.offHeapIndex);
+            Map<String, Long> baseHashes = IncrementalState.hashClasses(baseZip);
+            Map<String, Long> inputHashes = inputZip == null ? IncrementalState.hashClasses(inputSource) : IncrementalState.hashClasses(inputZip);
+            Set<String> changedClasses = previous == null ? null : previous.getChangedClasses(baseHashes, inputHashes);
+
+            Map<String, IncrementalState.ClassState> classStates = new HashMap<>();
+            boolean budgetReached = compareClasses(baseCache, concreteCache, previous == null ? null : previous.classes, changedClasses, classStates, report);
+            new IncrementalState(optionsKey, baseHashes, inputHashes, classStates).save(stateFile);
+
+            return budgetReached;
+        }
+    }
+
+    List<ClassSource> getBaseLibrarySources() {
+        return getLibrarySources(this.baseLibs);
+    }
+
+    List<ClassSource> getConcreteLibrarySources() {
+        return getLibrarySources(this.concreteLibs);
+    }
+
+    private List<ClassSource> getLibrarySources(List<File> libs) {
+        List<ClassSource> sources = new ArrayList<>();
+        for (File lib : libs) {
+            sources.add(ClassSource.ofJar(lib.toPath()));
+        }
+        for (File lib : this.commonLibs) {
+            sources.add(ClassSource.ofJar(lib.toPath()));
+        }
+        return sources;
+    }
+
+    /**
+     * Compares all main classes of the base cache, reusing the previous state of any class which is not affected by the changed classes.
+     *
+     * @param previousStates the class states of a previous comparison, or {@code null} to compare every class
+     * @param changedClasses the classes which changed since the previous comparison, only used if there are previous states
+     * @param classStates receives the state of every compared or reused class
+     * @param report receives the incompatibilities of every compared or reused class
+     * @return whether the error budget was reached
+     */
+    boolean compareClasses(ClassInfoCache baseCache, ClassInfoCache concreteCache, @Nullable Map<String, IncrementalState.ClassState> previousStates,
+            @Nullable Set<String> changedClasses, Map<String, IncrementalState.ClassState> classStates, Report report) throws IOException {
+        ReferenceIndex.Scope references = getReferenceScope(baseCache);
+        Baseline baseline = getBaseline();
+        int recompared = 0;
+        boolean budgetReached = false;
+        Set<String> baseClassNames = baseCache.getMainClassNames();
+
+        for (String baseClassName : baseClassNames) {
+            this.cancellation.throwIfCancelled();
+            IncrementalState.ClassState state = previousStates == null ? null : previousStates.get(baseClassName);
+            if (state == null || changedClasses == null || state.isAffectedBy(baseClassName, changedClasses)) {
+                ClassInfo baseClassInfo = baseCache.getMainClassInfo(baseClassName);
+                ClassInfo concreteClassInfo = concreteCache.getMainClassInfo(baseClassName);
+                ClassInfoComparisonResults results = ClassInfoComparer.compare(this.checkBinary, this.annotationCheckMode, this.internalApi,
+                        this.internalAnnotationCheckMode, baseCache, baseClassInfo, concreteCache, concreteClassInfo, references, baseline, this.compareEngine);
+
+                Set<String> ancestors = new LinkedHashSet<>(ClassInfoComparer.getParentClassNames(true, baseCache, baseClassInfo, true));
+                if (concreteClassInfo != null)
+                    ancestors.addAll(ClassInfoComparer.getParentClassNames(true, concreteCache, concreteClassInfo, true));
+                // Whether the class is internal may also depend on its outer classes and package
+                ancestors.addAll(this.internalApi.getInheritedFrom(baseClassName));
+
+                state = new IncrementalState.ClassState(new ArrayList<>(ancestors), baseClassInfo.sourceFile, CheckResult.of(results).incompatibilities);
+                recompared++;
+            }
+
+            classStates.put(baseClassName, state);
+            this.progress.classesCompared(classStates.size(), baseClassNames.size());
+            if (!state.incompatibilities.isEmpty()) {
+                report.classResult(new CheckResult.ClassResult(baseClassName, state.sourceFile, state.incompatibilities));
+
+                if (this.maxErrors > 0 && report.errorCount >= this.maxErrors) {
+                    budgetReached = true;
+                    break;
+                }
+            }
+        }
+
+        logDebug("Recompared " + recompared + " of " + classStates.size() + " classes");
+        return budgetReached;
+    }
+
+    @Nullable
+    private Baseline getBaseline() throws IOException {
+        if (this.baselineFile != null && this.baseline == null) {
+            this.baseline = Baseline.load(this.baselineFile);
+            logDebug("Loaded " + this.baseline.size() + " known incompatibilities from " + this.baselineFile);
+        }
+
+        return this.baseline;
+    }
+
+    /**
+     * @return the references of the consumer jars resolved against the base cache, or {@code null} if no consumer jars are set
+     */
+    @Nullable
+    private ReferenceIndex.Scope getReferenceScope(ClassInfoCache baseCache) throws IOException {
+        if (this.consumerJars.isEmpty())
+            return null;
+
+        if (this.referenceIndex == null) {
+            List<ClassSource> sources = new ArrayList<>();
+            for (File consumerJar : this.consumerJars) {
+                sources.add(ClassSource.ofJar(consumerJar.toPath()));
+            }
+            this.referenceIndex = ReferenceIndex.scan(sources);
+        }
+
+        return this.referenceIndex.scope(baseCache);
+    }
+
+    private int report(CheckResult result) throws IOException {
+        Report report = startReport(false);
+        for (CheckResult.ClassResult classResult : result.classes) {
+            report.classResult(classResult);
+        }
+
+        return report.finish(result.budgetReached);
+    }
 
-            logError("Incompatibilities found: " + errorCount + " errors, " + warningCount + " warnings");
+    /**
+     * Starts a report to every sink and the loggers.
+     *
+     * @param keepClasses whether to keep the reported classes for {@link Report#getResult(boolean)}
+     */
+    Report startReport(boolean keepClasses) throws IOException {
+        Report report = new Report(keepClasses);
+        for (ReportSink sink : this.reportSinks) {
+            sink.start();
+        }
+
+        return report;
+    }
+
+    /**
+     * Passes the incompatibilities of each class to the sinks and loggers as soon as the class is compared, so a full check result is only built when it is needed.
+     */
+    final class Report {
+        @Nullable
+        private final List<CheckResult.ClassResult> classes;
+        int errorCount;
+        int warningCount;
+
+        private Report(boolean keepClasses) {
+            this.classes = keepClasses ? new ArrayList<>() : null;
+        }
+
+        void classResult(CheckResult.ClassResult classResult) throws IOException {
+            for (ReportSink sink : reportSinks) {
+                for (CheckResult.Entry entry : classResult.incompatibilities) {
+                    sink.incompatibility(classResult, entry);
+                }
+            }
 
-            for (ClassInfoComparisonResults compareResults : classIncompatibilities) {
-                logError(compareResults.classInfo.name + ":");
-                for (Incompatibility<?> incompatibility : compareResults.getIncompatibilities()) {
-                    logError("- " + (incompatibility.isError() ? "error: " : "warning: ") + incompatibility);
+            logError(classResult.name + ":");
+            for (CheckResult.Entry entry : classResult.incompatibilities) {
+                logError("- " + (entry.error ? "error: " : "warning: ") + entry);
+                if (entry.error) {
+                    this.errorCount++;
+                } else {
+                    this.warningCount++;
                 }
             }
 
-            return errorCount;
+            if (this.classes != null)
+                this.classes.add(classResult);
+        }
+
+        CheckResult getResult(boolean budgetReached) {
+            if (this.classes == null)
+                throw new IllegalStateException("Reported classes were not kept");
+
+            return new CheckResult(this.classes, budgetReached);
+        }
+
+        /**
+         * @return the number of errors reported
+         */
+        int finish(boolean budgetReached) throws IOException {
+            for (ReportSink sink : reportSinks) {
+                sink.finish(this.errorCount, this.warningCount, budgetReached);
+            }
+
+            if (this.errorCount == 0 && this.warningCount == 0) {
+                log("No incompatibilities found");
+                return 0;
+            }
+
+            logError("Incompatibilities found: " + this.errorCount + " errors, " + this.warningCount + " warnings");
+            if (budgetReached)
+                logError("Stopped checking after reaching the maximum of " + maxErrors + " errors; more incompatibilities may exist");
+
+            return this.errorCount;
+        }
+    }
+
+    private String computeCacheKey() throws IOException {
+        ResultCache.Key key = putOptions(ResultCache.newKey()).putFile(this.baseJar);
+        if (this.inputJar.isDirectory()) {
+            key.putBoolean(true).putClasses(ClassSource.ofFolder(this.inputJar.toPath()));
         } else {
-            log("No incompatibilities found");
+            key.putBoolean(false).putFile(this.inputJar);
         }
+        return putLibraries(key).build();
+    }
 
-        return 0;
+    /**
+     * Puts every option which affects the reported incompatibilities or their order.
+     * The compare engine is included since engines may report the incompatibilities of a class in another order.
+     * The pipeline threads and off-heap index only change how classes are read, not what is reported, so results are shared across them.
+     */
+    private ResultCache.Key putOptions(ResultCache.Key key) {
+        key.putBoolean(this.checkBinary)
+                .putString(this.annotationCheckMode == null ? null : this.annotationCheckMode.name())
+                .putString(this.internalAnnotationCheckMode.name())
+                .putInt(this.internalAnnotations.size());
+        for (String internalAnnotation : this.internalAnnotations) {
+            key.putString(internalAnnotation);
+        }
+        key.putBoolean(this.internalApi.isInherited());
+        for (List<String> globs : ImmutableList.of(this.classFilter.getIncludes(), this.classFilter.getExcludes())) {
+            key.putInt(globs.size());
+            for (String glob : globs) {
+                key.putString(glob);
+            }
+        }
+        key.putInt(this.classFilter.getShardIndex()).putInt(this.classFilter.getShardCount());
+        return key.putInt(this.maxErrors).putString(this.compareEngine.name());
+    }
+
+    private ResultCache.Key putLibraries(ResultCache.Key key) throws IOException {
+        for (List<File> libs : ImmutableList.of(this.baseLibs, this.concreteLibs, this.commonLibs, this.consumerJars)) {
+            key.putInt(libs.size());
+            for (File lib : libs) {
+                key.putFile(lib);
+            }
+        }
+        key.putBoolean(this.baselineFile != null);
+        if (this.baselineFile != null)
+            key.putFile(this.baselineFile.toFile());
+        return key;
     }
 }
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.jarcompatibilitychecker.cache;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassInfoCache;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassSource;
+import net.minecraftforge.jarcompatibilitychecker.report.CheckResult;
+import net.minecraftforge.jarcompatibilitychecker.zip.ZipArchive;
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.ClassReader;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * The persisted state of an incremental check.
+ * Holds a content hash for every class, checked or not, and every nested JAR class of the base JAR and input JAR or class folder along with the comparison results and ancestors of every checked base class,
+ * so that a following check only needs to recompute classes which changed or which inherit from a class which changed.
+ */
+public class IncrementalState {
+    private static final int FORMAT_VERSION = 3;
+    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+
+    public final int formatVersion;
+    /**
+     * A fingerprint of the check options and libraries; if these change, no previous result can be reused.
+     */
+    public final String optionsKey;
+    public final Map<String, Long> baseHashes;
+    public final Map<String, Long> inputHashes;
+    public final Map<String, ClassState> classes;
+
+    public IncrementalState(String optionsKey, Map<String, Long> baseHashes, Map<String, Long> inputHashes, Map<String, ClassState> classes) {
+        this.formatVersion = FORMAT_VERSION;
+        this.optionsKey = optionsKey;
+        this.baseHashes = baseHashes;
+        this.inputHashes = inputHashes;
+        this.classes = classes;
+    }
+
+    @Nullable
+    public static IncrementalState load(Path file) throws IOException {
+        if (!Files.isRegularFile(file))
+            return null;
+
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            IncrementalState state = GSON.fromJson(reader, IncrementalState.class);
+            return state == null || state.formatVersion != FORMAT_VERSION ? null : state;
+        } catch (JsonParseException e) {
+            return null;
+        }
+    }
+
+    public void save(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                GSON.toJson(this, writer);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Hashes every class of an archive using the size and CRC-32 recorded in its central directory, so no entry needs to be read.
+     * Classes which are not checked are hashed as well, since checked classes may inherit from them,
+     * and so are all classes of JARs nested inside the archive.
+     */
+    public static Map<String, Long> hashClasses(ZipArchive zip) throws IOException {
+        Map<String, Long> hashes = new HashMap<>();
+        for (ZipArchive.Entry entry : zip.getEntries()) {
+            if (ClassInfoCache.isClassEntry(entry.name))
+                hashes.putIfAbsent(getClassName(entry), hash(entry));
+        }
+
+        List<ZipArchive> nested = new ArrayList<>();
+        ClassInfoCache.openNestedJars(zip, nested);
+        for (ZipArchive archive : nested) {
+            for (ZipArchive.Entry entry : archive.getEntries()) {
+                if (ClassInfoCache.isClassEntry(entry.name) && !entry.name.startsWith("META-INF/"))
+                    hashes.putIfAbsent(getClassName(entry), hash(entry));
+            }
+        }
+
+        return hashes;
+    }
+
+    /**
+     * Hashes every class of a source like {@link #hashClasses(ZipArchive)}, which requires reading every class of the source.
+     * Used for class folders, which have no central directory.
+     */
+    public static Map<String, Long> hashClasses(ClassSource source) throws IOException {
+        Map<String, Long> hashes = new HashMap<>();
+        CRC32 crc = new CRC32();
+        source.accept((data, offset, length) -> {
+            crc.reset();
+            crc.update(data, offset, length);
+            hashes.putIfAbsent(new ClassReader(data, offset, length).getClassName(), ((long) length << 32) | crc.getValue());
+        });
+
+        return hashes;
+    }
+
+    private static String getClassName(ZipArchive.Entry entry) {
+        return entry.name.substring(0, entry.name.length() - ".class".length());
+    }
+
+    private static long hash(ZipArchive.Entry entry) {
+        return ((long) entry.size << 32) | (entry.crc & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @return the names of all classes which were added, removed or changed in either the base or input JAR since this state was saved
+     */
+    public Set<String> getChangedClasses(Map<String, Long> baseHashes, Map<String, Long> inputHashes) {
+        Set<String> changed = new HashSet<>();
+        addChanged(changed, this.baseHashes, baseHashes);
+        addChanged(changed, this.inputHashes, inputHashes);
+        return changed;
+    }
+
+    private static void addChanged(Set<String> changed, Map<String, Long> previous, Map<String, Long> current) {
+        for (Map.Entry<String, Long> entry : current.entrySet()) {
+            if (!entry.getValue().equals(previous.get(entry.getKey())))
+                changed.add(entry.getKey());
+        }
+        for (String name : previous.keySet()) {
+            if (!current.containsKey(name))
+                changed.add(name);
+        }
+    }
+
+    public static final class ClassState {
+        /**
+         * The names of all super classes and interfaces of the class in both the base and input JAR,
+         * and of the outer classes and {@code package-info} it inherits internal API annotations from.
+         */
+        public final List<String> ancestors;
+        /**
+         * The source file of the base class, so reported incompatibilities can be located without parsing the class again.
+         */
+        @Nullable
+        public final String sourceFile;
+        public final List<CheckResult.Entry> incompatibilities;
+
+        public ClassState(List<String> ancestors, @Nullable String sourceFile, List<CheckResult.Entry> incompatibilities) {
+            this.ancestors = ancestors;
+            this.sourceFile = sourceFile;
+            this.incompatibilities = incompatibilities;
+        }
+
+        public boolean isAffectedBy(String className, Set<String> changedClasses) {
+            if (changedClasses.contains(className))
+                return true;
+
+            for (String ancestor : this.ancestors) {
+                if (changedClasses.contains(ancestor))
+                    return true;
+            }
+
+            return false;
+        }
+    }
+}
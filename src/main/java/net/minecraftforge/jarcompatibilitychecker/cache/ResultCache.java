@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.jarcompatibilitychecker.cache;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassSource;
+import net.minecraftforge.jarcompatibilitychecker.report.CheckResult;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A directory of {@link CheckResult}s stored as JSON, keyed by a fingerprint of every input which can influence the result.
+ */
+public class ResultCache {
+    /**
+     * Bump this whenever the comparison logic or the stored format changes in a way which invalidates old results.
+     */
+    private static final int FORMAT_VERSION = 2;
+    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+
+    private final Path directory;
+
+    public ResultCache(Path directory) {
+        this.directory = directory;
+    }
+
+    public static Key newKey() {
+        return new Key();
+    }
+
+    @Nullable
+    public CheckResult load(String key) throws IOException {
+        Path file = this.directory.resolve(key + ".json");
+        if (!Files.isRegularFile(file))
+            return null;
+
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return GSON.fromJson(reader, CheckResult.class);
+        } catch (JsonParseException e) {
+            // A corrupt entry is treated as a miss and will be overwritten by the next store
+            return null;
+        }
+    }
+
+    public void store(String key, CheckResult result) throws IOException {
+        Files.createDirectories(this.directory);
+        Path temp = Files.createTempFile(this.directory, key, ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                GSON.toJson(result, writer);
+            }
+            Files.move(temp, this.directory.resolve(key + ".json"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Builds a cache key from the inputs of a check. Inputs are order-sensitive.
+     */
+    public static final class Key {
+        @SuppressWarnings("UnstableApiUsage")
+        private final Hasher hasher = Hashing.sha256().newHasher();
+
+        private Key() {
+            putString("v" + FORMAT_VERSION);
+            Package pkg = ResultCache.class.getPackage();
+            putString(pkg == null || pkg.getImplementationVersion() == null ? "dev" : pkg.getImplementationVersion());
+        }
+
+        public Key putString(@Nullable String value) {
+            if (value == null) {
+                this.hasher.putInt(-1);
+            } else {
+                this.hasher.putInt(value.length()).putString(value, StandardCharsets.UTF_8);
+            }
+            return this;
+        }
+
+        public Key putBoolean(boolean value) {
+            this.hasher.putBoolean(value);
+            return this;
+        }
+
+        public Key putInt(int value) {
+            this.hasher.putInt(value);
+            return this;
+        }
+
+        /**
+         * Adds the contents of the file to the key; its path and timestamps are ignored.
+         */
+        @SuppressWarnings("UnstableApiUsage")
+        public Key putFile(File file) throws IOException {
+            this.hasher.putBytes(com.google.common.io.Files.asByteSource(file).hash(Hashing.sha256()).asBytes());
+            return this;
+        }
+
+        /**
+         * Adds the contents of all classes of the source to the key, independent of the order in which the source provides them.
+         */
+        @SuppressWarnings("UnstableApiUsage")
+        public Key putClasses(ClassSource source) throws IOException {
+            List<HashCode> hashes = new ArrayList<>();
+            source.accept((data, offset, length) -> hashes.add(Hashing.sha256().hashBytes(data, offset, length)));
+            hashes.sort(Comparator.comparing(HashCode::toString));
+            this.hasher.putInt(hashes.size());
+            for (HashCode hash : hashes) {
+                this.hasher.putBytes(hash.asBytes());
+            }
+            return this;
+        }
+
+        public String build() {
+            return this.hasher.hash().toString();
+        }
+    }
+}
@@ -5,15 +5,25 @@
 package net.minecraftforge.jarcompatibilitychecker.core;
 
 public enum AnnotationCheckMode {
-    ERROR_ADDED(true, true),
-    WARN_ADDED(false, true);
+    ERROR_ADDED(true, true, false),
+    WARN_ADDED(false, true, false),
+    /**
+     * Reports added and removed annotations as errors, along with annotations whose values changed.
+     */
+    ERROR_CHANGED(true, true, true),
+    /**
+     * Reports added and removed annotations as warnings, along with annotations whose values changed.
+     */
+    WARN_CHANGED(false, true, true);
 
     private final boolean error;
     private final boolean addition;
+    private final boolean removal;
 
-    AnnotationCheckMode(boolean error, boolean addition) {
+    AnnotationCheckMode(boolean error, boolean addition, boolean removal) {
         this.error = error;
         this.addition = addition;
+        this.removal = removal;
     }
 
     public boolean shouldError() {
@@ -27,4 +37,15 @@ public enum AnnotationCheckMode {
     public boolean checkAddition() {
         return this.addition;
     }
+
+    public boolean checkRemoval() {
+        return this.removal;
+    }
+
+    /**
+     * @return {@code true} if an annotation with the same descriptor but different values should be reported as changed
+     */
+    public boolean requiresExact() {
+        return this.removal;
+    }
 }
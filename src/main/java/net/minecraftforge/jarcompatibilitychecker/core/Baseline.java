@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.jarcompatibilitychecker.core;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A set of known incompatibilities which are not reported.
+ * Incompatibilities are identified by their class, the name and descriptor of the member, and their {@linkplain IncompatibilityMessages#getTypes() message type},
+ * so a baseline keeps matching when message texts change. All annotation incompatibilities of one type on a member share a key.
+ * <p>
+ * A baseline file holds one tab-separated key per line; blank lines and lines starting with {@code #} are ignored.
+ * Only a 64-bit hash of every key is kept, so looking up an incompatibility does not allocate.
+ */
+public final class Baseline {
+    public static final String HEADER = "# JarCompatibilityChecker baseline: class, member name, member descriptor, message type";
+
+    private long[] hashes;
+    private int size;
+
+    private Baseline() {
+        this.hashes = new long[16];
+    }
+
+    public static Baseline load(Path file) throws IOException {
+        Baseline baseline = new Baseline();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty() || line.startsWith("#"))
+                    continue;
+
+                String[] parts = line.split("\t", -1);
+                if (parts.length != 4)
+                    throw new IOException("Invalid baseline entry on line " + lineNumber + " of " + file + ": " + line);
+
+                baseline.add(hash(parts[0], parts[1], parts[2], parts[3]));
+            }
+        }
+
+        return baseline;
+    }
+
+    /**
+     * Formats the key of an incompatibility as a line of a baseline file.
+     */
+    public static String formatKey(String className, String memberName, @Nullable String memberDesc, String messageType) {
+        return className + '\t' + memberName + '\t' + (memberDesc == null ? "" : memberDesc) + '\t' + messageType;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * @param template the message constant of the incompatibility, before any formatting
+     * @return {@code true} if the incompatibility is known and should not be reported
+     */
+    public boolean contains(String className, String memberName, @Nullable String memberDesc, String template) {
+        if (this.size == 0)
+            return false;
+
+        String type = IncompatibilityMessages.getTemplateType(template);
+        return type != null && contains(hash(className, memberName, memberDesc == null ? "" : memberDesc, type));
+    }
+
+    private static long hash(String className, String memberName, String memberDesc, String type) {
+        long hash = 0xcbf29ce484222325L;
+        hash = hash(hash, className);
+        hash = hash(hash, memberName);
+        hash = hash(hash, memberDesc);
+        hash = hash(hash, type);
+        // Zero marks an empty slot
+        return hash == 0 ? 1 : hash;
+    }
+
+    /**
+     * Continues a 64-bit FNV-1a hash with the characters of the part, followed by a separator which cannot occur in class or member names.
+     */
+    private static long hash(long hash, String part) {
+        for (int i = 0; i < part.length(); i++) {
+            hash = (hash ^ part.charAt(i)) * 0x100000001b3L;
+        }
+        return (hash ^ 0xFFFF) * 0x100000001b3L;
+    }
+
+    private boolean contains(long hash) {
+        int mask = this.hashes.length - 1;
+        for (int i = mix(hash) & mask; ; i = (i + 1) & mask) {
+            long slot = this.hashes[i];
+            if (slot == hash)
+                return true;
+            if (slot == 0)
+                return false;
+        }
+    }
+
+    private void add(long hash) {
+        if (contains(hash))
+            return;
+
+        if ((this.size + 1) * 2 > this.hashes.length) {
+            long[] old = this.hashes;
+            this.hashes = new long[old.length * 2];
+            for (long slot : old) {
+                if (slot != 0)
+                    insert(slot);
+            }
+        }
+
+        insert(hash);
+        this.size++;
+    }
+
+    private void insert(long hash) {
+        int mask = this.hashes.length - 1;
+        int i = mix(hash) & mask;
+        while (this.hashes[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        this.hashes[i] = hash;
+    }
+
+    private static int mix(long hash) {
+        return (int) (hash ^ (hash >>> 32));
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.jarcompatibilitychecker.core;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Allows a check to be stopped from another thread, for example when a newer build supersedes it.
+ * Cancellation is cooperative: reading and comparison loops poll the token, and throw a {@link CancellationException} once it is cancelled.
+ * The exception unwinds through the checker, which closes any open archives on the way.
+ */
+public class CancellationToken {
+    /**
+     * A token which can never be cancelled.
+     */
+    public static final CancellationToken NONE = new CancellationToken() {
+        @Override
+        public void cancel() {
+            throw new UnsupportedOperationException("The NONE token cannot be cancelled");
+        }
+    };
+
+    private volatile boolean cancelled;
+
+    public void cancel() {
+        this.cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return this.cancelled;
+    }
+
+    /**
+     * @throws CancellationException if this token was cancelled
+     */
+    public void throwIfCancelled() {
+        if (this.cancelled)
+            throw new CancellationException("Check was cancelled");
+    }
+}
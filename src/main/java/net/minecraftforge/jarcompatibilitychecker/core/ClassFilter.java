@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.jarcompatibilitychecker.core;
+
+import com.google.common.collect.ImmutableList;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Selects the classes to check by include and exclude globs on their internal names, such as {@code net/minecraftforge/api/**}.
+ * Dots are treated as package separators, {@code ?} matches a single character, {@code *} matches within a single package segment,
+ * and {@code **} matches across packages.
+ * A class is selected if it matches any include, or there are no includes, and matches no exclude.
+ * <p>
+ * The literal prefixes of all globs are compiled into a trie, so a class name is only matched against the wildcard parts of globs whose prefix it starts with.
+ * Names can be tested directly against archive entry names, before the entry is read.
+ * <p>
+ * A filter can also be restricted to a {@linkplain #withShard(int, int) shard} of the classes, so a check can be split across processes or machines.
+ */
+public final class ClassFilter {
+    public static final ClassFilter ALL = new ClassFilter(ImmutableList.of(), ImmutableList.of());
+
+    private final List<String> includes;
+    private final List<String> excludes;
+    @Nullable
+    private final Node includeTrie;
+    @Nullable
+    private final Node excludeTrie;
+    private final int shardIndex;
+    private final int shardCount;
+
+    private ClassFilter(List<String> includes, List<String> excludes) {
+        this(includes, excludes, compile(includes), compile(excludes), 0, 1);
+    }
+
+    private ClassFilter(List<String> includes, List<String> excludes, @Nullable Node includeTrie, @Nullable Node excludeTrie, int shardIndex, int shardCount) {
+        this.includes = includes;
+        this.excludes = excludes;
+        this.includeTrie = includeTrie;
+        this.excludeTrie = excludeTrie;
+        this.shardIndex = shardIndex;
+        this.shardCount = shardCount;
+    }
+
+    /**
+     * @param includes globs of the classes to select, or an empty list to select all classes
+     * @param excludes globs of the classes to leave out
+     */
+    public static ClassFilter of(List<String> includes, List<String> excludes) {
+        if (includes.isEmpty() && excludes.isEmpty())
+            return ALL;
+
+        return new ClassFilter(normalize(includes), normalize(excludes));
+    }
+
+    private static List<String> normalize(List<String> globs) {
+        ImmutableList.Builder<String> normalized = ImmutableList.builder();
+        for (String glob : globs) {
+            normalized.add(glob.replace('.', '/'));
+        }
+        return normalized.build();
+    }
+
+    /**
+     * Restricts this filter to one of several shards of the classes it selects.
+     * Classes are assigned to shards by a hash of their name, so every class belongs to exactly one shard,
+     * and the assignment is the same in every process without any shared state.
+     *
+     * @param shardIndex the index of the shard to select, from {@code 0} to {@code shardCount - 1}
+     * @param shardCount the number of shards, or {@code 1} to select all classes
+     */
+    public ClassFilter withShard(int shardIndex, int shardCount) {
+        if (shardCount < 1 || shardIndex < 0 || shardIndex >= shardCount)
+            throw new IllegalArgumentException("Invalid shard " + shardIndex + " of " + shardCount);
+
+        return new ClassFilter(this.includes, this.excludes, this.includeTrie, this.excludeTrie, shardIndex, shardCount);
+    }
+
+    @Nullable
+    private static Node compile(List<String> globs) {
+        if (globs.isEmpty())
+            return null;
+
+        Node root = new Node();
+        for (String glob : globs) {
+            root.add(glob);
+        }
+        return root;
+    }
+
+    public List<String> getIncludes() {
+        return this.includes;
+    }
+
+    public List<String> getExcludes() {
+        return this.excludes;
+    }
+
+    public int getShardIndex() {
+        return this.shardIndex;
+    }
+
+    public int getShardCount() {
+        return this.shardCount;
+    }
+
+    public boolean isAll() {
+        return this.includeTrie == null && this.excludeTrie == null && this.shardCount == 1;
+    }
+
+    /**
+     * @param className the internal name of a class
+     */
+    public boolean matches(String className) {
+        return matches(className, className.length());
+    }
+
+    /**
+     * @param entryName the name of an archive entry ending with {@code .class}
+     */
+    public boolean matchesEntry(String entryName) {
+        return matches(entryName, entryName.length() - ".class".length());
+    }
+
+    private boolean matches(String name, int length) {
+        return (this.shardCount == 1 || shardOf(name, length, this.shardCount) == this.shardIndex)
+                && (this.includeTrie == null || this.includeTrie.matches(name, length)) && (this.excludeTrie == null || !this.excludeTrie.matches(name, length));
+    }
+
+    /**
+     * @return the shard of the first {@code length} characters of the name, which must stay the same across versions so shards of one check can be run by different builds
+     */
+    static int shardOf(String name, int length, int shardCount) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + name.charAt(i);
+        }
+        // Mixes the bits of the string hash, since similar names differ only in their last characters
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return Math.floorMod(hash, shardCount);
+    }
+
+    @Override
+    public String toString() {
+        String globs = "includes=" + this.includes + ", excludes=" + this.excludes;
+        return this.shardCount == 1 ? globs : globs + ", shard=" + (this.shardIndex + 1) + '/' + this.shardCount;
+    }
+
+    /**
+     * Matches the first {@code length} characters of the name from {@code n} against the glob from {@code g}.
+     */
+    private static boolean matchGlob(String glob, int g, String name, int n, int length) {
+        while (g < glob.length()) {
+            char c = glob.charAt(g);
+            if (c == '*') {
+                boolean crossPackages = g + 1 < glob.length() && glob.charAt(g + 1) == '*';
+                int next = crossPackages ? g + 2 : g + 1;
+                for (int i = n; ; i++) {
+                    if (matchGlob(glob, next, name, i, length))
+                        return true;
+                    if (i == length || (!crossPackages && name.charAt(i) == '/'))
+                        return false;
+                }
+            }
+
+            if (n == length)
+                return false;
+
+            char ch = name.charAt(n);
+            if (c == '?' ? ch == '/' : c != ch)
+                return false;
+
+            g++;
+            n++;
+        }
+
+        return n == length;
+    }
+
+    private static final class Node {
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        /**
+         * The parts of globs after the literal prefix leading to this node, each empty or starting with a wildcard.
+         */
+        private String[] remainders = new String[0];
+
+        void add(String glob) {
+            Node node = this;
+            int i = 0;
+            for (; i < glob.length(); i++) {
+                char c = glob.charAt(i);
+                if (c == '*' || c == '?')
+                    break;
+
+                Node child = node.getChild(c);
+                if (child == null) {
+                    child = new Node();
+                    node.keys = Arrays.copyOf(node.keys, node.keys.length + 1);
+                    node.keys[node.keys.length - 1] = c;
+                    node.children = Arrays.copyOf(node.children, node.children.length + 1);
+                    node.children[node.children.length - 1] = child;
+                }
+                node = child;
+            }
+
+            node.remainders = Arrays.copyOf(node.remainders, node.remainders.length + 1);
+            node.remainders[node.remainders.length - 1] = glob.substring(i);
+        }
+
+        @Nullable
+        Node getChild(char c) {
+            for (int i = 0; i < this.keys.length; i++) {
+                if (this.keys[i] == c)
+                    return this.children[i];
+            }
+            return null;
+        }
+
+        boolean matches(String name, int length) {
+            Node node = this;
+            for (int i = 0; ; i++) {
+                for (String remainder : node.remainders) {
+                    if (matchGlob(remainder, 0, name, i, length))
+                        return true;
+                }
+
+                if (i == length)
+                    return false;
+
+                node = node.getChild(name.charAt(i));
+                if (node == null)
+                    return false;
+            }
+        }
+    }
+}
@@ -4,43 +4,78 @@
  */
 package net.minecraftforge.jarcompatibilitychecker.core;
 
-import com.google.common.io.ByteStreams;
+import com.google.common.base.Throwables;
+import net.minecraftforge.jarcompatibilitychecker.data.AnnotationInterner;
+import net.minecraftforge.jarcompatibilitychecker.data.ClassHeader;
 import net.minecraftforge.jarcompatibilitychecker.data.ClassInfo;
+import net.minecraftforge.jarcompatibilitychecker.zip.ZipArchive;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.tree.ClassNode;
 
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.file.FileSystem;
-import java.nio.file.FileSystems;
-import java.nio.file.Files;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
-import java.util.Enumeration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Stream;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 
 public class ClassInfoCache {
+    private static final String NESTED_JAR_PREFIX = "META-INF/jarjar/";
+    /**
+     * Bounds the number of library files open at once when libraries are read concurrently.
+     */
+    private static final int MAX_CONCURRENT_LIBRARY_READS = 64;
+
     private final Map<String, ClassInfo> mainClasses = new HashMap<>();
     private final Map<String, ClassInfo> libClasses = new HashMap<>();
+    private final Map<String, DeferredClass> deferredMainClasses = new HashMap<>();
+    private final Map<String, DeferredClass> deferredClasses = new HashMap<>();
+    /**
+     * Headers of deferred classes which were only needed to walk the class hierarchy; the deferred class is kept until its members are needed.
+     */
+    private final Map<String, ClassHeader> deferredHeaders = new HashMap<>();
     private final Set<String> failedClasses = new HashSet<>();
+    private final AnnotationInterner annotationInterner = new AnnotationInterner();
+    private ProgressListener progress = ProgressListener.NONE;
+    private CancellationToken cancellation = CancellationToken.NONE;
+    private int parsedClasses;
+    /**
+     * Replaces {@link #deferredClasses} for classes which are not main classes, if enabled.
+     */
+    @Nullable
+    private OffHeapClassIndex offHeapIndex;
+    /**
+     * Prebuilt indexes of library JARs, in the order of their precedence; classes are decoded from them once they are first looked up.
+     */
+    private final List<LibraryIndex> libraryIndexes = new ArrayList<>();
 
     public static ClassInfoCache fromJarFile(File jarFile, List<File> libraries) throws IOException {
         ClassInfoCache cache = new ClassInfoCache();
 
-        readJar(jarFile, cache.mainClasses);
+        cache.readMain(ClassSource.ofJar(jarFile.toPath()), false, ClassFilter.ALL);
+        List<ClassSource> sources = new ArrayList<>();
         for (File libFile : libraries) {
-            readJar(libFile, cache.libClasses);
+            sources.add(ClassSource.ofJar(libFile.toPath()));
         }
+        cache.readLibraries(sources);
 
         return cache;
     }
@@ -48,7 +83,7 @@ public class ClassInfoCache {
     public static ClassInfoCache fromJarFile(File jarFile) throws IOException {
         ClassInfoCache cache = new ClassInfoCache();
 
-        readJar(jarFile, cache.mainClasses);
+        cache.readMain(ClassSource.ofJar(jarFile.toPath()), false, ClassFilter.ALL);
 
         return cache;
     }
@@ -56,7 +91,7 @@ public class ClassInfoCache {
     public static ClassInfoCache fromJarPath(Path jarPath) throws IOException {
         ClassInfoCache cache = new ClassInfoCache();
 
-        readJar(jarPath, cache.mainClasses);
+        cache.readMain(ofJarWithDataEntries(jarPath), false, ClassFilter.ALL);
 
         return cache;
     }
@@ -64,10 +99,8 @@ public class ClassInfoCache {
     public static ClassInfoCache fromJarPath(Path jarPath, List<Path> libraries) throws IOException {
         ClassInfoCache cache = new ClassInfoCache();
 
-        readJar(jarPath, cache.mainClasses);
-        for (Path libPath : libraries) {
-            readJar(libPath, cache.libClasses);
-        }
+        cache.readMain(ofJarWithDataEntries(jarPath), false, ClassFilter.ALL);
+        cache.readLibraries(ofJars(libraries));
 
         return cache;
     }
@@ -75,7 +108,7 @@ public class ClassInfoCache {
     public static ClassInfoCache fromFolder(Path folder) throws IOException {
         ClassInfoCache cache = new ClassInfoCache();
 
-        readFolder(folder, cache.mainClasses);
+        cache.readMain(ClassSource.ofFolder(folder), false, ClassFilter.ALL);
 
         return cache;
     }
@@ -83,14 +116,107 @@ public class ClassInfoCache {
     public static ClassInfoCache fromFolder(Path folder, List<Path> libraries) throws IOException {
         ClassInfoCache cache = new ClassInfoCache();
 
-        readFolder(folder, cache.mainClasses);
-        for (Path libPath : libraries) {
-            readJar(libPath, cache.libClasses);
-        }
+        cache.readMain(ClassSource.ofFolder(folder), false, ClassFilter.ALL);
+        cache.readLibraries(ofJars(libraries));
+
+        return cache;
+    }
+
+    public static ClassInfoCache fromSource(ClassSource source) throws IOException {
+        ClassInfoCache cache = new ClassInfoCache();
+
+        cache.readMain(source, false, ClassFilter.ALL);
+
+        return cache;
+    }
+
+    public static ClassInfoCache fromSource(ClassSource source, List<ClassSource> libraries) throws IOException {
+        ClassInfoCache cache = new ClassInfoCache();
+
+        cache.readMain(source, false, ClassFilter.ALL);
+        cache.readLibraries(libraries);
+
+        return cache;
+    }
+
+    /**
+     * Creates a cache from the given sources.
+     *
+     * @param deferMainClasses if {@code true}, main classes inside archives are only indexed by name and are parsed once they are first looked up.
+     * {@link #getMainClassNames()} can be used to list them without parsing them.
+     */
+    public static ClassInfoCache fromSource(ClassSource source, List<ClassSource> libraries, boolean deferMainClasses) throws IOException {
+        return fromSource(source, libraries, deferMainClasses, ClassFilter.ALL);
+    }
+
+    /**
+     * Creates a cache from the given sources, where only the classes of the main source selected by the filter are main classes.
+     * Archive entries are filtered by name before they are read. Classes which are not selected are indexed like library classes,
+     * so they are only parsed if they are needed as an ancestor of another class.
+     *
+     * @param deferMainClasses if {@code true}, main classes inside archives are only indexed by name and are parsed once they are first looked up.
+     */
+    public static ClassInfoCache fromSource(ClassSource source, List<ClassSource> libraries, boolean deferMainClasses, ClassFilter filter) throws IOException {
+        return fromSource(source, libraries, deferMainClasses, filter, ProgressListener.NONE, CancellationToken.NONE);
+    }
+
+    /**
+     * Creates a cache like {@link #fromSource(ClassSource, List, boolean, ClassFilter)}, reporting every read entry and parsed class to the listener.
+     * The token is polled for every entry while reading and for every class parsed later on, including deferred classes parsed during comparison.
+     *
+     * @throws java.util.concurrent.CancellationException if the token is cancelled
+     */
+    public static ClassInfoCache fromSource(ClassSource source, List<ClassSource> libraries, boolean deferMainClasses, ClassFilter filter,
+            ProgressListener progress, CancellationToken cancellation) throws IOException {
+        return fromSource(source, libraries, deferMainClasses, filter, progress, cancellation, false);
+    }
+
+    /**
+     * Creates a cache like {@link #fromSource(ClassSource, List, boolean, ClassFilter, ProgressListener, CancellationToken)}.
+     *
+     * @param offHeapIndex if {@code true}, library classes and classes not selected by the filter are indexed in direct buffers instead of heap objects,
+     * and their headers are stored there once read. This keeps the heap small for classpaths with a very large number of classes,
+     * at the cost of decoding names again whenever a header is looked up. Classes are still parsed onto the heap once their members are needed.
+     */
+    public static ClassInfoCache fromSource(ClassSource source, List<ClassSource> libraries, boolean deferMainClasses, ClassFilter filter,
+            ProgressListener progress, CancellationToken cancellation, boolean offHeapIndex) throws IOException {
+        ClassInfoCache cache = new ClassInfoCache();
+        cache.progress = progress;
+        cache.cancellation = cancellation;
+        if (offHeapIndex)
+            cache.offHeapIndex = new OffHeapClassIndex();
+
+        cache.readMain(source, deferMainClasses, filter);
+        cache.readLibraries(libraries);
 
         return cache;
     }
 
+    private static List<ClassSource> ofJars(List<Path> jarPaths) {
+        List<ClassSource> sources = new ArrayList<>();
+        for (Path jarPath : jarPaths) {
+            sources.add(ofJarWithDataEntries(jarPath));
+        }
+        return sources;
+    }
+
+    /**
+     * The {@link Path} based readers have always read JARs like folders, which also treats {@code .dat} entries as classes.
+     *
+     * @return a source reading the JAR at the given path like {@link ClassSource#ofJar(Path)}, followed by its {@code .dat} entries
+     */
+    private static ClassSource ofJarWithDataEntries(Path jarPath) {
+        return visitor -> {
+            try (ZipArchive zip = ZipArchive.open(jarPath)) {
+                visitor.visitArchive(zip);
+                for (ZipArchive.Entry entry : zip.getEntries()) {
+                    if (isDataEntry(entry.name))
+                        zip.read(entry, visitor::visitClass);
+                }
+            }
+        };
+    }
+
     public static ClassInfoCache fromMaps(Map<String, ClassInfo> mainClasses, Map<String, ClassInfo> libClasses) {
         return new ClassInfoCache(mainClasses, libClasses);
     }
@@ -107,75 +233,516 @@ public class ClassInfoCache {
     }
 
     public static void readJar(File file, Map<String, ClassInfo> classes) throws IOException {
-        try (ZipFile zip = new ZipFile(file)) {
-            for (Enumeration<? extends ZipEntry> entries = zip.entries(); entries.hasMoreElements(); ) {
-                ZipEntry entry = entries.nextElement();
-                if (!entry.getName().endsWith(".class") || entry.getName().startsWith("."))
-                    continue;
-
-                ClassReader reader;
-                try (InputStream entryInputStream = zip.getInputStream(entry)) {
-                    reader = new ClassReader(ByteStreams.toByteArray(entryInputStream));
+        try (ZipArchive zip = ZipArchive.open(file.toPath())) {
+            readJar(zip, classes);
+        }
+    }
+
+    public static void readJar(Path jarPath, Map<String, ClassInfo> classes) throws IOException {
+        readSource(ofJarWithDataEntries(jarPath), classes);
+    }
+
+    public static void readJar(ZipArchive zip, Map<String, ClassInfo> classes) throws IOException {
+        readSource(visitor -> visitor.visitArchive(zip), classes);
+    }
+
+    public static void readFolder(Path folder, Map<String, ClassInfo> classes) throws IOException {
+        readSource(ClassSource.ofFolder(folder), classes);
+    }
+
+    public static void readSource(ClassSource source, Map<String, ClassInfo> classes) throws IOException {
+        source.accept((data, offset, length) -> readClass(new ClassReader(data, offset, length), classes, null));
+    }
+
+    /**
+     * Reads all classes of the given source selected by the filter as main classes, and indexes the classes of any JARs nested inside archives of the source.
+     * Classes which are not selected are read as library classes.
+     */
+    private void readMain(ClassSource source, boolean defer, ClassFilter filter) throws IOException {
+        source.accept(new ClassSource.Visitor() {
+            @Override
+            public void visitClass(byte[] data, int offset, int length) {
+                ClassReader reader = new ClassReader(data, offset, length);
+                Map<String, ClassInfo> classes = filter.isAll() || filter.matches(reader.getClassName()) ? ClassInfoCache.this.mainClasses : ClassInfoCache.this.libClasses;
+                parseClass(reader, classes);
+            }
+
+            @Override
+            public void visitArchive(ZipArchive archive) throws IOException {
+                List<ZipArchive.Entry> entries = archive.getEntries();
+                for (int i = 0; i < entries.size(); i++) {
+                    ZipArchive.Entry entry = entries.get(i);
+                    ClassInfoCache.this.cancellation.throwIfCancelled();
+                    if (isClassEntry(entry.name)) {
+                        if (!filter.matchesEntry(entry.name)) {
+                            indexLibraryClass(archive, i, entry);
+                        } else if (defer) {
+                            indexClass(archive, entry, ClassInfoCache.this.deferredMainClasses);
+                        } else {
+                            ClassInfo info = parseMainClass(archive, entry);
+                            ClassInfoCache.this.mainClasses.putIfAbsent(info.name, info);
+                        }
+                    }
+                    ClassInfoCache.this.progress.entriesRead(archive.getName(), i + 1, entries.size());
                 }
-                ClassNode classNode = new ClassNode();
-                reader.accept(classNode, 0);
-                ClassInfo info = new ClassInfo(classNode);
+                indexNestedJars(archive);
+            }
+        });
+    }
 
-                if (!classes.containsKey(info.name))
-                    classes.put(info.name, info);
+    /**
+     * Reads the given sources as library classes, where classes of earlier sources take precedence.
+     * On runtimes with virtual threads, the sources are opened and read concurrently, since reading many small JARs is dominated by
+     * the latency of opening each file rather than by CPU time. The read sources are then indexed on the calling thread in their original order.
+     */
+    private void readLibraries(List<ClassSource> libraries) throws IOException {
+        ExecutorService executor = libraries.size() > 1 ? VirtualThreads.newExecutor() : null;
+        if (executor == null) {
+            for (ClassSource libSource : libraries) {
+                readLibrary(libSource);
             }
-        } catch (FileNotFoundException e) {
-            throw new FileNotFoundException("Could not open JAR file: " + e.getMessage());
+            return;
         }
-    }
 
-    public static void readJar(Path jarPath, Map<String, ClassInfo> classes) throws IOException {
-        try (FileSystem zipFs = FileSystems.newFileSystem(jarPath, null)) {
-            Path root = zipFs.getPath("/");
-            readFolder(root, classes);
-        } catch (FileNotFoundException e) {
-            throw new FileNotFoundException("Could not open JAR file: " + e.getMessage());
+        try {
+            readLibraries(libraries, executor);
+        } finally {
+            executor.shutdownNow();
         }
     }
 
-    public static void readFolder(Path folder, Map<String, ClassInfo> classes) throws IOException {
-        try (Stream<Path> walker = Files.walk(folder)) {
-            Iterable<Path> iterable = walker::iterator;
-            for (Path entryPath : iterable) {
-                Path namePath = entryPath.getFileName();
-                String name = namePath == null ? null : namePath.toString();
-                if (name == null || name.startsWith("."))
-                    continue;
-
-                if (!name.endsWith(".class") && !name.endsWith(".dat"))
-                    continue;
-
-                ClassReader reader;
-                try (InputStream entryInputStream = Files.newInputStream(entryPath)) {
-                    reader = new ClassReader(ByteStreams.toByteArray(entryInputStream));
+    private void readLibraries(List<ClassSource> libraries, ExecutorService executor) throws IOException {
+        Semaphore permits = new Semaphore(MAX_CONCURRENT_LIBRARY_READS);
+        List<Future<ReadLibrary>> reads = new ArrayList<>(libraries.size());
+        for (ClassSource libSource : libraries) {
+            reads.add(executor.submit(() -> {
+                permits.acquire();
+                try {
+                    this.cancellation.throwIfCancelled();
+                    return ReadLibrary.read(libSource);
+                } finally {
+                    permits.release();
                 }
-                ClassNode classNode = new ClassNode();
-                reader.accept(classNode, 0);
-                ClassInfo info = new ClassInfo(classNode);
+            }));
+        }
+
+        for (Future<ReadLibrary> read : reads) {
+            ReadLibrary library;
+            try {
+                library = read.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while reading libraries");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                Throwables.throwIfInstanceOf(cause, IOException.class);
+                Throwables.throwIfUnchecked(cause);
+                throw new IOException(cause);
+            }
+
+            for (byte[] data : library.classes) {
+                parseLibraryClass(new ClassReader(data));
+            }
+            for (ZipArchive archive : library.archives) {
+                indexClasses(archive);
+            }
+            for (IndexedArchive indexed : library.indexes) {
+                addLibraryIndex(indexed.name, indexed.entries, indexed.index);
+            }
+        }
+    }
 
-                if (!classes.containsKey(info.name))
-                    classes.put(info.name, info);
+    /**
+     * Reads all classes of the given source as library classes.
+     * Classes inside archives, including nested JARs, are only indexed by name and are parsed once they are first looked up,
+     * as most library classes are never needed. Archives with a {@link LibraryIndex} are not indexed at all; their classes are decoded from the index instead.
+     */
+    private void readLibrary(ClassSource source) throws IOException {
+        source.accept(new ClassSource.Visitor() {
+            @Override
+            public void visitClass(byte[] data, int offset, int length) {
+                parseLibraryClass(new ClassReader(data, offset, length));
             }
+
+            @Override
+            public void visitArchive(ZipArchive archive) throws IOException {
+                indexArchive(archive);
+            }
+
+            @Override
+            public void visitIndexedArchive(ZipArchive archive, LibraryIndex index) {
+                addLibraryIndex(archive.getName(), archive.getEntries().size(), index);
+            }
+        });
+    }
+
+    /**
+     * Adds the index of a library archive, whose entries all count as read since none of them need to be indexed.
+     */
+    private void addLibraryIndex(String archiveName, int entries, LibraryIndex index) {
+        this.libraryIndexes.add(index);
+        this.progress.entriesRead(archiveName, entries, entries);
+    }
+
+    private void indexArchive(ZipArchive zip) throws IOException {
+        indexClasses(zip);
+        indexNestedJars(zip);
+    }
+
+    private void indexClasses(ZipArchive zip) {
+        List<ZipArchive.Entry> entries = zip.getEntries();
+        for (int i = 0; i < entries.size(); i++) {
+            ZipArchive.Entry entry = entries.get(i);
+            this.cancellation.throwIfCancelled();
+            if (isClassEntry(entry.name))
+                indexLibraryClass(zip, i, entry);
+            this.progress.entriesRead(zip.getName(), i + 1, entries.size());
+        }
+    }
+
+    private void indexLibraryClass(ZipArchive zip, int entryIndex, ZipArchive.Entry entry) {
+        if (entry.name.startsWith("META-INF/"))
+            return;
+
+        String className = entry.name.substring(0, entry.name.length() - ".class".length());
+        if (this.libClasses.containsKey(className) || isInLibraryIndex(className))
+            return;
+
+        if (this.offHeapIndex == null) {
+            this.deferredClasses.putIfAbsent(className, new DeferredClass(zip, entry));
+        } else {
+            this.offHeapIndex.add(zip, entryIndex, className);
+        }
+    }
+
+    /**
+     * @return whether a library index read before contains the class, in which case it takes precedence over classes read later
+     */
+    private boolean isInLibraryIndex(String className) {
+        for (LibraryIndex index : this.libraryIndexes) {
+            if (index.contains(className))
+                return true;
+        }
+        return false;
+    }
+
+    private static void indexClass(ZipArchive zip, ZipArchive.Entry entry, Map<String, DeferredClass> index) {
+        if (entry.name.startsWith("META-INF/"))
+            return;
+
+        String className = entry.name.substring(0, entry.name.length() - ".class".length());
+        index.putIfAbsent(className, new DeferredClass(zip, entry));
+    }
+
+    private void indexNestedJars(ZipArchive zip) throws IOException {
+        List<ZipArchive> nested = new ArrayList<>();
+        openNestedJars(zip, nested);
+        for (ZipArchive archive : nested) {
+            indexClasses(archive);
+        }
+    }
+
+    /**
+     * Opens all JARs nested inside the archive, including JARs nested inside those, in the order in which their classes take precedence.
+     */
+    public static void openNestedJars(ZipArchive zip, List<ZipArchive> nested) throws IOException {
+        for (ZipArchive.Entry entry : zip.getEntries()) {
+            if (!entry.name.startsWith(NESTED_JAR_PREFIX) || !entry.name.endsWith(".jar"))
+                continue;
+
+            // Stored JARs are a view into the outer archive; deflated JARs are inflated into memory once
+            ByteBuffer data = entry.method == ZipArchive.Entry.STORED ? zip.getRawData(entry) : ByteBuffer.wrap(zip.readBytes(entry));
+            ZipArchive archive = ZipArchive.wrap(zip.getName() + "!/" + entry.name, data);
+            nested.add(archive);
+            openNestedJars(archive, nested);
+        }
+    }
+
+    /**
+     * @return whether the archive entry is read as a class
+     */
+    public static boolean isClassEntry(String name) {
+        return name.endsWith(".class") && !name.startsWith(".");
+    }
+
+    /**
+     * @return whether the entry is a {@code .dat} file which is read as a class, skipping hidden files like {@link ClassSource#ofFolder(Path)} does
+     */
+    private static boolean isDataEntry(String name) {
+        return name.endsWith(".dat") && !name.startsWith(".", name.lastIndexOf('/') + 1);
+    }
+
+    private static void readClass(ClassReader reader, Map<String, ClassInfo> classes, @Nullable AnnotationInterner interner) {
+        ClassInfo info = readClass(reader, interner);
+
+        if (!classes.containsKey(info.name))
+            classes.put(info.name, info);
+    }
+
+    private void parseLibraryClass(ClassReader reader) {
+        if (!isIndexedLibraryClass(reader.getClassName()))
+            parseClass(reader, this.libClasses);
+    }
+
+    /**
+     * Loose library classes are parsed right away while classes inside archives are only indexed,
+     * so a loose class must not replace an indexed class of a library which comes earlier on the classpath.
+     *
+     * @return whether a class was indexed from an archive or library index read before
+     */
+    private boolean isIndexedLibraryClass(String className) {
+        if (this.deferredClasses.containsKey(className))
+            return true;
+
+        if (this.offHeapIndex != null && this.offHeapIndex.contains(className))
+            return true;
+
+        return isInLibraryIndex(className);
+    }
+
+    private void parseClass(ClassReader reader, Map<String, ClassInfo> classes) {
+        this.cancellation.throwIfCancelled();
+        readClass(reader, classes, this.annotationInterner);
+        this.progress.classesParsed(++this.parsedClasses);
+    }
+
+    /**
+     * Main classes are compared in depth, so their members are decoded in the same pass as their header.
+     */
+    private ClassInfo parseMainClass(ZipArchive archive, ZipArchive.Entry entry) throws IOException {
+        this.cancellation.throwIfCancelled();
+        ClassInfo info = readClass(archive, entry, this.annotationInterner);
+        this.progress.classesParsed(++this.parsedClasses);
+        return info;
+    }
+
+    private ClassInfo parseLazyClass(ZipArchive archive, ZipArchive.Entry entry) throws IOException {
+        this.cancellation.throwIfCancelled();
+        ClassInfo info = readLazyClass(archive, entry, this.annotationInterner);
+        this.progress.classesParsed(++this.parsedClasses);
+        return info;
+    }
+
+    private ClassInfo parseDeferredMain(DeferredClass deferred) {
+        try {
+            return parseMainClass(deferred.archive, deferred.entry);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read class " + deferred.entry.name + " from " + deferred.archive.getName(), e);
+        }
+    }
+
+    private ClassInfo parseDeferred(DeferredClass deferred) {
+        try {
+            return parseLazyClass(deferred.archive, deferred.entry);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read class " + deferred.entry.name + " from " + deferred.archive.getName(), e);
         }
     }
 
+    public static ClassInfo readClass(byte[] data, int offset, int length) {
+        return readClass(new ClassReader(data, offset, length), null);
+    }
+
+    private static ClassInfo readClass(ClassReader reader, @Nullable AnnotationInterner interner) {
+        ClassNode classNode = new ClassNode();
+        reader.accept(classNode, 0);
+        return new ClassInfo(classNode, interner);
+    }
+
+    private static ClassInfo readClass(ZipArchive archive, ZipArchive.Entry entry, @Nullable AnnotationInterner interner) throws IOException {
+        ClassInfo[] info = new ClassInfo[1];
+        archive.read(entry, (data, offset, length) -> info[0] = readClass(new ClassReader(data, offset, length), interner));
+        return info[0];
+    }
+
+    /**
+     * Reads the header and annotations of an archive entry, which is used for library classes as most of them are only needed for their hierarchy.
+     * Its methods and fields are decoded from the archive again once they are first accessed, so no decoded class bytes are retained.
+     * Archives stay readable after being closed, so the class info may outlive the source which provided the archive.
+     */
+    private static ClassInfo readLazyClass(ZipArchive archive, ZipArchive.Entry entry, @Nullable AnnotationInterner interner) throws IOException {
+        ClassNode header = new ClassNode(Opcodes.ASM9) {
+            @Override
+            public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+                return null;
+            }
+
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                return null;
+            }
+        };
+        archive.read(entry, (data, offset, length) -> new ClassReader(data, offset, length).accept(header, ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES));
+
+        return new ClassInfo(header, () -> {
+            ClassNode node = new ClassNode();
+            try {
+                archive.read(entry, (data, offset, length) -> new ClassReader(data, offset, length).accept(node, 0));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read class " + entry.name + " from " + archive.getName(), e);
+            }
+            return node;
+        }, interner);
+    }
+
+    /**
+     * @return all main classes, parsing any main classes which were deferred
+     */
     public Map<String, ClassInfo> getMainClasses() {
+        if (!this.deferredMainClasses.isEmpty()) {
+            for (Map.Entry<String, DeferredClass> entry : this.deferredMainClasses.entrySet()) {
+                this.mainClasses.putIfAbsent(entry.getKey(), parseDeferredMain(entry.getValue()));
+                this.deferredHeaders.remove(entry.getKey());
+            }
+            this.deferredMainClasses.clear();
+        }
+
         return this.mainClasses;
     }
 
+    /**
+     * @return the names of all main classes, without parsing any main classes which were deferred
+     */
+    public Set<String> getMainClassNames() {
+        if (this.deferredMainClasses.isEmpty())
+            return Collections.unmodifiableSet(this.mainClasses.keySet());
+
+        Set<String> names = new HashSet<>(this.mainClasses.keySet());
+        names.addAll(this.deferredMainClasses.keySet());
+        return names;
+    }
+
     @Nullable
     public ClassInfo getMainClassInfo(String className) {
-        return this.mainClasses.get(className);
+        ClassInfo info = this.mainClasses.get(className);
+
+        if (info == null && !this.deferredMainClasses.isEmpty()) {
+            DeferredClass deferred = this.deferredMainClasses.remove(className);
+            if (deferred != null) {
+                info = parseDeferredMain(deferred);
+                this.mainClasses.put(className, info);
+                this.deferredHeaders.remove(className);
+            }
+        }
+
+        return info;
+    }
+
+    /**
+     * Prepares parsing a deferred main class on another thread. Must be called on the thread which uses this cache.
+     *
+     * @return a task which fully parses the class, including its members, and may run on any thread,
+     * or {@code null} if the class is not a deferred main class
+     * @see #acceptParsed(String, ClassInfo)
+     */
+    @Nullable
+    Callable<ClassInfo> prepareParse(String className) {
+        DeferredClass deferred = this.deferredMainClasses.get(className);
+        if (deferred == null)
+            return null;
+
+        AnnotationInterner interner = this.annotationInterner;
+        CancellationToken cancellation = this.cancellation;
+        return () -> {
+            cancellation.throwIfCancelled();
+            return readClass(deferred.archive, deferred.entry, interner);
+        };
+    }
+
+    /**
+     * Adds a main class parsed by a task from {@link #prepareParse(String)}, unless the class was parsed on this thread in the meantime.
+     *
+     * @return the class info which this cache holds for the class
+     */
+    ClassInfo acceptParsed(String className, ClassInfo info) {
+        if (this.deferredMainClasses.remove(className) == null) {
+            ClassInfo existing = this.mainClasses.get(className);
+            if (existing != null)
+                return existing;
+        }
+
+        this.mainClasses.put(className, info);
+        this.deferredHeaders.remove(className);
+        this.progress.classesParsed(++this.parsedClasses);
+        return info;
+    }
+
+    /**
+     * Adds or replaces a main class, for example after its class file changed.
+     */
+    public void putMainClass(ClassInfo info) {
+        this.deferredMainClasses.remove(info.name);
+        this.deferredHeaders.remove(info.name);
+        this.mainClasses.put(info.name, info);
+    }
+
+    public void removeMainClass(String className) {
+        this.deferredMainClasses.remove(className);
+        this.deferredHeaders.remove(className);
+        this.mainClasses.remove(className);
+    }
+
+    /**
+     * Adds or replaces a library class, which takes precedence over the classes of all library sources.
+     */
+    public void putLibraryClass(ClassInfo info) {
+        this.failedClasses.remove(info.name);
+        this.libClasses.put(info.name, info);
+    }
+
+    /**
+     * Removes a library class added by {@link #putLibraryClass(ClassInfo)}.
+     */
+    public void removeLibraryClass(String className) {
+        this.libClasses.remove(className);
     }
 
     @NotNull
     public ClassInfo getClassInfo(String className) {
-        ClassInfo info = this.mainClasses.containsKey(className) ? this.mainClasses.get(className) : this.libClasses.get(className);
+        ClassInfo info = findClassInfo(className);
+        if (info == null)
+            throw new IllegalArgumentException("Class " + className + " was not found in class info cache or JVM classpath");
+
+        return info;
+    }
+
+    /**
+     * Looks up a class like {@link #getClassInfo(String)}, but returns {@code null} instead of throwing if the class cannot be found.
+     */
+    @Nullable
+    public ClassInfo findClassInfo(String className) {
+        ClassInfo info = getMainClassInfo(className);
+        if (info == null)
+            info = this.libClasses.get(className);
+
+        if (info == null && !this.deferredClasses.isEmpty()) {
+            DeferredClass deferred = this.deferredClasses.remove(className);
+            if (deferred != null) {
+                info = parseDeferred(deferred);
+                this.libClasses.put(className, info);
+                this.deferredHeaders.remove(className);
+            }
+        }
+
+        if (info == null && this.offHeapIndex != null && !this.offHeapIndex.isEmpty()) {
+            int record = this.offHeapIndex.find(className);
+            if (record != -1) {
+                info = parseDeferred(new DeferredClass(this.offHeapIndex.getArchive(record), this.offHeapIndex.getEntry(record)));
+                this.libClasses.put(className, info);
+                this.offHeapIndex.remove(record);
+            }
+        }
+
+        if (info == null && !this.libraryIndexes.isEmpty()) {
+            for (LibraryIndex index : this.libraryIndexes) {
+                this.cancellation.throwIfCancelled();
+                info = index.readClass(className, this.annotationInterner);
+                if (info != null) {
+                    this.libClasses.put(className, info);
+                    break;
+                }
+            }
+        }
 
         if (info == null && !failedClasses.contains(className)) {
             try {
@@ -187,9 +754,118 @@ public class ClassInfoCache {
             }
         }
 
-        if (info == null)
+        return info;
+    }
+
+    /**
+     * Looks up the header of a class, which is all that is needed to walk the class hierarchy.
+     * Deferred classes are not parsed; only their header is read until their members are requested through {@link #getClassInfo(String)}.
+     */
+    @NotNull
+    public ClassHeader getClassHeader(String className) {
+        ClassHeader header = findClassHeader(className);
+        if (header == null)
             throw new IllegalArgumentException("Class " + className + " was not found in class info cache or JVM classpath");
 
-        return info;
+        return header;
+    }
+
+    @Nullable
+    public ClassHeader findClassHeader(String className) {
+        ClassHeader header = this.mainClasses.get(className);
+        if (header == null)
+            header = this.libClasses.get(className);
+        if (header == null)
+            header = this.deferredHeaders.get(className);
+
+        if (header == null) {
+            DeferredClass deferred = this.deferredMainClasses.get(className);
+            if (deferred == null)
+                deferred = this.deferredClasses.get(className);
+            if (deferred != null) {
+                header = deferred.readHeader();
+                this.deferredHeaders.put(className, header);
+            }
+        }
+
+        if (header == null && this.offHeapIndex != null) {
+            int record = this.offHeapIndex.find(className);
+            if (record != -1) {
+                header = this.offHeapIndex.getHeader(record);
+                if (header == null) {
+                    header = new DeferredClass(this.offHeapIndex.getArchive(record), this.offHeapIndex.getEntry(record)).readHeader();
+                    this.offHeapIndex.putHeader(record, header);
+                }
+            }
+        }
+
+        return header == null ? findClassInfo(className) : header;
+    }
+
+    /**
+     * The contents of a library source read on a background thread, ready to be indexed.
+     * Archives stay readable after the source closed them, so only the archives themselves are kept.
+     */
+    private static final class ReadLibrary {
+        private final List<byte[]> classes = new ArrayList<>();
+        private final List<ZipArchive> archives = new ArrayList<>();
+        private final List<IndexedArchive> indexes = new ArrayList<>();
+
+        static ReadLibrary read(ClassSource source) throws IOException {
+            ReadLibrary library = new ReadLibrary();
+            source.accept(new ClassSource.Visitor() {
+                @Override
+                public void visitClass(byte[] data, int offset, int length) {
+                    // The array is only valid during the call
+                    library.classes.add(Arrays.copyOfRange(data, offset, offset + length));
+                }
+
+                @Override
+                public void visitArchive(ZipArchive archive) throws IOException {
+                    library.archives.add(archive);
+                    openNestedJars(archive, library.archives);
+                }
+
+                @Override
+                public void visitIndexedArchive(ZipArchive archive, LibraryIndex index) {
+                    // The archive is closed once the source was read, so only its name and size are kept
+                    library.indexes.add(new IndexedArchive(archive.getName(), archive.getEntries().size(), index));
+                }
+            });
+            return library;
+        }
+    }
+
+    private static final class IndexedArchive {
+        private final String name;
+        private final int entries;
+        private final LibraryIndex index;
+
+        IndexedArchive(String name, int entries, LibraryIndex index) {
+            this.name = name;
+            this.entries = entries;
+            this.index = index;
+        }
+    }
+
+    private static final class DeferredClass {
+        private final ZipArchive archive;
+        private final ZipArchive.Entry entry;
+
+        DeferredClass(ZipArchive archive, ZipArchive.Entry entry) {
+            this.archive = archive;
+            this.entry = entry;
+        }
+
+        ClassHeader readHeader() {
+            ClassHeader[] header = new ClassHeader[1];
+            try {
+                this.archive.read(this.entry, (data, offset, length) -> header[0] = new ClassHeader(new ClassReader(data, offset, length)));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read class " + this.entry.name + " from " + this.archive.getName(), e);
+            }
+
+            return header[0];
+        }
     }
 }
@@ -9,6 +9,8 @@ import com.google.common.collect.Sets;
 import com.google.common.graph.GraphBuilder;
 import com.google.common.graph.MutableGraph;
 import net.minecraftforge.jarcompatibilitychecker.data.AnnotationInfo;
+import net.minecraftforge.jarcompatibilitychecker.data.AnnotationList;
+import net.minecraftforge.jarcompatibilitychecker.data.ClassHeader;
 import net.minecraftforge.jarcompatibilitychecker.data.ClassInfo;
 import net.minecraftforge.jarcompatibilitychecker.data.FieldInfo;
 import net.minecraftforge.jarcompatibilitychecker.data.MemberInfo;
@@ -17,12 +19,12 @@ import net.minecraftforge.jarcompatibilitychecker.sort.TopologicalSort;
 import org.jetbrains.annotations.Nullable;
 import org.objectweb.asm.Opcodes;
 
+import java.util.AbstractList;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Locale;
 import java.util.Queue;
 import java.util.Set;
 
@@ -41,16 +43,53 @@ public class ClassInfoComparer {
     public static ClassInfoComparisonResults compare(boolean checkBinary, @Nullable AnnotationCheckMode annotationCheckMode,
             List<String> internalAnnotations, InternalAnnotationCheckMode internalAnnotationCheckMode, ClassInfoCache baseCache, ClassInfo baseClassInfo,
             ClassInfoCache concreteCache, @Nullable ClassInfo concreteClassInfo) {
-        ClassInfoComparisonResults results = new ClassInfoComparisonResults(baseClassInfo);
-        boolean classInternal = isInternalApi(baseClassInfo, internalAnnotations, internalAnnotationCheckMode);
+        return compare(checkBinary, annotationCheckMode, new InternalApiMatcher(internalAnnotations, false), internalAnnotationCheckMode, baseCache, baseClassInfo,
+                concreteCache, concreteClassInfo, null);
+    }
+
+    /**
+     * @param internalApi determines which elements are internal API; reusing one matcher across classes allows its results to be memoized
+     * @param references if not {@code null}, only the parts of the base class which consumers reference are checked
+     */
+    public static ClassInfoComparisonResults compare(boolean checkBinary, @Nullable AnnotationCheckMode annotationCheckMode,
+            InternalApiMatcher internalApi, InternalAnnotationCheckMode internalAnnotationCheckMode, ClassInfoCache baseCache, ClassInfo baseClassInfo,
+            ClassInfoCache concreteCache, @Nullable ClassInfo concreteClassInfo, @Nullable ReferenceIndex.Scope references) {
+        return compare(checkBinary, annotationCheckMode, internalApi, internalAnnotationCheckMode, baseCache, baseClassInfo, concreteCache, concreteClassInfo,
+                references, null);
+    }
+
+    /**
+     * @param baseline if not {@code null}, the known incompatibilities which are left out of the results
+     */
+    public static ClassInfoComparisonResults compare(boolean checkBinary, @Nullable AnnotationCheckMode annotationCheckMode,
+            InternalApiMatcher internalApi, InternalAnnotationCheckMode internalAnnotationCheckMode, ClassInfoCache baseCache, ClassInfo baseClassInfo,
+            ClassInfoCache concreteCache, @Nullable ClassInfo concreteClassInfo, @Nullable ReferenceIndex.Scope references, @Nullable Baseline baseline) {
+        return compare(checkBinary, annotationCheckMode, internalApi, internalAnnotationCheckMode, baseCache, baseClassInfo, concreteCache, concreteClassInfo,
+                references, baseline, CompareEngine.DEFAULT);
+    }
+
+    /**
+     * @param engine how the members of the base class are matched to the members of the input class
+     */
+    public static ClassInfoComparisonResults compare(boolean checkBinary, @Nullable AnnotationCheckMode annotationCheckMode,
+            InternalApiMatcher internalApi, InternalAnnotationCheckMode internalAnnotationCheckMode, ClassInfoCache baseCache, ClassInfo baseClassInfo,
+            ClassInfoCache concreteCache, @Nullable ClassInfo concreteClassInfo, @Nullable ReferenceIndex.Scope references, @Nullable Baseline baseline,
+            CompareEngine engine) {
+        ClassInfoComparisonResults results = new ClassInfoComparisonResults(baseClassInfo, baseline);
+        boolean classInternal = internalAnnotationCheckMode != InternalAnnotationCheckMode.ERROR && internalApi.isInternal(baseCache, baseClassInfo);
+        boolean membersInternal = classInternal && internalApi.isInherited();
 
         if (classInternal && internalAnnotationCheckMode == InternalAnnotationCheckMode.SKIP)
             return results;
 
         boolean isClassError = !classInternal || internalAnnotationCheckMode == InternalAnnotationCheckMode.ERROR;
         boolean classVisible = isVisible(checkBinary, baseClassInfo.access);
+        boolean classReferenced = references == null || references.includesClass(baseClassInfo.name);
 
         if (concreteClassInfo == null) {
+            if (!classReferenced)
+                return results;
+
             if (checkBinary) {
                 results.addClassIncompatibility(baseClassInfo, IncompatibilityMessages.CLASS_MISSING, isClassError);
             } else if (classVisible) {
@@ -61,134 +100,259 @@ public class ClassInfoComparer {
             return results;
         }
 
-        if (isVisibilityLowered(checkBinary, baseClassInfo.access, concreteClassInfo.access)) {
-            results.addClassIncompatibility(baseClassInfo, IncompatibilityMessages.CLASS_LOWERED_VISIBILITY, isClassError);
-        }
-
         boolean classFinal = (baseClassInfo.access & Opcodes.ACC_FINAL) != 0;
-        if (isMadeAbstract(classVisible, baseClassInfo.access, concreteClassInfo.access)) {
-            results.addClassIncompatibility(baseClassInfo, IncompatibilityMessages.CLASS_MADE_ABSTRACT, isClassError);
-        }
+        if (classReferenced)
+            compareClassHeader(checkBinary, annotationCheckMode, results, isClassError, classVisible, baseCache, baseClassInfo, concreteCache, concreteClassInfo);
 
-        if (isMadeFinal(checkBinary, baseClassInfo.access, concreteClassInfo.access)) {
-            results.addClassIncompatibility(baseClassInfo, IncompatibilityMessages.CLASS_MADE_FINAL, isClassError);
-        }
+        List<ClassInfo> concreteParents = getParentClassInfos(checkBinary, concreteCache, concreteClassInfo, true);
+        // New abstract methods only break consumers which extend the class
+        boolean checkNewAbstract = classVisible && (references == null || references.isExtended(baseClassInfo.name));
+
+        if (engine == CompareEngine.MERGE_JOIN) {
+            MethodInfo[] baseMethods = sortMethods(baseClassInfo);
+            MethodInfo[] concreteMethods = sortMethods(concreteClassInfo);
+            List<MethodInfo> newAbstractMethods = new ArrayList<>();
+            int concreteIndex = 0;
+            for (MethodInfo baseInfo : baseMethods) {
+                // Concrete methods ordered before the base method are not declared by the base class
+                while (concreteIndex < concreteMethods.length && compareMethods(concreteMethods[concreteIndex], baseInfo) < 0) {
+                    addIfAbstract(newAbstractMethods, concreteMethods[concreteIndex++]);
+                }
+                MethodInfo localInfo = null;
+                if (concreteIndex < concreteMethods.length && compareMethods(concreteMethods[concreteIndex], baseInfo) == 0)
+                    localInfo = concreteMethods[concreteIndex++];
 
-        checkAnnotations(annotationCheckMode, results, baseClassInfo, isClassError, baseClassInfo.annotations, concreteClassInfo.annotations);
+                if (references != null && !references.includesMethod(baseClassInfo.name, baseInfo.name, baseInfo.desc)) {
+                    addIfAbstract(newAbstractMethods, localInfo);
+                    continue;
+                }
 
-        if (baseClassInfo.superName != null) {
-            ClassInfo superClassInfo = baseCache.getClassInfo(baseClassInfo.superName);
-            // A missing superclass is always important to binary compatibility but only important to API compatibility if the superclass is public or protected
-            boolean shouldCheckSuper = isVisible(checkBinary, superClassInfo.access);
-            if (shouldCheckSuper && !hasSuperClass(concreteCache, concreteClassInfo, baseClassInfo.superName)) {
-                results.addClassIncompatibility(baseClassInfo, String.format(Locale.ROOT, IncompatibilityMessages.CLASS_MISSING_SUPERCLASS, baseClassInfo.superName), isClassError);
+                boolean isStatic = (baseInfo.access & Opcodes.ACC_STATIC) != 0;
+                MethodInfo inputInfo = localInfo != null && isStaticMatch(localInfo.access, isStatic) ? localInfo
+                        : getParentMethodInfo(concreteParents, isStatic, baseInfo.name, baseInfo.desc);
+                boolean compared = compareMethod(checkBinary, annotationCheckMode, internalApi, internalAnnotationCheckMode, results, membersInternal, classVisible,
+                        classFinal, baseInfo, inputInfo);
+                // A local method which the base method was not compared to, such as one of the wrong staticness, is new to the input class
+                if (!compared || inputInfo != localInfo)
+                    addIfAbstract(newAbstractMethods, localInfo);
+            }
+            while (concreteIndex < concreteMethods.length) {
+                addIfAbstract(newAbstractMethods, concreteMethods[concreteIndex++]);
             }
-        }
 
-        Set<String> baseInterfaces = new HashSet<>(getParentClassNames(checkBinary, baseCache, baseClassInfo, false));
-        Set<String> concreteInterfaces = new HashSet<>(getParentClassNames(checkBinary, concreteCache, concreteClassInfo, false));
+            if (checkNewAbstract) {
+                for (MethodInfo concreteInfo : newAbstractMethods) {
+                    results.addMethodIncompatibility(concreteInfo, IncompatibilityMessages.METHOD_MADE_ABSTRACT);
+                }
+            }
 
-        Set<String> missingInterfaces = Sets.difference(baseInterfaces, concreteInterfaces);
-        if (!missingInterfaces.isEmpty() && !checkBinary) {
-            missingInterfaces = new HashSet<>(missingInterfaces);
-            missingInterfaces.removeIf(interfaceName -> {
-                ClassInfo interfaceInfo = baseCache.getClassInfo(interfaceName);
-                // A missing interface is only important to API compatibility if the interface is public or protected, so we get rid of any that aren't
-                return (interfaceInfo.access & (Opcodes.ACC_PUBLIC | Opcodes.ACC_PROTECTED)) == 0;
-            });
-        }
-        if (!missingInterfaces.isEmpty()) {
-            if (missingInterfaces.size() == 1) {
-                results.addClassIncompatibility(baseClassInfo, String.format(Locale.ROOT, IncompatibilityMessages.CLASS_MISSING_INTERFACE, missingInterfaces.iterator().next()), isClassError);
-            } else {
-                results.addClassIncompatibility(baseClassInfo, String.format(Locale.ROOT, IncompatibilityMessages.CLASS_MISSING_INTERFACES, missingInterfaces), isClassError);
+            FieldInfo[] baseFields = sortFields(baseClassInfo);
+            FieldInfo[] concreteFields = sortFields(concreteClassInfo);
+            concreteIndex = 0;
+            for (FieldInfo baseInfo : baseFields) {
+                while (concreteIndex < concreteFields.length && concreteFields[concreteIndex].name.compareTo(baseInfo.name) < 0) {
+                    concreteIndex++;
+                }
+                FieldInfo localInfo = null;
+                if (concreteIndex < concreteFields.length && concreteFields[concreteIndex].name.equals(baseInfo.name))
+                    localInfo = concreteFields[concreteIndex++];
+
+                if (references != null && !references.includesField(baseClassInfo.name, baseInfo.name))
+                    continue;
+
+                boolean isStatic = (baseInfo.access & Opcodes.ACC_STATIC) != 0;
+                FieldInfo inputInfo = localInfo != null && isStaticMatch(localInfo.access, isStatic) ? localInfo
+                        : getParentFieldInfo(concreteParents, isStatic, baseInfo.name);
+                compareField(checkBinary, annotationCheckMode, internalApi, internalAnnotationCheckMode, results, membersInternal, classFinal, baseInfo, inputInfo);
             }
-        }
 
-        List<ClassInfo> concreteParents = getParentClassInfos(checkBinary, concreteCache, concreteClassInfo, true);
+            return results;
+        }
 
         Set<MethodInfo> seenMethods = new HashSet<>();
 
         for (MethodInfo baseInfo : baseClassInfo.getMethods().values()) {
+            if (references != null && !references.includesMethod(baseClassInfo.name, baseInfo.name, baseInfo.desc))
+                continue;
+
             boolean isStatic = (baseInfo.access & Opcodes.ACC_STATIC) != 0;
             MethodInfo inputInfo = getMethodInfo(concreteClassInfo, concreteParents, isStatic, baseInfo.name, baseInfo.desc);
-            boolean methodInternal = isInternalApi(baseInfo, internalAnnotations, internalAnnotationCheckMode);
-            if (methodInternal && internalAnnotationCheckMode == InternalAnnotationCheckMode.SKIP)
-                continue;
+            if (compareMethod(checkBinary, annotationCheckMode, internalApi, internalAnnotationCheckMode, results, membersInternal, classVisible, classFinal,
+                    baseInfo, inputInfo))
+                seenMethods.add(inputInfo);
+        }
 
-            boolean isMethodError = !methodInternal || internalAnnotationCheckMode == InternalAnnotationCheckMode.ERROR;
-            boolean methodVisible = isVisible(checkBinary, baseInfo.access);
+        for (MethodInfo concreteInfo : concreteClassInfo.getMethods().values()) {
+            if (seenMethods.contains(concreteInfo) || !checkNewAbstract)
+                continue;
 
-            if (inputInfo == null) {
-                if (checkBinary) {
-                    results.addMethodIncompatibility(baseInfo, IncompatibilityMessages.METHOD_REMOVED, isMethodError);
-                } else if (methodVisible) {
-                    results.addMethodIncompatibility(baseInfo, IncompatibilityMessages.API_METHOD_REMOVED, isMethodError);
-                }
+            if ((concreteInfo.access & Opcodes.ACC_ABSTRACT) != 0) {
+                results.addMethodIncompatibility(concreteInfo, IncompatibilityMessages.METHOD_MADE_ABSTRACT);
+            }
+        }
 
-                // This is as far as we can get without any info on the concrete method
+        for (FieldInfo baseInfo : baseClassInfo.getFields().values()) {
+            if (references != null && !references.includesField(baseClassInfo.name, baseInfo.name))
                 continue;
-            }
 
-            seenMethods.add(inputInfo);
+            boolean isStatic = (baseInfo.access & Opcodes.ACC_STATIC) != 0;
+            FieldInfo inputInfo = getFieldInfo(concreteClassInfo, concreteParents, isStatic, baseInfo.name);
+            compareField(checkBinary, annotationCheckMode, internalApi, internalAnnotationCheckMode, results, membersInternal, classFinal, baseInfo, inputInfo);
+        }
 
-            if (isVisibilityLowered(checkBinary, baseInfo.access, inputInfo.access)) {
-                results.addMethodIncompatibility(baseInfo, IncompatibilityMessages.METHOD_LOWERED_VISIBILITY, isMethodError);
-            }
+        return results;
+    }
 
-            if (isMadeAbstract(classVisible, baseInfo.access, inputInfo.access)) {
-                results.addMethodIncompatibility(baseInfo, IncompatibilityMessages.METHOD_MADE_ABSTRACT, isMethodError);
-            }
+    /**
+     * Compares a base method to the input method it was matched to.
+     *
+     * @param inputInfo the matching method of the input class or its parents, or {@code null} if there is none
+     * @return whether the methods were compared, which is not the case if the input method is missing or the base method is skipped as internal API
+     */
+    private static boolean compareMethod(boolean checkBinary, @Nullable AnnotationCheckMode annotationCheckMode, InternalApiMatcher internalApi,
+            InternalAnnotationCheckMode internalAnnotationCheckMode, ClassInfoComparisonResults results, boolean membersInternal, boolean classVisible,
+            boolean classFinal, MethodInfo baseInfo, @Nullable MethodInfo inputInfo) {
+        boolean methodInternal = membersInternal || isInternalApi(baseInfo, internalApi, internalAnnotationCheckMode);
+        if (methodInternal && internalAnnotationCheckMode == InternalAnnotationCheckMode.SKIP)
+            return false;
 
-            if (!classFinal && isMadeFinal(checkBinary, baseInfo.access, inputInfo.access)) {
-                results.addMethodIncompatibility(baseInfo, IncompatibilityMessages.METHOD_MADE_FINAL, isMethodError);
+        boolean isMethodError = !methodInternal || internalAnnotationCheckMode == InternalAnnotationCheckMode.ERROR;
+        boolean methodVisible = isVisible(checkBinary, baseInfo.access);
+
+        if (inputInfo == null) {
+            if (checkBinary) {
+                results.addMethodIncompatibility(baseInfo, IncompatibilityMessages.METHOD_REMOVED, isMethodError);
+            } else if (methodVisible) {
+                results.addMethodIncompatibility(baseInfo, IncompatibilityMessages.API_METHOD_REMOVED, isMethodError);
             }
 
-            checkAnnotations(annotationCheckMode, results, baseInfo, isMethodError, baseInfo.annotations, inputInfo.annotations);
+            // This is as far as we can get without any info on the concrete method
+            return false;
         }
 
-        for (MethodInfo concreteInfo : concreteClassInfo.getMethods().values()) {
-            if (seenMethods.contains(concreteInfo))
-                continue;
+        if (isVisibilityLowered(checkBinary, baseInfo.access, inputInfo.access)) {
+            results.addMethodIncompatibility(baseInfo, IncompatibilityMessages.METHOD_LOWERED_VISIBILITY, isMethodError);
+        }
 
-            if (classVisible && (concreteInfo.access & Opcodes.ACC_ABSTRACT) != 0) {
-                results.addMethodIncompatibility(concreteInfo, IncompatibilityMessages.METHOD_MADE_ABSTRACT);
-            }
+        if (isMadeAbstract(classVisible, baseInfo.access, inputInfo.access)) {
+            results.addMethodIncompatibility(baseInfo, IncompatibilityMessages.METHOD_MADE_ABSTRACT, isMethodError);
         }
 
-        for (FieldInfo baseInfo : baseClassInfo.getFields().values()) {
-            boolean isStatic = (baseInfo.access & Opcodes.ACC_STATIC) != 0;
-            FieldInfo inputInfo = getFieldInfo(concreteClassInfo, concreteParents, isStatic, baseInfo.name);
-            boolean fieldInternal = isInternalApi(baseInfo, internalAnnotations, internalAnnotationCheckMode);
-            if (fieldInternal && internalAnnotationCheckMode == InternalAnnotationCheckMode.SKIP)
-                continue;
+        if (!classFinal && isMadeFinal(checkBinary, baseInfo.access, inputInfo.access)) {
+            results.addMethodIncompatibility(baseInfo, IncompatibilityMessages.METHOD_MADE_FINAL, isMethodError);
+        }
 
-            boolean isFieldError = !fieldInternal || internalAnnotationCheckMode == InternalAnnotationCheckMode.ERROR;
-            boolean fieldVisible = isVisible(checkBinary, baseInfo.access);
+        checkAnnotations(annotationCheckMode, results, baseInfo, isMethodError, baseInfo.annotations, inputInfo.annotations);
+        return true;
+    }
 
-            if (inputInfo == null) {
-                if (checkBinary) {
-                    results.addFieldIncompatibility(baseInfo, IncompatibilityMessages.FIELD_REMOVED, isFieldError);
-                } else if (fieldVisible) {
-                    results.addFieldIncompatibility(baseInfo, IncompatibilityMessages.API_FIELD_REMOVED, isFieldError);
-                }
+    /**
+     * Compares a base field to the input field it was matched to.
+     *
+     * @param inputInfo the matching field of the input class or its parents, or {@code null} if there is none
+     */
+    private static void compareField(boolean checkBinary, @Nullable AnnotationCheckMode annotationCheckMode, InternalApiMatcher internalApi,
+            InternalAnnotationCheckMode internalAnnotationCheckMode, ClassInfoComparisonResults results, boolean membersInternal, boolean classFinal,
+            FieldInfo baseInfo, @Nullable FieldInfo inputInfo) {
+        boolean fieldInternal = membersInternal || isInternalApi(baseInfo, internalApi, internalAnnotationCheckMode);
+        if (fieldInternal && internalAnnotationCheckMode == InternalAnnotationCheckMode.SKIP)
+            return;
 
-                // This is as far as we can get without any info on the concrete field
-                continue;
-            }
+        boolean isFieldError = !fieldInternal || internalAnnotationCheckMode == InternalAnnotationCheckMode.ERROR;
+        boolean fieldVisible = isVisible(checkBinary, baseInfo.access);
 
-            if (isVisibilityLowered(checkBinary, baseInfo.access, inputInfo.access)) {
-                results.addFieldIncompatibility(baseInfo, IncompatibilityMessages.FIELD_LOWERED_VISIBILITY, isFieldError);
+        if (inputInfo == null) {
+            if (checkBinary) {
+                results.addFieldIncompatibility(baseInfo, IncompatibilityMessages.FIELD_REMOVED, isFieldError);
+            } else if (fieldVisible) {
+                results.addFieldIncompatibility(baseInfo, IncompatibilityMessages.API_FIELD_REMOVED, isFieldError);
             }
 
-            if (!classFinal && isMadeFinal(checkBinary, baseInfo.access, inputInfo.access)) {
-                results.addFieldIncompatibility(baseInfo, IncompatibilityMessages.FIELD_MADE_FINAL, isFieldError);
-            }
+            // This is as far as we can get without any info on the concrete field
+            return;
+        }
 
-            checkAnnotations(annotationCheckMode, results, baseInfo, isFieldError, baseInfo.annotations, inputInfo.annotations);
+        if (isVisibilityLowered(checkBinary, baseInfo.access, inputInfo.access)) {
+            results.addFieldIncompatibility(baseInfo, IncompatibilityMessages.FIELD_LOWERED_VISIBILITY, isFieldError);
         }
 
-        return results;
+        if (!classFinal && isMadeFinal(checkBinary, baseInfo.access, inputInfo.access)) {
+            results.addFieldIncompatibility(baseInfo, IncompatibilityMessages.FIELD_MADE_FINAL, isFieldError);
+        }
+
+        checkAnnotations(annotationCheckMode, results, baseInfo, isFieldError, baseInfo.annotations, inputInfo.annotations);
+    }
+
+    private static MethodInfo[] sortMethods(ClassInfo classInfo) {
+        MethodInfo[] methods = classInfo.getMethods().values().toArray(new MethodInfo[0]);
+        Arrays.sort(methods, ClassInfoComparer::compareMethods);
+        return methods;
+    }
+
+    private static int compareMethods(MethodInfo a, MethodInfo b) {
+        int cmp = a.name.compareTo(b.name);
+        return cmp != 0 ? cmp : a.desc.compareTo(b.desc);
+    }
+
+    private static FieldInfo[] sortFields(ClassInfo classInfo) {
+        FieldInfo[] fields = classInfo.getFields().values().toArray(new FieldInfo[0]);
+        Arrays.sort(fields, (a, b) -> a.name.compareTo(b.name));
+        return fields;
+    }
+
+    private static void addIfAbstract(List<MethodInfo> methods, @Nullable MethodInfo methodInfo) {
+        if (methodInfo != null && (methodInfo.access & Opcodes.ACC_ABSTRACT) != 0)
+            methods.add(methodInfo);
+    }
+
+    private static boolean isStaticMatch(int access, boolean isStatic) {
+        return (access & Opcodes.ACC_STATIC) == (isStatic ? Opcodes.ACC_STATIC : 0);
+    }
+
+    private static void compareClassHeader(boolean checkBinary, @Nullable AnnotationCheckMode annotationCheckMode, ClassInfoComparisonResults results, boolean isClassError,
+            boolean classVisible, ClassInfoCache baseCache, ClassInfo baseClassInfo, ClassInfoCache concreteCache, ClassInfo concreteClassInfo) {
+        if (isVisibilityLowered(checkBinary, baseClassInfo.access, concreteClassInfo.access)) {
+            results.addClassIncompatibility(baseClassInfo, IncompatibilityMessages.CLASS_LOWERED_VISIBILITY, isClassError);
+        }
+
+        if (isMadeAbstract(classVisible, baseClassInfo.access, concreteClassInfo.access)) {
+            results.addClassIncompatibility(baseClassInfo, IncompatibilityMessages.CLASS_MADE_ABSTRACT, isClassError);
+        }
+
+        if (isMadeFinal(checkBinary, baseClassInfo.access, concreteClassInfo.access)) {
+            results.addClassIncompatibility(baseClassInfo, IncompatibilityMessages.CLASS_MADE_FINAL, isClassError);
+        }
+
+        checkAnnotations(annotationCheckMode, results, baseClassInfo, isClassError, baseClassInfo.annotations, concreteClassInfo.annotations);
+
+        if (baseClassInfo.superName != null) {
+            ClassHeader superClassInfo = baseCache.getClassHeader(baseClassInfo.superName);
+            // A missing superclass is always important to binary compatibility but only important to API compatibility if the superclass is public or protected
+            boolean shouldCheckSuper = isVisible(checkBinary, superClassInfo.access);
+            if (shouldCheckSuper && !hasSuperClass(concreteCache, concreteClassInfo, baseClassInfo.superName)) {
+                results.addClassIncompatibility(baseClassInfo, IncompatibilityMessages.CLASS_MISSING_SUPERCLASS, baseClassInfo.superName, isClassError);
+            }
+        }
+
+        Set<String> baseInterfaces = new HashSet<>(getParentClassNames(checkBinary, baseCache, baseClassInfo, false));
+        Set<String> concreteInterfaces = new HashSet<>(getParentClassNames(checkBinary, concreteCache, concreteClassInfo, false));
+
+        Set<String> missingInterfaces = Sets.difference(baseInterfaces, concreteInterfaces);
+        if (!missingInterfaces.isEmpty() && !checkBinary) {
+            missingInterfaces = new HashSet<>(missingInterfaces);
+            missingInterfaces.removeIf(interfaceName -> {
+                ClassHeader interfaceInfo = baseCache.getClassHeader(interfaceName);
+                // A missing interface is only important to API compatibility if the interface is public or protected, so we get rid of any that aren't
+                return (interfaceInfo.access & (Opcodes.ACC_PUBLIC | Opcodes.ACC_PROTECTED)) == 0;
+            });
+        }
+        if (!missingInterfaces.isEmpty()) {
+            if (missingInterfaces.size() == 1) {
+                results.addClassIncompatibility(baseClassInfo, IncompatibilityMessages.CLASS_MISSING_INTERFACE, missingInterfaces.iterator().next(), isClassError);
+            } else {
+                results.addClassIncompatibility(baseClassInfo, IncompatibilityMessages.CLASS_MISSING_INTERFACES, missingInterfaces, isClassError);
+            }
+        }
     }
 
     public static boolean isVisibilityLowered(boolean checkBinary, int baseAccess, int inputAccess) {
@@ -228,6 +392,11 @@ public class ClassInfoComparer {
         return false;
     }
 
+    public static boolean isInternalApi(MemberInfo memberInfo, InternalApiMatcher internalApi, InternalAnnotationCheckMode checkMode) {
+        // Even if internal, we want to handle internal members like normal for ERROR check mode
+        return checkMode != InternalAnnotationCheckMode.ERROR && internalApi.isInternal(memberInfo);
+    }
+
     public static <I extends MemberInfo> void checkAnnotations(@Nullable AnnotationCheckMode mode, ClassInfoComparisonResults results, I memberInfo,
             List<AnnotationInfo> baseAnnotations, List<AnnotationInfo> concreteAnnotations) {
         checkAnnotations(mode, results, memberInfo, true, baseAnnotations, concreteAnnotations);
@@ -238,49 +407,25 @@ public class ClassInfoComparer {
         if (mode == null || (baseAnnotations.isEmpty() && concreteAnnotations.isEmpty()))
             return;
 
-        // boolean requiresExact = mode.requiresExact();
-        // List<AnnotationInfo> concreteCopy = new ArrayList<>(concreteAnnotations);
-        //
-        // for (AnnotationInfo baseAnnotation : baseAnnotations) {
-        //     AnnotationInfo descMatch = null;
-        //     boolean foundMatch = false;
-        //     for (Iterator<AnnotationInfo> iterator = concreteCopy.iterator(); iterator.hasNext(); ) {
-        //         AnnotationInfo concreteAnnotation = iterator.next();
-        //         if (baseAnnotation.equals(concreteAnnotation)) {
-        //             iterator.remove();
-        //             descMatch = concreteAnnotation;
-        //             foundMatch = true;
-        //         } else if (baseAnnotation.desc.equals(concreteAnnotation.desc)) {
-        //             if (!requiresExact) {
-        //                 iterator.remove();
-        //                 foundMatch = true;
-        //             }
-        //             descMatch = concreteAnnotation;
-        //         }
-        //     }
-        //
-        //     if (!foundMatch) {
-        //         results.addAnnotationIncompatibility(mode, memberInfo, baseAnnotation, descMatch != null
-        //                 ? String.format(Locale.ROOT, IncompatibilityMessages.ANNOTATION_CHANGED, descMatch)
-        //                 : IncompatibilityMessages.ANNOTATION_REMOVED);
-        //     }
-        // }
-
-        if (mode.checkAddition()) {
-            List<AnnotationInfo> baseCopy = new ArrayList<>(baseAnnotations);
-
-            for (AnnotationInfo concreteAnnotation : concreteAnnotations) {
-                AnnotationInfo match = null;
-                for (Iterator<AnnotationInfo> iterator = baseCopy.iterator(); iterator.hasNext(); ) {
-                    AnnotationInfo baseAnnotation = iterator.next();
-                    if (concreteAnnotation.equals(baseAnnotation) || concreteAnnotation.desc.equals(baseAnnotation.desc)) {
-                        iterator.remove();
-                        match = baseAnnotation;
-                        break;
-                    }
+        AnnotationList baseIndex = AnnotationList.of(baseAnnotations);
+        AnnotationList concreteIndex = AnnotationList.of(concreteAnnotations);
+
+        if (mode.checkRemoval()) {
+            for (int i = 0; i < baseIndex.size(); i++) {
+                AnnotationInfo baseAnnotation = baseIndex.get(i);
+                AnnotationInfo descMatch = concreteIndex.getByDesc(baseAnnotation.desc);
+                if (descMatch == null) {
+                    results.addAnnotationIncompatibility(mode, memberInfo, baseAnnotation, IncompatibilityMessages.ANNOTATION_REMOVED, isError);
+                } else if (mode.requiresExact() && !baseAnnotation.equals(descMatch)) {
+                    results.addAnnotationIncompatibility(mode, memberInfo, baseAnnotation, IncompatibilityMessages.ANNOTATION_CHANGED, descMatch, isError);
                 }
+            }
+        }
 
-                if (match == null) {
+        if (mode.checkAddition()) {
+            for (int i = 0; i < concreteIndex.size(); i++) {
+                AnnotationInfo concreteAnnotation = concreteIndex.get(i);
+                if (baseIndex.getByDesc(concreteAnnotation.desc) == null) {
                     // No match found for concrete annotation in base JAR; this means a new annotation was found
                     results.addAnnotationIncompatibility(mode, memberInfo, concreteAnnotation, IncompatibilityMessages.ANNOTATION_ADDED, isError);
                 }
@@ -288,14 +433,14 @@ public class ClassInfoComparer {
         }
     }
 
-    public static boolean hasSuperClass(ClassInfoCache cache, ClassInfo classInfo, String superClass) {
+    public static boolean hasSuperClass(ClassInfoCache cache, ClassHeader classInfo, String superClass) {
         if (classInfo.superName == null)
             return false;
 
         do {
             if (superClass.equals(classInfo.superName))
                 return true;
-            classInfo = cache.getClassInfo(classInfo.superName);
+            classInfo = cache.getClassHeader(classInfo.superName);
         } while (classInfo.superName != null);
 
         return false;
@@ -305,11 +450,16 @@ public class ClassInfoComparer {
     public static MethodInfo getMethodInfo(ClassInfo classInfo, List<ClassInfo> parents, boolean isStatic, String methodName, String methodDesc) {
         MethodInfo methodInfo = classInfo.getMethod(methodName, methodDesc);
         // Only return this method info if the staticness matches
-        if (methodInfo != null && (methodInfo.access & Opcodes.ACC_STATIC) == (isStatic ? Opcodes.ACC_STATIC : 0))
+        if (methodInfo != null && isStaticMatch(methodInfo.access, isStatic))
             return methodInfo;
 
+        return getParentMethodInfo(parents, isStatic, methodName, methodDesc);
+    }
+
+    @Nullable
+    private static MethodInfo getParentMethodInfo(List<ClassInfo> parents, boolean isStatic, String methodName, String methodDesc) {
         for (ClassInfo parent : parents) {
-            methodInfo = parent.getMethod(methodName, methodDesc);
+            MethodInfo methodInfo = parent.getMethod(methodName, methodDesc);
             // Don't return a private method info from a parent class and only return this parent method info if the staticness matches
             if (methodInfo != null && (methodInfo.access & (Opcodes.ACC_STATIC | Opcodes.ACC_PRIVATE)) == (isStatic ? Opcodes.ACC_STATIC : 0))
                 return methodInfo;
@@ -322,11 +472,16 @@ public class ClassInfoComparer {
     public static FieldInfo getFieldInfo(ClassInfo classInfo, List<ClassInfo> parents, boolean isStatic, String fieldName) {
         FieldInfo fieldInfo = classInfo.getField(fieldName);
         // Only return this field info if the staticness matches
-        if (fieldInfo != null && (fieldInfo.access & Opcodes.ACC_STATIC) == (isStatic ? Opcodes.ACC_STATIC : 0))
+        if (fieldInfo != null && isStaticMatch(fieldInfo.access, isStatic))
             return fieldInfo;
 
+        return getParentFieldInfo(parents, isStatic, fieldName);
+    }
+
+    @Nullable
+    private static FieldInfo getParentFieldInfo(List<ClassInfo> parents, boolean isStatic, String fieldName) {
         for (ClassInfo parent : parents) {
-            fieldInfo = parent.getField(fieldName);
+            FieldInfo fieldInfo = parent.getField(fieldName);
             // Don't return a private field info from a parent class and only return this parent field info if the staticness matches
             if (fieldInfo != null && (fieldInfo.access & (Opcodes.ACC_STATIC | Opcodes.ACC_PRIVATE)) == (isStatic ? Opcodes.ACC_STATIC : 0))
                 return fieldInfo;
@@ -346,7 +501,7 @@ public class ClassInfoComparer {
      * @return a list of parent class names, both super classes and interfaces
      */
     @SuppressWarnings("UnstableApiUsage")
-    public static List<String> getParentClassNames(boolean checkBinary, ClassInfoCache cache, ClassInfo classInfo, boolean includeSuper) {
+    public static List<String> getParentClassNames(boolean checkBinary, ClassInfoCache cache, ClassHeader classInfo, boolean includeSuper) {
         List<String> interfaces = classInfo.getInterfaces();
         if (interfaces.isEmpty() && classInfo.superName == null)
             return ImmutableList.of();
@@ -358,10 +513,10 @@ public class ClassInfoComparer {
             interfaceQueue.add(interfaceName);
         }
 
-        ClassInfo superInfo = classInfo;
+        ClassHeader superInfo = classInfo;
         while (superInfo.superName != null) {
-            ClassInfo currentInfo = superInfo;
-            superInfo = cache.getClassInfo(superInfo.superName);
+            ClassHeader currentInfo = superInfo;
+            superInfo = cache.getClassHeader(superInfo.superName);
             boolean include = includeSuper && isVisible(checkBinary, currentInfo.access);
             if (include)
                 parentGraph.putEdge(currentInfo.name, superInfo.name);
@@ -377,7 +532,7 @@ public class ClassInfoComparer {
             if (!seenInterfaces.add(interfaceName))
                 continue;
 
-            ClassInfo interfaceInfo = cache.getClassInfo(interfaceName);
+            ClassHeader interfaceInfo = cache.getClassHeader(interfaceName);
             for (String parentInterfaceName : interfaceInfo.getInterfaces()) {
                 interfaceQueue.add(parentInterfaceName);
                 parentGraph.putEdge(interfaceName, parentInterfaceName);
@@ -400,16 +555,26 @@ public class ClassInfoComparer {
      * Otherwise, only public and protected super classes will be included.
      * @param includeSuper if {@code true}, super class infos will be included.
      * Otherwise, only interfaces will be, including those present on super classes.
-     * @return a list of parent class infos, both super classes and interfaces
+     * @return a list of parent class infos, both super classes and interfaces.
+     * Each parent is only fully parsed once it is first accessed, as most member lookups are answered by the class itself or its closest parents.
      */
     public static List<ClassInfo> getParentClassInfos(boolean checkBinary, ClassInfoCache cache, ClassInfo classInfo, boolean includeSuper) {
-        List<ClassInfo> parents = new ArrayList<>();
-
-        for (String parentName : getParentClassNames(checkBinary, cache, classInfo, includeSuper)) {
-            parents.add(cache.getClassInfo(parentName));
-        }
+        List<String> parentNames = getParentClassNames(checkBinary, cache, classInfo, includeSuper);
+        ClassInfo[] parents = new ClassInfo[parentNames.size()];
+
+        return new AbstractList<ClassInfo>() {
+            @Override
+            public ClassInfo get(int index) {
+                ClassInfo parent = parents[index];
+                if (parent == null)
+                    parent = parents[index] = cache.getClassInfo(parentNames.get(index));
+                return parent;
+            }
 
-        return parents;
+            @Override
+            public int size() {
+                return parents.length;
+            }
+        };
     }
-
 }
@@ -10,16 +10,40 @@ import net.minecraftforge.jarcompatibilitychecker.data.ClassInfo;
 import net.minecraftforge.jarcompatibilitychecker.data.FieldInfo;
 import net.minecraftforge.jarcompatibilitychecker.data.MemberInfo;
 import net.minecraftforge.jarcompatibilitychecker.data.MethodInfo;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
 public class ClassInfoComparisonResults {
     public final ClassInfo classInfo;
+    @Nullable
+    private final Baseline baseline;
     private List<Incompatibility<?>> incompatibilities;
+    private int suppressedCount;
 
     ClassInfoComparisonResults(ClassInfo classInfo) {
+        this(classInfo, null);
+    }
+
+    /**
+     * @param baseline the known incompatibilities which are not added to these results, or {@code null} to add all incompatibilities
+     */
+    ClassInfoComparisonResults(ClassInfo classInfo, @Nullable Baseline baseline) {
         this.classInfo = classInfo;
+        this.baseline = baseline;
+    }
+
+    /**
+     * Checks the baseline for an incompatibility before it is created, so known incompatibilities are never allocated or formatted.
+     */
+    private boolean isSuppressed(MemberInfo memberInfo, String template) {
+        if (this.baseline == null || !this.baseline.contains(this.classInfo.name, memberInfo.getName(), memberInfo.getDescriptor(), template))
+            return false;
+
+        this.suppressedCount++;
+        return true;
     }
 
     void addIncompatibility(Incompatibility<?> incompatibility) {
@@ -35,7 +59,13 @@ public class ClassInfoComparisonResults {
     }
 
     void addClassIncompatibility(ClassInfo classInfo, String message, boolean isError) {
-        addIncompatibility(new ClassIncompatibility(classInfo, message, isError));
+        if (!isSuppressed(classInfo, message))
+            addIncompatibility(new ClassIncompatibility(classInfo, message, isError));
+    }
+
+    void addClassIncompatibility(ClassInfo classInfo, String template, Object argument, boolean isError) {
+        if (!isSuppressed(classInfo, template))
+            addIncompatibility(new ClassIncompatibility(classInfo, String.format(Locale.ROOT, template, argument), isError));
     }
 
     void addMethodIncompatibility(MethodInfo methodInfo, String message) {
@@ -43,7 +73,8 @@ public class ClassInfoComparisonResults {
     }
 
     void addMethodIncompatibility(MethodInfo methodInfo, String message, boolean isError) {
-        addIncompatibility(new MethodIncompatibility(methodInfo, message, isError));
+        if (!isSuppressed(methodInfo, message))
+            addIncompatibility(new MethodIncompatibility(methodInfo, message, isError));
     }
 
     void addFieldIncompatibility(FieldInfo fieldInfo, String message) {
@@ -51,7 +82,8 @@ public class ClassInfoComparisonResults {
     }
 
     void addFieldIncompatibility(FieldInfo fieldInfo, String message, boolean isError) {
-        addIncompatibility(new FieldIncompatibility(fieldInfo, message, isError));
+        if (!isSuppressed(fieldInfo, message))
+            addIncompatibility(new FieldIncompatibility(fieldInfo, message, isError));
     }
 
     <I extends MemberInfo> void addAnnotationIncompatibility(AnnotationCheckMode mode, I memberInfo, AnnotationInfo annotationInfo, String message) {
@@ -59,7 +91,14 @@ public class ClassInfoComparisonResults {
     }
 
     <I extends MemberInfo> void addAnnotationIncompatibility(AnnotationCheckMode mode, I memberInfo, AnnotationInfo annotationInfo, String message, boolean isError) {
-        addIncompatibility(new AnnotationIncompatibility<>(memberInfo, annotationInfo, message, isError && mode.shouldError()));
+        if (!isSuppressed(memberInfo, message))
+            addIncompatibility(new AnnotationIncompatibility<>(memberInfo, annotationInfo, message, isError && mode.shouldError()));
+    }
+
+    <I extends MemberInfo> void addAnnotationIncompatibility(AnnotationCheckMode mode, I memberInfo, AnnotationInfo annotationInfo, String template, Object argument,
+            boolean isError) {
+        if (!isSuppressed(memberInfo, template))
+            addIncompatibility(new AnnotationIncompatibility<>(memberInfo, annotationInfo, String.format(Locale.ROOT, template, argument), isError && mode.shouldError()));
     }
 
     /**
@@ -76,6 +115,29 @@ public class ClassInfoComparisonResults {
         return this.incompatibilities != null && !this.incompatibilities.isEmpty();
     }
 
+    /**
+     * @return the number of error-level incompatibilities
+     */
+    public int getErrorCount() {
+        if (this.incompatibilities == null)
+            return 0;
+
+        int errorCount = 0;
+        for (Incompatibility<?> incompatibility : this.incompatibilities) {
+            if (incompatibility.isError())
+                errorCount++;
+        }
+
+        return errorCount;
+    }
+
+    /**
+     * @return the number of incompatibilities which were not added because they are in the baseline
+     */
+    public int getSuppressedCount() {
+        return this.suppressedCount;
+    }
+
     public List<Incompatibility<?>> getIncompatibilities() {
         return this.incompatibilities == null ? ImmutableList.of() : this.incompatibilities;
     }
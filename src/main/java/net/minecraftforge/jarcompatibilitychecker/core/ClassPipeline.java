@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.jarcompatibilitychecker.core;
+
+import com.google.common.base.Throwables;
+import net.minecraftforge.jarcompatibilitychecker.data.ClassInfo;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out every main class of a base cache along with its concrete counterpart, in a fixed order.
+ * <p>
+ * With worker threads, deferred main classes of both caches are inflated and parsed on the workers while the calling thread compares the classes
+ * handed out before them, so reading and comparing overlap. At most a bounded number of classes are parsed ahead of the calling thread.
+ * Both caches are only ever used from the calling thread; ancestors which are needed before the workers reach them are parsed on demand by the cache.
+ * Without worker threads, classes are looked up on the calling thread as they are handed out.
+ */
+public final class ClassPipeline implements Closeable {
+    /**
+     * The number of classes parsed ahead of the calling thread for every worker thread.
+     */
+    private static final int QUEUED_PER_THREAD = 16;
+
+    private final ClassInfoCache baseCache;
+    private final ClassInfoCache concreteCache;
+    private final List<String> classNames;
+    private final CancellationToken cancellation;
+    @Nullable
+    private final ExecutorService executor;
+    private final Deque<Pending> pending = new ArrayDeque<>();
+    private final int capacity;
+    private int submitted;
+
+    /**
+     * @param threads the number of worker threads, or {@code 0} to parse classes on the calling thread
+     */
+    public ClassPipeline(ClassInfoCache baseCache, ClassInfoCache concreteCache, int threads, CancellationToken cancellation) {
+        if (threads < 0)
+            throw new IllegalArgumentException("Thread count must not be negative: " + threads);
+
+        this.baseCache = baseCache;
+        this.concreteCache = concreteCache;
+        this.classNames = new ArrayList<>(baseCache.getMainClassNames());
+        this.cancellation = cancellation;
+        this.executor = threads == 0 ? null : Executors.newFixedThreadPool(threads, new WorkerThreadFactory());
+        this.capacity = threads * QUEUED_PER_THREAD;
+    }
+
+    public int size() {
+        return this.classNames.size();
+    }
+
+    /**
+     * @return the next base class and its concrete counterpart, or {@code null} once all classes were handed out
+     */
+    @Nullable
+    public Pair next() throws IOException {
+        this.cancellation.throwIfCancelled();
+
+        if (this.executor == null) {
+            if (this.submitted == this.classNames.size())
+                return null;
+
+            String className = this.classNames.get(this.submitted++);
+            return new Pair(className, this.baseCache.getMainClassInfo(className), this.concreteCache.getMainClassInfo(className));
+        }
+
+        while (this.pending.size() < this.capacity && this.submitted < this.classNames.size()) {
+            String className = this.classNames.get(this.submitted++);
+            this.pending.add(new Pending(className, submit(this.baseCache.prepareParse(className)), submit(this.concreteCache.prepareParse(className))));
+        }
+
+        Pending next = this.pending.poll();
+        if (next == null)
+            return null;
+
+        ClassInfo base = accept(this.baseCache, next.className, next.base);
+        ClassInfo concrete = accept(this.concreteCache, next.className, next.concrete);
+        return new Pair(next.className, base, concrete);
+    }
+
+    @Nullable
+    private Future<ClassInfo> submit(@Nullable Callable<ClassInfo> parse) {
+        return parse == null ? null : this.executor.submit(parse);
+    }
+
+    @Nullable
+    private static ClassInfo accept(ClassInfoCache cache, String className, @Nullable Future<ClassInfo> parsed) throws IOException {
+        if (parsed == null)
+            return cache.getMainClassInfo(className);
+
+        try {
+            return cache.acceptParsed(className, parsed.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for class " + className);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            Throwables.throwIfInstanceOf(cause, IOException.class);
+            Throwables.throwIfUnchecked(cause);
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Stops all workers, discarding any classes which were parsed ahead but not handed out.
+     */
+    @Override
+    public void close() {
+        if (this.executor != null)
+            this.executor.shutdownNow();
+        this.pending.clear();
+    }
+
+    public static final class Pair {
+        public final String className;
+        public final ClassInfo base;
+        @Nullable
+        public final ClassInfo concrete;
+
+        Pair(String className, @Nullable ClassInfo base, @Nullable ClassInfo concrete) {
+            if (base == null)
+                throw new IllegalStateException("Main class " + className + " was removed from the base cache");
+
+            this.className = className;
+            this.base = base;
+            this.concrete = concrete;
+        }
+    }
+
+    private static final class Pending {
+        private final String className;
+        @Nullable
+        private final Future<ClassInfo> base;
+        @Nullable
+        private final Future<ClassInfo> concrete;
+
+        Pending(String className, @Nullable Future<ClassInfo> base, @Nullable Future<ClassInfo> concrete) {
+            this.className = className;
+            this.base = base;
+            this.concrete = concrete;
+        }
+    }
+
+    private static final class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "JarCompatibilityChecker parser " + this.count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.jarcompatibilitychecker.core;
+
+import com.google.common.io.ByteStreams;
+import net.minecraftforge.jarcompatibilitychecker.zip.ZipArchive;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * A source of class files which can be read into a {@link ClassInfoCache}.
+ * Sources are only read once they are passed to the cache, so embedders can provide class bytes without going through the file system.
+ */
+@FunctionalInterface
+public interface ClassSource {
+    void accept(Visitor visitor) throws IOException;
+
+    interface Visitor {
+        /**
+         * Visits the bytes of a single class file.
+         * The array is only valid for the duration of the call and must not be retained or modified.
+         */
+        void visitClass(byte[] data, int offset, int length) throws IOException;
+
+        /**
+         * Visits an archive, which by default visits all of its class entries.
+         * The archive is closed by the source once this method returns.
+         */
+        default void visitArchive(ZipArchive archive) throws IOException {
+            for (ZipArchive.Entry entry : archive.getEntries()) {
+                if (ClassInfoCache.isClassEntry(entry.name))
+                    archive.read(entry, this::visitClass);
+            }
+        }
+
+        /**
+         * Visits an archive which has an up-to-date {@link LibraryIndex}, which by default visits the archive like any other.
+         * The index stays readable after the source closed the archive.
+         */
+        default void visitIndexedArchive(ZipArchive archive, LibraryIndex index) throws IOException {
+            visitArchive(archive);
+        }
+    }
+
+    /**
+     * @return a source reading the JAR at the given path, along with its {@linkplain LibraryIndex#getIndexPath(Path) library index} if there is an up-to-date one
+     */
+    static ClassSource ofJar(Path jarPath) {
+        return visitor -> {
+            try (ZipArchive zip = ZipArchive.open(jarPath)) {
+                LibraryIndex index = LibraryIndex.open(LibraryIndex.getIndexPath(jarPath), zip);
+                if (index != null) {
+                    visitor.visitIndexedArchive(zip, index);
+                } else {
+                    visitor.visitArchive(zip);
+                }
+            }
+        };
+    }
+
+    /**
+     * @return a source reading a JAR from the stream returned by the supplier, which is read fully into memory and closed
+     */
+    static ClassSource ofJar(Supplier<InputStream> jarStream) {
+        return visitor -> {
+            byte[] data;
+            try (InputStream stream = jarStream.get()) {
+                data = ByteStreams.toByteArray(stream);
+            }
+            try (ZipArchive zip = ZipArchive.wrap("in-memory JAR", ByteBuffer.wrap(data))) {
+                visitor.visitArchive(zip);
+            }
+        };
+    }
+
+    /**
+     * @return a source reading all {@code .class} and {@code .dat} files under the given folder
+     */
+    static ClassSource ofFolder(Path folder) {
+        return visitor -> {
+            try (Stream<Path> walker = Files.walk(folder)) {
+                Iterable<Path> iterable = walker::iterator;
+                for (Path entryPath : iterable) {
+                    Path namePath = entryPath.getFileName();
+                    String name = namePath == null ? null : namePath.toString();
+                    if (name == null || name.startsWith("."))
+                        continue;
+
+                    if (!name.endsWith(".class") && !name.endsWith(".dat"))
+                        continue;
+
+                    byte[] data = Files.readAllBytes(entryPath);
+                    visitor.visitClass(data, 0, data.length);
+                }
+            }
+        };
+    }
+
+    /**
+     * @param classes a map of class or entry names to class file bytes; the names are not used as the class name is read from the bytes
+     * @return a source reading the given in-memory classes
+     */
+    static ClassSource ofClasses(Map<String, byte[]> classes) {
+        return ofClasses(classes.values());
+    }
+
+    /**
+     * @param classes class file bytes, which are only iterated once the source is read
+     * @return a source reading the given classes
+     */
+    static ClassSource ofClasses(Iterable<byte[]> classes) {
+        return visitor -> {
+            for (byte[] data : classes) {
+                visitor.visitClass(data, 0, data.length);
+            }
+        };
+    }
+}
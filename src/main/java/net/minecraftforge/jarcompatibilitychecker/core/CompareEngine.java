@@ -0,0 +1,26 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.jarcompatibilitychecker.core;
+
+/**
+ * Determines how {@link ClassInfoComparer} matches the members of a base class to the members of its input class.
+ * Both engines report the same incompatibilities, only their order within a class may differ.
+ * <p>
+ * By default, the {@linkplain #HASH_LOOKUP} engine is used.
+ */
+public enum CompareEngine {
+    /**
+     * Looks up every base member in the input class by name and descriptor, and then in its parents.
+     * New abstract methods are found in a separate pass over the input class.
+     */
+    HASH_LOOKUP,
+    /**
+     * Sorts the own members of both classes by name and descriptor once, and matches them in a single linear pass.
+     * Parents are only searched for base members which the input class does not declare itself, and new abstract methods are found in the same pass.
+     */
+    MERGE_JOIN;
+
+    public static final CompareEngine DEFAULT = HASH_LOOKUP;
+}
@@ -4,6 +4,15 @@
  */
 package net.minecraftforge.jarcompatibilitychecker.core;
 
+import com.google.common.collect.ImmutableMap;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
 public class IncompatibilityMessages {
     // Class
     public static final String CLASS_MISSING = "Class no longer exists";
@@ -32,4 +41,65 @@ public class IncompatibilityMessages {
     public static final String ANNOTATION_ADDED = "Annotation was added";
     public static final String ANNOTATION_REMOVED = "Annotation was removed";
     public static final String ANNOTATION_CHANGED = "Annotation was changed to %s";
+
+    private static final Map<String, String> TYPES = readTypes();
+    private static final Map<String, String> TEMPLATE_TYPES = new HashMap<>();
+
+    static {
+        TYPES.forEach((type, template) -> TEMPLATE_TYPES.put(template, type));
+    }
+
+    private static Map<String, String> readTypes() {
+        Map<String, String> types = new TreeMap<>();
+        for (Field field : IncompatibilityMessages.class.getFields()) {
+            if (field.getType() != String.class || !Modifier.isStatic(field.getModifiers()))
+                continue;
+
+            try {
+                types.put(field.getName(), (String) field.get(null));
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return ImmutableMap.copyOf(types);
+    }
+
+    /**
+     * The message type is the name of the constant a message was created from, which stays stable when the message text changes.
+     *
+     * @return all message types mapped to their message templates, sorted by type
+     */
+    public static Map<String, String> getTypes() {
+        return TYPES;
+    }
+
+    /**
+     * @param template one of the message constants, before any formatting
+     * @return the type of the message constant, or {@code null} if it is not a message constant
+     */
+    @Nullable
+    public static String getTemplateType(String template) {
+        return TEMPLATE_TYPES.get(template);
+    }
+
+    /**
+     * @param message a message constant, or a message formatted from one
+     * @return the type of the message constant the message was created from, or {@code null} for an unknown message
+     */
+    @Nullable
+    public static String getType(String message) {
+        String type = TEMPLATE_TYPES.get(message);
+        if (type != null)
+            return type;
+
+        for (Map.Entry<String, String> entry : TYPES.entrySet()) {
+            String template = entry.getValue();
+            int argument = template.indexOf("%s");
+            if (argument != -1 && message.length() >= template.length() - 2 && message.startsWith(template.substring(0, argument))
+                    && message.endsWith(template.substring(argument + 2)))
+                return entry.getKey();
+        }
+
+        return null;
+    }
 }
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.jarcompatibilitychecker.core;
+
+import com.google.common.collect.ImmutableSet;
+import net.minecraftforge.jarcompatibilitychecker.data.AnnotationInfo;
+import net.minecraftforge.jarcompatibilitychecker.data.AnnotationList;
+import net.minecraftforge.jarcompatibilitychecker.data.ClassInfo;
+import net.minecraftforge.jarcompatibilitychecker.data.MemberInfo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Determines which classes and members are marked as internal API.
+ * The internal annotation descriptors are compiled into a set once, and the result for each distinct list of annotations is memoized on the list,
+ * so checking a member whose annotations were interned is a single comparison.
+ */
+public final class InternalApiMatcher {
+    private final Set<String> descriptors;
+    private final boolean inherit;
+
+    /**
+     * @param descriptors the descriptors of the internal annotations
+     * @param inherit if {@code true}, members of internal classes, nested classes of internal classes, and classes in packages whose
+     * {@code package-info} is marked internal are all considered internal as well
+     */
+    public InternalApiMatcher(Collection<String> descriptors, boolean inherit) {
+        this.descriptors = ImmutableSet.copyOf(descriptors);
+        this.inherit = inherit;
+    }
+
+    public boolean isInherited() {
+        return this.inherit;
+    }
+
+    /**
+     * @return {@code true} if the member itself is annotated with an internal annotation
+     */
+    public boolean isInternal(MemberInfo memberInfo) {
+        List<AnnotationInfo> annotations = memberInfo.getAnnotations();
+        return !annotations.isEmpty() && AnnotationList.of(annotations).containsAny(this.descriptors);
+    }
+
+    /**
+     * @return the names of the outer classes and the {@code package-info} whose annotations the class inherits, or an empty list when not inheriting
+     */
+    public List<String> getInheritedFrom(String className) {
+        if (!this.inherit)
+            return Collections.emptyList();
+
+        List<String> names = new ArrayList<>();
+        int packageEnd = className.lastIndexOf('/');
+        for (int nested = className.lastIndexOf('$'); nested > packageEnd + 1; nested = className.lastIndexOf('$', nested - 1)) {
+            names.add(className.substring(0, nested));
+        }
+        names.add(packageEnd == -1 ? "package-info" : className.substring(0, packageEnd + 1) + "package-info");
+        return names;
+    }
+
+    /**
+     * @return {@code true} if the class is annotated with an internal annotation or, when inheriting, its outer class or package is
+     */
+    public boolean isInternal(ClassInfoCache cache, ClassInfo classInfo) {
+        if (isInternal(classInfo))
+            return true;
+
+        if (!this.inherit)
+            return false;
+
+        String name = classInfo.name;
+        int nested = name.lastIndexOf('$');
+        int packageEnd = name.lastIndexOf('/');
+        if (nested > packageEnd + 1) {
+            ClassInfo outerClassInfo = cache.findClassInfo(name.substring(0, nested));
+            if (outerClassInfo != null)
+                return isInternal(cache, outerClassInfo);
+        }
+
+        ClassInfo packageInfo = cache.findClassInfo(packageEnd == -1 ? "package-info" : name.substring(0, packageEnd + 1) + "package-info");
+        return packageInfo != null && isInternal(packageInfo);
+    }
+}
@@ -0,0 +1,569 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.jarcompatibilitychecker.core;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.primitives.UnsignedBytes;
+import net.minecraftforge.jarcompatibilitychecker.data.AnnotationInfo;
+import net.minecraftforge.jarcompatibilitychecker.data.AnnotationInterner;
+import net.minecraftforge.jarcompatibilitychecker.data.Bouncer;
+import net.minecraftforge.jarcompatibilitychecker.data.ClassInfo;
+import net.minecraftforge.jarcompatibilitychecker.data.FieldInfo;
+import net.minecraftforge.jarcompatibilitychecker.data.MethodInfo;
+import net.minecraftforge.jarcompatibilitychecker.zip.ZipArchive;
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AnnotationNode;
+import org.objectweb.asm.tree.ClassNode;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * A prebuilt index of all classes of a library JAR, stored in a sidecar file next to the JAR and memory-mapped when the JAR is read.
+ * Classes are looked up by binary search and decoded straight from the mapped file, so a library with an index is neither inflated nor parsed.
+ * <p>
+ * The file starts with {@link #MAGIC}, the format version, a checksum of the JAR, the number of classes and the offsets of the record and string sections.
+ * It is followed by:
+ * <ul>
+ *     <li>the class table, holding the name and record of every class, sorted by the UTF-8 bytes of the name</li>
+ *     <li>the records, each holding the header, source file and annotations of a class followed by its methods and fields</li>
+ *     <li>the string pool, holding every string once as an int length followed by UTF-8 bytes</li>
+ * </ul>
+ * All numbers are big-endian ints unless noted otherwise; strings are referred to by their offset in the pool, with {@code -1} marking a missing string.
+ * <p>
+ * The index covers the JAR itself and all JARs nested inside it, with the same precedence as when the JAR is read without an index.
+ * An index whose checksum does not match the JAR is stale and is ignored.
+ */
+public final class LibraryIndex {
+    public static final String EXTENSION = ".jccidx";
+    static final int MAGIC = 0x4A434349; // JCCI
+    static final int VERSION = 1;
+    private static final int HEADER_SIZE = 28;
+    private static final int CLASS_ENTRY_SIZE = 8;
+    private static final int NONE = -1;
+
+    private static final byte TAG_BYTE = 'B';
+    private static final byte TAG_BOOLEAN = 'Z';
+    private static final byte TAG_CHAR = 'C';
+    private static final byte TAG_SHORT = 'S';
+    private static final byte TAG_INT = 'I';
+    private static final byte TAG_LONG = 'J';
+    private static final byte TAG_FLOAT = 'F';
+    private static final byte TAG_DOUBLE = 'D';
+    private static final byte TAG_STRING = 's';
+    private static final byte TAG_CLASS = 'c';
+    private static final byte TAG_ENUM = 'e';
+    private static final byte TAG_ANNOTATION = '@';
+    private static final byte TAG_ARRAY = '[';
+
+    private final String name;
+    private final ByteBuffer buffer;
+    private final int classCount;
+    private final int recordsOffset;
+    private final int poolOffset;
+
+    private LibraryIndex(String name, ByteBuffer buffer) throws IOException {
+        this.name = name;
+        this.buffer = buffer;
+        this.classCount = buffer.getInt(16);
+        this.recordsOffset = buffer.getInt(20);
+        this.poolOffset = buffer.getInt(24);
+
+        if (this.classCount < 0 || (long) HEADER_SIZE + (long) this.classCount * CLASS_ENTRY_SIZE > this.recordsOffset
+                || this.recordsOffset > this.poolOffset || this.poolOffset > buffer.capacity())
+            throw new IOException("Corrupt library index " + name);
+    }
+
+    /**
+     * @return the path of the index file of the JAR at the given path
+     */
+    public static Path getIndexPath(Path jarPath) {
+        return jarPath.resolveSibling(jarPath.getFileName() + EXTENSION);
+    }
+
+    /**
+     * Maps the index file of an archive.
+     *
+     * @return the index, or {@code null} if there is no index file or it is stale because it was written for another version of the archive or in another format
+     * @throws IOException if the file is not a library index
+     */
+    @Nullable
+    public static LibraryIndex open(Path indexPath, ZipArchive archive) throws IOException {
+        if (!Files.isRegularFile(indexPath))
+            return null;
+
+        ByteBuffer buffer;
+        if (indexPath.getFileSystem() != FileSystems.getDefault()) {
+            buffer = ByteBuffer.wrap(Files.readAllBytes(indexPath));
+        } else {
+            try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+                long size = channel.size();
+                if (size > Integer.MAX_VALUE)
+                    throw new IOException("Library index " + indexPath + " is too large to be mapped (" + size + " bytes)");
+
+                // The mapping stays valid after the channel is closed
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+        }
+
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+            throw new IOException(indexPath + " is not a library index");
+        if (buffer.getInt(4) != VERSION || buffer.getLong(8) != checksum(archive))
+            return null;
+
+        return new LibraryIndex(indexPath.toString(), buffer);
+    }
+
+    /**
+     * Checksums the central directory of an archive, which records the name, CRC-32 and size of every entry.
+     * Nested JARs are covered by the CRC-32 of their entry, so the checksum changes whenever any class changes without reading any entry data.
+     */
+    static long checksum(ZipArchive archive) {
+        List<ZipArchive.Entry> entries = archive.getEntries();
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        hasher.putInt(entries.size());
+        for (ZipArchive.Entry entry : entries) {
+            hasher.putString(entry.name, StandardCharsets.UTF_8).putInt(entry.crc).putInt(entry.size);
+        }
+        return hasher.hash().asLong();
+    }
+
+    /**
+     * Parses all classes of a JAR, including the classes of nested JARs, and writes their index to the given file.
+     * The file is replaced atomically, so checks running concurrently never map a partially written index.
+     *
+     * @return the number of indexed classes
+     */
+    public static int write(Path jarPath, Path indexPath) throws IOException {
+        Writer writer = new Writer();
+        Map<byte[], Integer> records = new TreeMap<>(UnsignedBytes.lexicographicalComparator());
+        long checksum;
+        try (ZipArchive zip = ZipArchive.open(jarPath)) {
+            checksum = checksum(zip);
+
+            List<ZipArchive> archives = new ArrayList<>();
+            archives.add(zip);
+            ClassInfoCache.openNestedJars(zip, archives);
+
+            Set<String> seen = new HashSet<>();
+            for (ZipArchive archive : archives) {
+                for (ZipArchive.Entry entry : archive.getEntries()) {
+                    if (!ClassInfoCache.isClassEntry(entry.name) || entry.name.startsWith("META-INF/"))
+                        continue;
+
+                    // Classes are keyed by their entry name and the first entry takes precedence, like when the archive is indexed by the cache
+                    String className = entry.name.substring(0, entry.name.length() - ".class".length());
+                    if (!seen.add(className))
+                        continue;
+
+                    ClassNode node = new ClassNode();
+                    archive.read(entry, (data, offset, length) -> new ClassReader(data, offset, length).accept(node, ClassReader.SKIP_FRAMES));
+                    records.put(className.getBytes(StandardCharsets.UTF_8), writer.writeClass(new ClassInfo(node)));
+                }
+            }
+        }
+
+        ByteArrayOutputStream classTable = new ByteArrayOutputStream(records.size() * CLASS_ENTRY_SIZE);
+        DataOutputStream table = new DataOutputStream(classTable);
+        for (Map.Entry<byte[], Integer> entry : records.entrySet()) {
+            table.writeInt(writer.string(new String(entry.getKey(), StandardCharsets.UTF_8)));
+            table.writeInt(entry.getValue());
+        }
+
+        long recordsOffset = HEADER_SIZE + (long) classTable.size();
+        long poolOffset = recordsOffset + writer.records.size();
+        if (poolOffset + writer.pool.size() > Integer.MAX_VALUE)
+            throw new IOException("Library index of " + jarPath + " is too large");
+
+        Path parent = indexPath.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, indexPath.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                DataOutputStream data = new DataOutputStream(out);
+                data.writeInt(MAGIC);
+                data.writeInt(VERSION);
+                data.writeLong(checksum);
+                data.writeInt(records.size());
+                data.writeInt((int) recordsOffset);
+                data.writeInt((int) poolOffset);
+                classTable.writeTo(data);
+                writer.records.writeTo(data);
+                writer.pool.writeTo(data);
+                data.flush();
+            }
+            Files.move(temp, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        return records.size();
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public int getClassCount() {
+        return this.classCount;
+    }
+
+    public boolean contains(String className) {
+        return find(className) != NONE;
+    }
+
+    /**
+     * Decodes the header and annotations of a class; its methods and fields are only decoded once they are first accessed.
+     *
+     * @param interner the interner to share the annotations of the class and its members through, or {@code null} to not share them
+     * @return the class, or {@code null} if it is not in the index
+     */
+    @Nullable
+    public ClassInfo readClass(String className, @Nullable AnnotationInterner interner) {
+        int record = find(className);
+        if (record == NONE)
+            return null;
+
+        Decoder in = new Decoder(this.recordsOffset + record);
+        String name = in.readString();
+        int access = in.readInt();
+        String superName = in.readString();
+        String sourceFile = in.readString();
+        List<String> interfaces = in.readStrings();
+        List<AnnotationInfo> annotations = in.readAnnotations(interner);
+        int members = in.position();
+
+        return new ClassInfo(name, access, superName, interfaces, annotations, sourceFile, (owner, methods, fields) -> {
+            Decoder memberIn = new Decoder(members);
+            for (int i = 0, count = memberIn.readInt(); i < count; i++) {
+                int methodAccess = memberIn.readInt();
+                String methodName = memberIn.readString();
+                String desc = memberIn.readString();
+                List<String> exceptions = memberIn.readStrings();
+                String bouncerName = memberIn.readString();
+                String bouncerDesc = memberIn.readString();
+                List<AnnotationInfo> methodAnnotations = memberIn.readAnnotations(interner);
+                methods.add(new MethodInfo(owner, methodName, desc, methodAccess, methodAnnotations, exceptions,
+                        bouncerName == null ? null : new Bouncer(bouncerName, bouncerDesc)));
+            }
+            for (int i = 0, count = memberIn.readInt(); i < count; i++) {
+                int fieldAccess = memberIn.readInt();
+                String fieldName = memberIn.readString();
+                String desc = memberIn.readString();
+                fields.add(new FieldInfo(fieldName, desc, fieldAccess, memberIn.readAnnotations(interner)));
+            }
+        });
+    }
+
+    /**
+     * @return the offset of the record of the class in the record section, or {@link #NONE} if it is not in the index
+     */
+    private int find(String className) {
+        byte[] key = className.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = this.classCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int entry = HEADER_SIZE + mid * CLASS_ENTRY_SIZE;
+            int cmp = compareString(this.buffer.getInt(entry), key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return this.buffer.getInt(entry + 4);
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Compares a pooled string to the given UTF-8 bytes, as unsigned bytes like the class table is sorted.
+     */
+    private int compareString(int ref, byte[] key) {
+        int offset = this.poolOffset + ref;
+        int length = this.buffer.getInt(offset);
+        int max = Math.min(length, key.length);
+        for (int i = 0; i < max; i++) {
+            int cmp = (this.buffer.get(offset + 4 + i) & 0xFF) - (key[i] & 0xFF);
+            if (cmp != 0)
+                return cmp;
+        }
+        return length - key.length;
+    }
+
+    @Override
+    public String toString() {
+        return this.name;
+    }
+
+    /**
+     * Reads a record from its own view of the mapped file, so any number of records may be decoded at once.
+     */
+    private final class Decoder {
+        private final ByteBuffer data = LibraryIndex.this.buffer.duplicate();
+
+        Decoder(int position) {
+            this.data.position(position);
+        }
+
+        int position() {
+            return this.data.position();
+        }
+
+        int readInt() {
+            return this.data.getInt();
+        }
+
+        @Nullable
+        String readString() {
+            int ref = this.data.getInt();
+            if (ref == NONE)
+                return null;
+
+            int position = this.data.position();
+            this.data.position(LibraryIndex.this.poolOffset + ref);
+            byte[] bytes = new byte[this.data.getInt()];
+            this.data.get(bytes);
+            this.data.position(position);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        List<String> readStrings() {
+            int count = this.data.getInt();
+            List<String> strings = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                strings.add(readString());
+            }
+            return strings;
+        }
+
+        List<AnnotationInfo> readAnnotations(@Nullable AnnotationInterner interner) {
+            int count = this.data.getInt();
+            List<AnnotationNode> annotations = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                annotations.add(readAnnotation());
+            }
+            return AnnotationInfo.create(interner, annotations);
+        }
+
+        private AnnotationNode readAnnotation() {
+            AnnotationNode annotation = new AnnotationNode(readString());
+            int count = this.data.getInt();
+            if (count != NONE) {
+                annotation.values = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    annotation.values.add(readValue());
+                }
+            }
+            return annotation;
+        }
+
+        private Object readValue() {
+            byte tag = this.data.get();
+            switch (tag) {
+                case TAG_BYTE:
+                    return this.data.get();
+                case TAG_BOOLEAN:
+                    return this.data.get() != 0;
+                case TAG_CHAR:
+                    return this.data.getChar();
+                case TAG_SHORT:
+                    return this.data.getShort();
+                case TAG_INT:
+                    return this.data.getInt();
+                case TAG_LONG:
+                    return this.data.getLong();
+                case TAG_FLOAT:
+                    return this.data.getFloat();
+                case TAG_DOUBLE:
+                    return this.data.getDouble();
+                case TAG_STRING:
+                    return readString();
+                case TAG_CLASS:
+                    return Type.getType(readString());
+                case TAG_ENUM:
+                    return new String[] { readString(), readString() };
+                case TAG_ANNOTATION:
+                    return readAnnotation();
+                case TAG_ARRAY: {
+                    int count = this.data.getInt();
+                    List<Object> values = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        values.add(readValue());
+                    }
+                    return values;
+                }
+                default:
+                    throw new IllegalStateException("Corrupt library index " + LibraryIndex.this.name + ": unknown annotation value tag " + tag);
+            }
+        }
+    }
+
+    /**
+     * Writes the record and string sections of an index into memory.
+     */
+    private static final class Writer {
+        private final ByteArrayOutputStream records = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(this.records);
+        private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+        private final DataOutputStream poolOut = new DataOutputStream(this.pool);
+        private final Map<String, Integer> strings = new HashMap<>();
+
+        /**
+         * @return the offset of the record in the record section
+         */
+        int writeClass(ClassInfo info) throws IOException {
+            int record = this.records.size();
+            writeString(info.name);
+            this.out.writeInt(info.access);
+            writeString(info.superName);
+            writeString(info.sourceFile);
+            writeStrings(info.getInterfaces());
+            writeAnnotations(info.annotations);
+
+            this.out.writeInt(info.getMethods().size());
+            for (MethodInfo method : info.getMethods().values()) {
+                this.out.writeInt(method.access);
+                writeString(method.name);
+                writeString(method.desc);
+                writeStrings(method.exceptions == null ? Collections.<String>emptyList() : method.exceptions);
+                writeString(method.bouncer == null ? null : method.bouncer.name);
+                writeString(method.bouncer == null ? null : method.bouncer.desc);
+                writeAnnotations(method.annotations);
+            }
+
+            this.out.writeInt(info.getFields().size());
+            for (FieldInfo field : info.getFields().values()) {
+                this.out.writeInt(field.access);
+                writeString(field.name);
+                writeString(field.desc);
+                writeAnnotations(field.annotations);
+            }
+
+            return record;
+        }
+
+        int string(String value) throws IOException {
+            Integer ref = this.strings.get(value);
+            if (ref == null) {
+                ref = this.pool.size();
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                this.poolOut.writeInt(bytes.length);
+                this.poolOut.write(bytes);
+                this.strings.put(value, ref);
+            }
+            return ref;
+        }
+
+        private void writeString(@Nullable String value) throws IOException {
+            this.out.writeInt(value == null ? NONE : string(value));
+        }
+
+        private void writeStrings(List<String> values) throws IOException {
+            this.out.writeInt(values.size());
+            for (String value : values) {
+                writeString(value);
+            }
+        }
+
+        private void writeAnnotations(List<AnnotationInfo> annotations) throws IOException {
+            this.out.writeInt(annotations.size());
+            for (AnnotationInfo annotation : annotations) {
+                writeAnnotation(annotation.desc, annotation.values);
+            }
+        }
+
+        private void writeAnnotation(String desc, @Nullable List<Object> values) throws IOException {
+            writeString(desc);
+            if (values == null) {
+                this.out.writeInt(NONE);
+                return;
+            }
+
+            this.out.writeInt(values.size());
+            for (Object value : values) {
+                writeValue(value);
+            }
+        }
+
+        /**
+         * Writes an annotation value as read by ASM, where arrays are lists and enum values are pairs of the enum descriptor and constant name.
+         */
+        private void writeValue(Object value) throws IOException {
+            if (value instanceof String) {
+                this.out.writeByte(TAG_STRING);
+                writeString((String) value);
+            } else if (value instanceof Byte) {
+                this.out.writeByte(TAG_BYTE);
+                this.out.writeByte((Byte) value);
+            } else if (value instanceof Boolean) {
+                this.out.writeByte(TAG_BOOLEAN);
+                this.out.writeBoolean((Boolean) value);
+            } else if (value instanceof Character) {
+                this.out.writeByte(TAG_CHAR);
+                this.out.writeChar((Character) value);
+            } else if (value instanceof Short) {
+                this.out.writeByte(TAG_SHORT);
+                this.out.writeShort((Short) value);
+            } else if (value instanceof Integer) {
+                this.out.writeByte(TAG_INT);
+                this.out.writeInt((Integer) value);
+            } else if (value instanceof Long) {
+                this.out.writeByte(TAG_LONG);
+                this.out.writeLong((Long) value);
+            } else if (value instanceof Float) {
+                this.out.writeByte(TAG_FLOAT);
+                this.out.writeFloat((Float) value);
+            } else if (value instanceof Double) {
+                this.out.writeByte(TAG_DOUBLE);
+                this.out.writeDouble((Double) value);
+            } else if (value instanceof Type) {
+                this.out.writeByte(TAG_CLASS);
+                writeString(((Type) value).getDescriptor());
+            } else if (value instanceof String[]) {
+                String[] enumValue = (String[]) value;
+                this.out.writeByte(TAG_ENUM);
+                writeString(enumValue[0]);
+                writeString(enumValue[1]);
+            } else if (value instanceof AnnotationNode) {
+                AnnotationNode annotation = (AnnotationNode) value;
+                this.out.writeByte(TAG_ANNOTATION);
+                writeAnnotation(annotation.desc, annotation.values);
+            } else if (value instanceof List) {
+                List<?> values = (List<?>) value;
+                this.out.writeByte(TAG_ARRAY);
+                this.out.writeInt(values.size());
+                for (Object element : values) {
+                    writeValue(element);
+                }
+            } else {
+                throw new IOException("Unsupported annotation value " + value + " of type " + value.getClass().getName());
+            }
+        }
+    }
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.jarcompatibilitychecker.core;
+
+import net.minecraftforge.jarcompatibilitychecker.data.ClassHeader;
+import net.minecraftforge.jarcompatibilitychecker.zip.ZipArchive;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An index of the classes inside archives which are not parsed yet, kept in columnar direct buffers instead of objects.
+ * <p>
+ * Every class is a fixed-width record of ints holding the class name, the archive and entry it is read from, and once read, its header.
+ * All names are stored once as UTF-8 in a string pool and referred to by id, and the interfaces of all headers share one column of string ids.
+ * Only the archives themselves are kept on the heap, so the heap used by the index does not grow with the number of classes.
+ * Headers are materialized as short-lived {@link ClassHeader} objects whenever they are looked up.
+ * <p>
+ * Not thread-safe, like the {@link ClassInfoCache} it belongs to.
+ */
+final class OffHeapClassIndex {
+    private static final int NAME = 0;
+    private static final int ARCHIVE = 1;
+    private static final int ENTRY = 2;
+    private static final int STATE = 3;
+    private static final int ACCESS = 4;
+    private static final int SUPER_NAME = 5;
+    private static final int INTERFACES = 6;
+    private static final int INTERFACE_COUNT = 7;
+    private static final int RECORD_INTS = 8;
+
+    private static final int STATE_INDEXED = 0;
+    private static final int STATE_HEADER_READ = 1;
+    private static final int STATE_REMOVED = 2;
+
+    private static final int NONE = -1;
+
+    private final List<ZipArchive> archives = new ArrayList<>();
+
+    /**
+     * The UTF-8 bytes of every string, each preceded by its length.
+     */
+    private ByteBuffer strings = allocate(1 << 16);
+    /**
+     * The offset in {@link #strings} of every string id.
+     */
+    private IntBuffer stringOffsets = allocateInts(1024);
+    /**
+     * The record of the class named by every string id, or {@link #NONE}.
+     */
+    private IntBuffer stringClasses = allocateInts(1024);
+    /**
+     * An open addressing table of string ids plus one, where zero marks an empty slot.
+     */
+    private IntBuffer stringTable = allocateInts(2048);
+    private int stringCount;
+
+    private IntBuffer records = allocateInts(1024 * RECORD_INTS);
+    private int recordCount;
+    private IntBuffer interfaces = allocateInts(1024);
+    private int interfaceCount;
+    private int size;
+
+    /**
+     * Adds a class unless a class of the same name was added before.
+     *
+     * @param entryIndex the index of the class file in the {@linkplain ZipArchive#getEntries() entries} of the archive
+     */
+    void add(ZipArchive archive, int entryIndex, String className) {
+        int name = intern(className);
+        if (this.stringClasses.get(name) != NONE)
+            return;
+
+        int archiveId = this.archives.size() - 1;
+        if (archiveId == -1 || this.archives.get(archiveId) != archive) {
+            this.archives.add(archive);
+            archiveId++;
+        }
+
+        int record = this.recordCount++;
+        this.records = ensureCapacity(this.records, this.recordCount * RECORD_INTS);
+        int base = record * RECORD_INTS;
+        this.records.put(base + NAME, name);
+        this.records.put(base + ARCHIVE, archiveId);
+        this.records.put(base + ENTRY, entryIndex);
+        this.records.put(base + STATE, STATE_INDEXED);
+        this.stringClasses.put(name, record);
+        this.size++;
+    }
+
+    boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    boolean contains(String className) {
+        return find(className) != NONE;
+    }
+
+    /**
+     * @return the record of the class, or {@link #NONE} if it is not in the index or was removed
+     */
+    int find(String className) {
+        int name = findString(className.getBytes(StandardCharsets.UTF_8));
+        if (name == NONE)
+            return NONE;
+
+        int record = this.stringClasses.get(name);
+        return record == NONE || get(record, STATE) == STATE_REMOVED ? NONE : record;
+    }
+
+    ZipArchive getArchive(int record) {
+        return this.archives.get(get(record, ARCHIVE));
+    }
+
+    ZipArchive.Entry getEntry(int record) {
+        return getArchive(record).getEntries().get(get(record, ENTRY));
+    }
+
+    /**
+     * @return the header of the class, or {@code null} if it was not {@linkplain #putHeader(int, ClassHeader) stored} yet
+     */
+    @Nullable
+    ClassHeader getHeader(int record) {
+        if (get(record, STATE) != STATE_HEADER_READ)
+            return null;
+
+        int superName = get(record, SUPER_NAME);
+        int count = get(record, INTERFACE_COUNT);
+        List<String> interfaceNames = new ArrayList<>(count);
+        for (int i = get(record, INTERFACES), end = i + count; i < end; i++) {
+            interfaceNames.add(getString(this.interfaces.get(i)));
+        }
+
+        return new ClassHeader(getString(get(record, NAME)), get(record, ACCESS), superName == NONE ? null : getString(superName), interfaceNames);
+    }
+
+    void putHeader(int record, ClassHeader header) {
+        List<String> interfaceNames = header.getInterfaces();
+        this.interfaces = ensureCapacity(this.interfaces, this.interfaceCount + interfaceNames.size());
+        int start = this.interfaceCount;
+        for (String interfaceName : interfaceNames) {
+            this.interfaces.put(this.interfaceCount++, intern(interfaceName));
+        }
+
+        int base = record * RECORD_INTS;
+        this.records.put(base + ACCESS, header.access);
+        this.records.put(base + SUPER_NAME, header.superName == null ? NONE : intern(header.superName));
+        this.records.put(base + INTERFACES, start);
+        this.records.put(base + INTERFACE_COUNT, interfaceNames.size());
+        this.records.put(base + STATE, STATE_HEADER_READ);
+    }
+
+    /**
+     * Removes a class once it was parsed, so it is no longer {@linkplain #find(String) found}.
+     */
+    void remove(int record) {
+        if (get(record, STATE) == STATE_REMOVED)
+            return;
+
+        this.records.put(record * RECORD_INTS + STATE, STATE_REMOVED);
+        this.size--;
+    }
+
+    private int get(int record, int column) {
+        return this.records.get(record * RECORD_INTS + column);
+    }
+
+    private int intern(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int id = findString(bytes);
+        if (id != NONE)
+            return id;
+
+        if ((this.stringCount + 1) * 2 > this.stringTable.capacity())
+            rehash(this.stringTable.capacity() * 2);
+
+        int offset = this.strings.position();
+        if (this.strings.remaining() < 4 + bytes.length) {
+            ByteBuffer grown = allocate(Math.max(this.strings.capacity() * 2, offset + 4 + bytes.length));
+            this.strings.flip();
+            grown.put(this.strings);
+            this.strings = grown;
+        }
+        this.strings.putInt(bytes.length).put(bytes);
+
+        id = this.stringCount++;
+        this.stringOffsets = ensureCapacity(this.stringOffsets, this.stringCount);
+        this.stringOffsets.put(id, offset);
+        this.stringClasses = ensureCapacity(this.stringClasses, this.stringCount);
+        this.stringClasses.put(id, NONE);
+        insert(this.stringTable, hash(bytes), id);
+        return id;
+    }
+
+    private int findString(byte[] bytes) {
+        int mask = this.stringTable.capacity() - 1;
+        for (int slot = hash(bytes) & mask; ; slot = (slot + 1) & mask) {
+            int id = this.stringTable.get(slot) - 1;
+            if (id == NONE)
+                return NONE;
+            if (stringEquals(id, bytes))
+                return id;
+        }
+    }
+
+    private boolean stringEquals(int id, byte[] bytes) {
+        int offset = this.stringOffsets.get(id);
+        if (this.strings.getInt(offset) != bytes.length)
+            return false;
+
+        for (int i = 0; i < bytes.length; i++) {
+            if (this.strings.get(offset + 4 + i) != bytes[i])
+                return false;
+        }
+        return true;
+    }
+
+    private String getString(int id) {
+        int offset = this.stringOffsets.get(id);
+        byte[] bytes = new byte[this.strings.getInt(offset)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = this.strings.get(offset + 4 + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void rehash(int capacity) {
+        IntBuffer table = allocateInts(capacity);
+        for (int id = 0; id < this.stringCount; id++) {
+            int offset = this.stringOffsets.get(id);
+            int length = this.strings.getInt(offset);
+            int hash = 0x811c9dc5;
+            for (int i = 0; i < length; i++) {
+                hash = (hash ^ (this.strings.get(offset + 4 + i) & 0xFF)) * 0x01000193;
+            }
+            insert(table, hash, id);
+        }
+        this.stringTable = table;
+    }
+
+    private static void insert(IntBuffer table, int hash, int id) {
+        int mask = table.capacity() - 1;
+        int slot = hash & mask;
+        while (table.get(slot) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table.put(slot, id + 1);
+    }
+
+    /**
+     * A 32-bit FNV-1a hash, which must match the hash computed from the pooled bytes in {@link #rehash(int)}.
+     */
+    private static int hash(byte[] bytes) {
+        int hash = 0x811c9dc5;
+        for (byte b : bytes) {
+            hash = (hash ^ (b & 0xFF)) * 0x01000193;
+        }
+        return hash;
+    }
+
+    private static IntBuffer ensureCapacity(IntBuffer buffer, int capacity) {
+        if (buffer.capacity() >= capacity)
+            return buffer;
+
+        IntBuffer grown = allocateInts(Math.max(buffer.capacity() * 2, capacity));
+        buffer.clear();
+        grown.put(buffer);
+        grown.clear();
+        return grown;
+    }
+
+    private static ByteBuffer allocate(int capacity) {
+        return ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+    }
+
+    private static IntBuffer allocateInts(int capacity) {
+        return allocate(capacity * 4).asIntBuffer();
+    }
+}
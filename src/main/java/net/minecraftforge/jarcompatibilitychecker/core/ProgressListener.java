@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.jarcompatibilitychecker.core;
+
+/**
+ * Receives the progress of a check, for example to show it in a build tool or IDE.
+ * All methods are called on the checking thread and should return quickly; counts only ever increase within one check.
+ */
+public interface ProgressListener {
+    ProgressListener NONE = new ProgressListener() {};
+
+    /**
+     * Called after each entry of an archive was read or indexed.
+     *
+     * @param source the name of the archive
+     * @param read the number of entries of the archive read so far
+     * @param total the number of entries in the archive
+     */
+    default void entriesRead(String source, int read, int total) {}
+
+    /**
+     * Called after a class was parsed into a {@link net.minecraftforge.jarcompatibilitychecker.data.ClassInfo}.
+     * Most library classes are never parsed, so there is no known total.
+     *
+     * @param parsed the number of classes parsed so far by one {@link ClassInfoCache}
+     */
+    default void classesParsed(int parsed) {}
+
+    /**
+     * Called after a class of the base jar was compared, or its result was reused from a previous check.
+     *
+     * @param compared the number of classes compared so far
+     * @param total the number of classes which will be compared, unless the error budget is reached first
+     */
+    default void classesCompared(int compared, int total) {}
+}
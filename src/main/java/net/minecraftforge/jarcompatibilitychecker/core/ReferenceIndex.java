@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.jarcompatibilitychecker.core;
+
+import net.minecraftforge.jarcompatibilitychecker.data.ClassHeader;
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.ClassReader;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * An index of the classes, methods and fields which a set of consumer JARs reference.
+ * The index is built by scanning only the constant pool and header of every consumer class, so no class is fully parsed.
+ * <p>
+ * Binary compatibility only matters for what consumers actually link against, so a {@link Scope} of this index can be used to restrict
+ * a comparison to the referenced part of the base JAR.
+ */
+public class ReferenceIndex {
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_INTERFACE_METHODREF = 11;
+
+    /**
+     * Classes referenced by a {@code CONSTANT_Class} or as the owner of a member reference.
+     */
+    private final Set<String> classes = new HashSet<>();
+    /**
+     * Method name and descriptor, separated by a space, to the owners they are referenced on.
+     */
+    private final Map<String, Set<String>> methods = new HashMap<>();
+    /**
+     * Field name to the owners it is referenced on.
+     */
+    private final Map<String, Set<String>> fields = new HashMap<>();
+    /**
+     * Consumer class name to its super class and interfaces, used to resolve references made through a consumer subclass.
+     */
+    private final Map<String, List<String>> consumerParents = new HashMap<>();
+    /**
+     * Classes which a consumer class directly extends or implements.
+     */
+    private final Set<String> extendedClasses = new HashSet<>();
+
+    private ReferenceIndex() {}
+
+    public static ReferenceIndex scan(List<ClassSource> consumers) throws IOException {
+        ReferenceIndex index = new ReferenceIndex();
+        for (ClassSource consumer : consumers) {
+            consumer.accept((data, offset, length) -> index.scanClass(new ClassReader(data, offset, length)));
+        }
+        return index;
+    }
+
+    private void scanClass(ClassReader reader) {
+        List<String> parents = new ArrayList<>();
+        String superName = reader.getSuperName();
+        if (superName != null)
+            parents.add(superName);
+        Collections.addAll(parents, reader.getInterfaces());
+        this.consumerParents.put(reader.getClassName(), parents);
+        this.extendedClasses.addAll(parents);
+
+        char[] buffer = new char[reader.getMaxStringLength()];
+        for (int i = 1; i < reader.getItemCount(); i++) {
+            int item = reader.getItem(i);
+            // The second slot of a long or double constant has no item
+            if (item == 0)
+                continue;
+
+            switch (reader.readByte(item - 1)) {
+                case CONSTANT_CLASS:
+                    addClass(reader.readUTF8(item, buffer));
+                    break;
+                case CONSTANT_FIELDREF:
+                case CONSTANT_METHODREF:
+                case CONSTANT_INTERFACE_METHODREF: {
+                    String owner = reader.readClass(item, buffer);
+                    int nameAndType = reader.getItem(reader.readUnsignedShort(item + 2));
+                    String name = reader.readUTF8(nameAndType, buffer);
+                    if (reader.readByte(item - 1) == CONSTANT_FIELDREF) {
+                        this.fields.computeIfAbsent(name, k -> new HashSet<>()).add(owner);
+                    } else {
+                        String desc = reader.readUTF8(nameAndType + 2, buffer);
+                        this.methods.computeIfAbsent(name + " " + desc, k -> new HashSet<>()).add(owner);
+                    }
+                    addClass(owner);
+                    break;
+                }
+            }
+        }
+    }
+
+    private void addClass(String className) {
+        // Array classes reference their element type
+        if (className.startsWith("[")) {
+            int start = className.lastIndexOf('[') + 1;
+            if (className.charAt(start) != 'L')
+                return;
+            className = className.substring(start + 1, className.length() - 1);
+        }
+        this.classes.add(className);
+    }
+
+    /**
+     * @return a scope resolving the references of this index against the class hierarchy of the given base cache
+     */
+    public Scope scope(ClassInfoCache baseCache) {
+        return new Scope(baseCache);
+    }
+
+    public final class Scope {
+        private final ClassInfoCache baseCache;
+        private final Map<String, Set<String>> ancestors = new HashMap<>();
+        @Nullable
+        private Set<String> extendedAncestors;
+
+        private Scope(ClassInfoCache baseCache) {
+            this.baseCache = baseCache;
+        }
+
+        /**
+         * @return {@code true} if consumers reference the class, or extend it or one of its subclasses
+         */
+        public boolean includesClass(String className) {
+            return classes.contains(className) || isExtended(className);
+        }
+
+        /**
+         * A class extended by a consumer is fully included, since consumer classes may override any of its methods or reference inherited
+         * members through themselves.
+         *
+         * @return {@code true} if a consumer class extends or implements the class or one of its subclasses
+         */
+        public boolean isExtended(String className) {
+            if (this.extendedAncestors == null) {
+                this.extendedAncestors = new HashSet<>();
+                for (String extended : extendedClasses) {
+                    this.extendedAncestors.addAll(getAncestors(extended));
+                }
+            }
+
+            return this.extendedAncestors.contains(className);
+        }
+
+        /**
+         * @return {@code true} if consumers reference the method on the given class or on a subclass which inherits it
+         */
+        public boolean includesMethod(String className, String name, String desc) {
+            return isExtended(className) || isReferenced(methods.get(name + " " + desc), className);
+        }
+
+        /**
+         * @return {@code true} if consumers reference the field on the given class or on a subclass which inherits it
+         */
+        public boolean includesField(String className, String name) {
+            return isExtended(className) || isReferenced(fields.get(name), className);
+        }
+
+        private boolean isReferenced(@Nullable Set<String> owners, String className) {
+            if (owners == null)
+                return false;
+
+            for (String owner : owners) {
+                if (getAncestors(owner).contains(className))
+                    return true;
+            }
+
+            return false;
+        }
+
+        /**
+         * @return the class itself and all of its super classes and interfaces which can be resolved from the consumers or the base cache
+         */
+        private Set<String> getAncestors(String className) {
+            Set<String> result = this.ancestors.get(className);
+            if (result != null)
+                return result;
+
+            result = new HashSet<>();
+            Queue<String> queue = new ArrayDeque<>();
+            queue.add(className);
+            while (!queue.isEmpty()) {
+                String name = queue.remove();
+                if (!result.add(name))
+                    continue;
+
+                List<String> parents = consumerParents.get(name);
+                if (parents != null) {
+                    queue.addAll(parents);
+                    continue;
+                }
+
+                ClassHeader info = this.baseCache.findClassHeader(name);
+                if (info != null) {
+                    if (info.superName != null)
+                        queue.add(info.superName);
+                    queue.addAll(info.getInterfaces());
+                }
+            }
+
+            this.ancestors.put(className, result);
+            return result;
+        }
+    }
+}
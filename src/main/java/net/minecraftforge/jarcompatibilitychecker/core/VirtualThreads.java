@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.jarcompatibilitychecker.core;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates executors backed by virtual threads when running on Java 21 or newer.
+ * The project targets Java 8, so the factory is looked up reflectively and callers fall back to sequential work on older runtimes.
+ */
+final class VirtualThreads {
+    @Nullable
+    private static final Method NEW_EXECUTOR = findFactory();
+
+    private VirtualThreads() {}
+
+    @Nullable
+    private static Method findFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return an executor which runs every task on a new virtual thread, or {@code null} if virtual threads are not available
+     */
+    @Nullable
+    static ExecutorService newExecutor() {
+        if (NEW_EXECUTOR == null)
+            return null;
+
+        try {
+            return (ExecutorService) NEW_EXECUTOR.invoke(null);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            // Java 19 and 20 only provide virtual threads as a preview feature
+            return null;
+        }
+    }
+}
@@ -5,9 +5,9 @@
 package net.minecraftforge.jarcompatibilitychecker.data;
 
 import com.google.common.collect.ImmutableList;
+import org.jetbrains.annotations.Nullable;
 import org.objectweb.asm.tree.AnnotationNode;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
@@ -15,26 +15,54 @@ import java.util.Objects;
 public final class AnnotationInfo {
     public final String desc;
     public final List<Object> values;
+    /**
+     * A hash of the descriptor and the full contents of all values, including arrays and nested annotations.
+     */
+    private final int hash;
     private String cachedToString;
 
+    /**
+     * @return the annotations of all given lists, indexed by descriptor
+     */
     @SafeVarargs
     public static List<AnnotationInfo> create(List<AnnotationNode>... annotationLists) {
-        List<AnnotationInfo> annotationInfos = new ArrayList<>();
+        return create(null, annotationLists);
+    }
+
+    /**
+     * @param interner the interner to share the annotations and the returned list through, or {@code null} to not share them
+     * @return the annotations of all given lists, indexed by descriptor
+     */
+    @SafeVarargs
+    public static List<AnnotationInfo> create(@Nullable AnnotationInterner interner, List<AnnotationNode>... annotationLists) {
+        int size = 0;
+        for (List<AnnotationNode> annotations : annotationLists) {
+            if (annotations != null)
+                size += annotations.size();
+        }
+
+        if (size == 0)
+            return AnnotationList.EMPTY;
 
+        AnnotationInfo[] annotationInfos = new AnnotationInfo[size];
+        int i = 0;
         for (List<AnnotationNode> annotations : annotationLists) {
             if (annotations == null)
                 continue;
             for (AnnotationNode annotationNode : annotations) {
-                annotationInfos.add(new AnnotationInfo(annotationNode.desc, annotationNode.values));
+                AnnotationInfo annotationInfo = new AnnotationInfo(annotationNode.desc, annotationNode.values);
+                annotationInfos[i++] = interner == null ? annotationInfo : interner.intern(annotationInfo);
             }
         }
 
-        return annotationInfos;
+        AnnotationList list = new AnnotationList(annotationInfos);
+        return interner == null ? list : interner.intern(list);
     }
 
     public AnnotationInfo(String desc, List<Object> values) {
         this.desc = desc;
         this.values = values == null ? ImmutableList.of() : values;
+        this.hash = 31 * desc.hashCode() + deepHashCode(this.values);
     }
 
     @Override
@@ -91,11 +119,61 @@ public final class AnnotationInfo {
         if (o == null || getClass() != o.getClass())
             return false;
         AnnotationInfo that = (AnnotationInfo) o;
-        return desc.equals(that.desc) && values.equals(that.values);
+        return hash == that.hash && desc.equals(that.desc) && deepEquals(values, that.values);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(desc, values);
+        return hash;
+    }
+
+    /**
+     * Annotation values may be lists, arrays or nested {@link AnnotationNode}s, none of which implement content-based hashing themselves.
+     */
+    private static int deepHashCode(@Nullable Object value) {
+        if (value instanceof List) {
+            int hash = 1;
+            for (Object element : (List<?>) value) {
+                hash = 31 * hash + deepHashCode(element);
+            }
+            return hash;
+        } else if (value instanceof AnnotationNode) {
+            AnnotationNode node = (AnnotationNode) value;
+            return 31 * node.desc.hashCode() + deepHashCode(node.values == null ? ImmutableList.of() : node.values);
+        } else if (value instanceof Object[]) {
+            return deepHashCode(Arrays.asList((Object[]) value));
+        } else if (value != null && value.getClass().isArray()) {
+            return Arrays.deepHashCode(new Object[] { value });
+        }
+
+        return Objects.hashCode(value);
+    }
+
+    private static boolean deepEquals(@Nullable Object a, @Nullable Object b) {
+        if (a == b)
+            return true;
+        if (a == null || b == null)
+            return false;
+
+        if (a instanceof List && b instanceof List) {
+            List<?> listA = (List<?>) a;
+            List<?> listB = (List<?>) b;
+            int size = listA.size();
+            if (size != listB.size())
+                return false;
+            for (int i = 0; i < size; i++) {
+                if (!deepEquals(listA.get(i), listB.get(i)))
+                    return false;
+            }
+            return true;
+        } else if (a instanceof AnnotationNode && b instanceof AnnotationNode) {
+            AnnotationNode nodeA = (AnnotationNode) a;
+            AnnotationNode nodeB = (AnnotationNode) b;
+            return nodeA.desc.equals(nodeB.desc) && deepEquals(nodeA.values == null ? ImmutableList.of() : nodeA.values, nodeB.values == null ? ImmutableList.of() : nodeB.values);
+        } else if (a instanceof Object[] && b instanceof Object[]) {
+            return deepEquals(Arrays.asList((Object[]) a), Arrays.asList((Object[]) b));
+        }
+
+        return Objects.deepEquals(a, b);
     }
 }
@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.jarcompatibilitychecker.data;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Shares equal annotations, and equal lists of annotations, between all members read with the same interner.
+ * The same few annotations appear on a large share of all members, so this keeps a single instance of each and allows equal annotations
+ * to be recognized by identity. Safe to use from multiple threads.
+ */
+public final class AnnotationInterner {
+    private final ConcurrentMap<AnnotationInfo, AnnotationInfo> annotations = new ConcurrentHashMap<>();
+    private final ConcurrentMap<AnnotationList, AnnotationList> lists = new ConcurrentHashMap<>();
+
+    public AnnotationInfo intern(AnnotationInfo annotation) {
+        AnnotationInfo existing = this.annotations.putIfAbsent(annotation, annotation);
+        return existing == null ? annotation : existing;
+    }
+
+    AnnotationList intern(AnnotationList list) {
+        AnnotationList existing = this.lists.putIfAbsent(list, list);
+        return existing == null ? list : existing;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.jarcompatibilitychecker.data;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * An immutable list of the annotations of a member, indexed by descriptor.
+ * A member can only carry one annotation of each descriptor, so descriptor lookups fully identify an annotation.
+ */
+public final class AnnotationList extends AbstractList<AnnotationInfo> implements RandomAccess {
+    /**
+     * Lists up to this size are searched directly, which is faster than hashing the descriptor.
+     */
+    private static final int INDEX_THRESHOLD = 8;
+    static final AnnotationList EMPTY = new AnnotationList(new AnnotationInfo[0]);
+
+    private final AnnotationInfo[] annotations;
+    @Nullable
+    private final Map<String, AnnotationInfo> byDesc;
+    @Nullable
+    private volatile Match lastMatch;
+
+    AnnotationList(AnnotationInfo[] annotations) {
+        this.annotations = annotations;
+        if (annotations.length > INDEX_THRESHOLD) {
+            this.byDesc = new HashMap<>();
+            for (AnnotationInfo annotation : annotations) {
+                this.byDesc.putIfAbsent(annotation.desc, annotation);
+            }
+        } else {
+            this.byDesc = null;
+        }
+    }
+
+    /**
+     * @return the given list if it is already an annotation list, otherwise an indexed copy of it
+     */
+    public static AnnotationList of(List<AnnotationInfo> annotations) {
+        if (annotations instanceof AnnotationList)
+            return (AnnotationList) annotations;
+
+        return annotations.isEmpty() ? EMPTY : new AnnotationList(annotations.toArray(new AnnotationInfo[0]));
+    }
+
+    @Nullable
+    public AnnotationInfo getByDesc(String desc) {
+        if (this.byDesc != null)
+            return this.byDesc.get(desc);
+
+        for (AnnotationInfo annotation : this.annotations) {
+            if (desc.equals(annotation.desc))
+                return annotation;
+        }
+
+        return null;
+    }
+
+    /**
+     * Checks whether this list contains an annotation with any of the given descriptors.
+     * The result for the most recently queried set is memoized, so with interned lists each distinct combination of annotations
+     * is only scanned once per set.
+     *
+     * @param descs a set of annotation descriptors, which must not be modified after it is first queried
+     */
+    public boolean containsAny(Set<String> descs) {
+        Match match = this.lastMatch;
+        if (match == null || match.descs != descs) {
+            boolean result = false;
+            for (AnnotationInfo annotation : this.annotations) {
+                if (descs.contains(annotation.desc)) {
+                    result = true;
+                    break;
+                }
+            }
+            this.lastMatch = match = new Match(descs, result);
+        }
+
+        return match.result;
+    }
+
+    @Override
+    public AnnotationInfo get(int index) {
+        return this.annotations[index];
+    }
+
+    @Override
+    public int size() {
+        return this.annotations.length;
+    }
+
+    private static final class Match {
+        private final Set<String> descs;
+        private final boolean result;
+
+        private Match(Set<String> descs, boolean result) {
+            this.descs = descs;
+            this.result = result;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.jarcompatibilitychecker.data;
+
+import com.google.common.collect.ImmutableList;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.ClassReader;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The header of a class: its access, super class and interfaces.
+ * This is all that is needed to walk the class hierarchy, and can be read from a class file without parsing any of its members.
+ */
+public class ClassHeader {
+    public final String name;
+    public final int access;
+    public final String superName;
+    private final List<String> interfaces;
+
+    public ClassHeader(String name, int access, @Nullable String superName, @Nullable List<String> interfaces) {
+        this.name = name;
+        this.access = access;
+        this.superName = superName;
+        this.interfaces = interfaces == null || interfaces.isEmpty() ? null : interfaces;
+    }
+
+    /**
+     * Reads the header of a class file, which only decodes the constant pool entries the header refers to.
+     */
+    public ClassHeader(ClassReader reader) {
+        this(reader.getClassName(), reader.getAccess(), reader.getSuperName(), Arrays.asList(reader.getInterfaces()));
+    }
+
+    @NotNull
+    public List<String> getInterfaces() {
+        return this.interfaces == null ? ImmutableList.of() : this.interfaces;
+    }
+
+    @Override
+    public String toString() {
+        return this.name;
+    }
+}
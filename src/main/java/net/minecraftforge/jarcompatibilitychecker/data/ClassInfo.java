@@ -18,16 +18,25 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
-public class ClassInfo implements MemberInfo {
-    public final String name;
-    public final int access;
-    public final String superName;
+public class ClassInfo extends ClassHeader implements MemberInfo {
     public final List<AnnotationInfo> annotations;
-    private final List<String> interfaces;
-    private final Map<String, MethodInfo> methods;
-    private final Map<String, FieldInfo> fields;
+    /**
+     * The name of the source file the class was compiled from, as recorded in its {@code SourceFile} attribute.
+     */
+    @Nullable
+    public final String sourceFile;
+    private Map<String, MethodInfo> methods;
+    private Map<String, FieldInfo> fields;
+    /**
+     * Reads the methods and fields of a lazily decoded class; cleared once they have been decoded.
+     */
+    @Nullable
+    private volatile MemberReader memberReader;
+    @Nullable
+    private final AnnotationInterner interner;
 
     private static Map<String, MethodInfo> makeMap(List<MethodInfo> lst) {
         if (lst.isEmpty())
@@ -38,32 +47,94 @@ public class ClassInfo implements MemberInfo {
     }
 
     public ClassInfo(ClassNode node) {
-        this.name = node.name;
-        this.access = node.access;
-        this.annotations = AnnotationInfo.create(node.visibleAnnotations, node.invisibleAnnotations);
-        this.superName = node.superName;
-        this.interfaces = node.interfaces.isEmpty() ? null : node.interfaces;
-
-        List<MethodInfo> lst = new ArrayList<>();
-        if (!node.methods.isEmpty())
-            node.methods.forEach(mn -> lst.add(new MethodInfo(this, mn)));
-        this.methods = makeMap(lst);
-
-        if (!node.fields.isEmpty())
-            this.fields = node.fields.stream().map(FieldInfo::new).collect(Collectors.toMap(e -> e.name, e -> e));
+        this(node, (AnnotationInterner) null);
+    }
+
+    /**
+     * @param interner the interner to share the annotations of the class and its members through, or {@code null} to not share them
+     */
+    public ClassInfo(ClassNode node, @Nullable AnnotationInterner interner) {
+        super(node.name, node.access, node.superName, node.interfaces);
+        this.interner = interner;
+        this.annotations = AnnotationInfo.create(interner, node.visibleAnnotations, node.invisibleAnnotations);
+        this.sourceFile = node.sourceFile;
+        readMembers(node);
+    }
+
+    /**
+     * Constructs a class info whose methods and fields are only decoded once they are first accessed.
+     *
+     * @param header a node holding the header and annotations of the class; its methods and fields are ignored
+     * @param memberSource supplies a node holding the methods and fields of the class; called at most once
+     * @param interner the interner to share the annotations of the class and its members through, or {@code null} to not share them
+     */
+    public ClassInfo(ClassNode header, Supplier<ClassNode> memberSource, @Nullable AnnotationInterner interner) {
+        super(header.name, header.access, header.superName, header.interfaces);
+        this.interner = interner;
+        this.annotations = AnnotationInfo.create(interner, header.visibleAnnotations, header.invisibleAnnotations);
+        this.sourceFile = header.sourceFile;
+        this.memberReader = (owner, methods, fields) -> readMembers(memberSource.get(), methods, fields);
+    }
+
+    /**
+     * Constructs a class info from already decoded values, whose methods and fields are only read once they are first accessed.
+     *
+     * @param memberReader reads the methods and fields of the class; called at most once
+     */
+    public ClassInfo(String name, int access, @Nullable String superName, @Nullable List<String> interfaces, List<AnnotationInfo> annotations,
+            @Nullable String sourceFile, MemberReader memberReader) {
+        super(name, access, superName, interfaces);
+        this.interner = null;
+        this.annotations = annotations;
+        this.sourceFile = sourceFile;
+        this.memberReader = memberReader;
+    }
+
+    private void readMembers(ClassNode node) {
+        List<MethodInfo> methods = new ArrayList<>();
+        List<FieldInfo> fields = new ArrayList<>();
+        readMembers(node, methods, fields);
+        setMembers(methods, fields);
+    }
+
+    private void readMembers(ClassNode node, List<MethodInfo> methods, List<FieldInfo> fields) {
+        node.methods.forEach(mn -> methods.add(new MethodInfo(this, mn, this.interner)));
+        node.fields.forEach(fn -> fields.add(new FieldInfo(fn, this.interner)));
+    }
+
+    private void setMembers(List<MethodInfo> methods, List<FieldInfo> fields) {
+        this.methods = makeMap(methods);
+
+        if (!fields.isEmpty())
+            this.fields = fields.stream().collect(Collectors.toMap(e -> e.name, e -> e));
         else
             this.fields = null;
     }
 
+    private void resolveMembers() {
+        if (this.memberReader == null)
+            return;
+
+        synchronized (this) {
+            MemberReader reader = this.memberReader;
+            if (reader == null)
+                return;
+
+            List<MethodInfo> methods = new ArrayList<>();
+            List<FieldInfo> fields = new ArrayList<>();
+            reader.read(this, methods, fields);
+            setMembers(methods, fields);
+            // Clearing the volatile reader publishes the members to other threads
+            this.memberReader = null;
+        }
+    }
+
     public ClassInfo(Class<?> clazz) {
-        this.name = clazz.getName().replace('.', '/');
-        this.access = clazz.getModifiers();
+        super(clazz.getName().replace('.', '/'), clazz.getModifiers(), clazz.getSuperclass() == null ? null : clazz.getSuperclass().getName().replace('.', '/'),
+                getInterfaceNames(clazz));
+        this.interner = null;
         this.annotations = ImmutableList.of();
-        this.superName = clazz.getSuperclass() == null ? null : clazz.getSuperclass().getName().replace('.', '/');
-        List<String> intfs = new ArrayList<>();
-        for (Class<?> i : clazz.getInterfaces())
-            intfs.add(i.getName().replace('.', '/'));
-        this.interfaces = intfs.isEmpty() ? null : intfs;
+        this.sourceFile = null;
 
         List<MethodInfo> mtds = new ArrayList<>();
 
@@ -82,28 +153,34 @@ public class ClassInfo implements MemberInfo {
             this.fields = null;
     }
 
-    @NotNull
-    public List<String> getInterfaces() {
-        return this.interfaces == null ? ImmutableList.of() : this.interfaces;
+    private static List<String> getInterfaceNames(Class<?> clazz) {
+        List<String> intfs = new ArrayList<>();
+        for (Class<?> i : clazz.getInterfaces())
+            intfs.add(i.getName().replace('.', '/'));
+        return intfs;
     }
 
     @NotNull
     public Map<String, MethodInfo> getMethods() {
+        resolveMembers();
         return this.methods == null ? ImmutableMap.of() : this.methods;
     }
 
     @Nullable
     public MethodInfo getMethod(String name, String desc) {
+        resolveMembers();
         return this.methods == null ? null : this.methods.get(name + " " + desc);
     }
 
     @NotNull
     public Map<String, FieldInfo> getFields() {
+        resolveMembers();
         return this.fields == null ? ImmutableMap.of() : this.fields;
     }
 
     @Nullable
     public FieldInfo getField(String name) {
+        resolveMembers();
         return this.fields == null ? null : this.fields.get(name);
     }
 
@@ -130,8 +207,11 @@ public class ClassInfo implements MemberInfo {
         return this.annotations;
     }
 
-    @Override
-    public String toString() {
-        return this.name;
+    /**
+     * Reads the methods and fields of a class which are decoded lazily.
+     */
+    @FunctionalInterface
+    public interface MemberReader {
+        void read(ClassInfo owner, List<MethodInfo> methods, List<FieldInfo> fields);
     }
 }
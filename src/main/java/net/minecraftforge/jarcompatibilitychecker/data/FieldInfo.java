@@ -20,10 +20,24 @@ public class FieldInfo implements MemberInfo {
     public final List<AnnotationInfo> annotations;
 
     public FieldInfo(FieldNode node) {
+        this(node, null);
+    }
+
+    public FieldInfo(FieldNode node, @Nullable AnnotationInterner interner) {
         this.name = node.name;
         this.desc = node.desc;
         this.access = node.access;
-        this.annotations = AnnotationInfo.create(node.visibleAnnotations, node.invisibleAnnotations);
+        this.annotations = AnnotationInfo.create(interner, node.visibleAnnotations, node.invisibleAnnotations);
+    }
+
+    /**
+     * Constructs a field info from already decoded values, such as those of a prebuilt index.
+     */
+    public FieldInfo(String name, String desc, int access, List<AnnotationInfo> annotations) {
+        this.name = name;
+        this.desc = desc;
+        this.access = access;
+        this.annotations = annotations;
     }
 
     public FieldInfo(Field node) {
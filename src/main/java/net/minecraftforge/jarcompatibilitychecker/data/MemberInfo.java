@@ -23,7 +23,11 @@ public interface MemberInfo {
 
     @Nullable
     default AnnotationInfo getAnnotation(String desc) {
-        for (AnnotationInfo annotation : this.getAnnotations()) {
+        List<AnnotationInfo> annotations = this.getAnnotations();
+        if (annotations instanceof AnnotationList)
+            return ((AnnotationList) annotations).getByDesc(desc);
+
+        for (AnnotationInfo annotation : annotations) {
             if (desc.equals(annotation.desc))
                 return annotation;
         }
@@ -32,7 +36,11 @@ public interface MemberInfo {
     }
 
     default boolean hasAnnotation(String desc) {
-        for (AnnotationInfo annotation : this.getAnnotations()) {
+        List<AnnotationInfo> annotations = this.getAnnotations();
+        if (annotations instanceof AnnotationList)
+            return ((AnnotationList) annotations).getByDesc(desc) != null;
+
+        for (AnnotationInfo annotation : annotations) {
             if (desc.equals(annotation.desc))
                 return true;
         }
@@ -32,15 +32,36 @@ public class MethodInfo implements MemberInfo {
     private String override = null;
 
     public MethodInfo(ClassInfo parent, MethodNode node) {
+        this(parent, node, null);
+    }
+
+    public MethodInfo(ClassInfo parent, MethodNode node, @Nullable AnnotationInterner interner) {
         this.name = node.name;
         this.desc = node.desc;
         this.access = node.access;
-        this.annotations = AnnotationInfo.create(node.visibleAnnotations, node.invisibleAnnotations);
+        this.annotations = AnnotationInfo.create(interner, node.visibleAnnotations, node.invisibleAnnotations);
         this.exceptions = node.exceptions.isEmpty() ? null : new ArrayList<>(node.exceptions);
         this.parent = parent;
         this.bouncer = getBouncer(parent, node);
     }
 
+    /**
+     * Constructs a method info from already decoded values, such as those of a prebuilt index.
+     *
+     * @param exceptions the declared exceptions, or {@code null} if there are none
+     * @param bouncer the method the synthetic bridge method bounces to, or {@code null} if it is not a bouncer
+     */
+    public MethodInfo(ClassInfo parent, String name, String desc, int access, List<AnnotationInfo> annotations, @Nullable List<String> exceptions,
+            @Nullable Bouncer bouncer) {
+        this.name = name;
+        this.desc = desc;
+        this.access = access;
+        this.annotations = annotations;
+        this.exceptions = exceptions == null || exceptions.isEmpty() ? null : exceptions;
+        this.parent = parent;
+        this.bouncer = bouncer;
+    }
+
     private static Bouncer getBouncer(ClassInfo parent, MethodNode node) {
         if ((node.access & (Opcodes.ACC_SYNTHETIC | Opcodes.ACC_BRIDGE)) == 0 || (node.access & Opcodes.ACC_STATIC) != 0)
             return null;
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.jarcompatibilitychecker.report;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A writer which buffers text and encodes and writes it to a file on a background thread, so large reports do not block on file I/O.
+ * Buffers are written strictly in the order they were filled, so the file content is the same as with a synchronous writer.
+ * A failure on the background thread is thrown from the next call on this writer.
+ * <p>
+ * This writer is not thread-safe. {@link #flush()} hands all buffered text to the background thread without waiting for it to be written;
+ * only {@link #close()} waits until everything has been written.
+ */
+public final class AsyncFileWriter extends Writer {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /**
+     * The number of filled buffers which may wait for the background thread before writing blocks.
+     */
+    private static final int MAX_PENDING = 4;
+    private static final char[] END = new char[0];
+
+    private final BlockingQueue<char[]> pending = new ArrayBlockingQueue<>(MAX_PENDING);
+    private final Writer out;
+    private final Thread thread;
+    private char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    @Nullable
+    private volatile IOException failure;
+    private boolean closed;
+
+    public AsyncFileWriter(Path file) throws IOException {
+        this.out = new OutputStreamWriter(Files.newOutputStream(file), StandardCharsets.UTF_8);
+        this.thread = new Thread(this::drain, "Report writer for " + file.getFileName());
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    private void drain() {
+        try (Writer out = this.out) {
+            while (true) {
+                char[] chunk = this.pending.take();
+                if (chunk == END)
+                    break;
+
+                // After a failure, keep taking buffers so the writing thread never blocks
+                if (this.failure == null) {
+                    try {
+                        out.write(chunk);
+                    } catch (IOException e) {
+                        this.failure = e;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            if (this.failure == null)
+                this.failure = e;
+        } catch (InterruptedException e) {
+            this.failure = new InterruptedIOException("Report writer was interrupted");
+        }
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        ensureOpen();
+        if (this.position == this.buffer.length)
+            submit();
+        this.buffer[this.position++] = (char) c;
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            if (this.position == this.buffer.length)
+                submit();
+
+            int count = Math.min(len, this.buffer.length - this.position);
+            System.arraycopy(cbuf, off, this.buffer, this.position, count);
+            this.position += count;
+            off += count;
+            len -= count;
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            if (this.position == this.buffer.length)
+                submit();
+
+            int count = Math.min(len, this.buffer.length - this.position);
+            str.getChars(off, off + count, this.buffer, this.position);
+            this.position += count;
+            off += count;
+            len -= count;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        if (this.position > 0)
+            submit();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.closed)
+            return;
+
+        this.closed = true;
+        try {
+            if (this.position > 0)
+                submit();
+            enqueue(END);
+            this.thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the report writer");
+        }
+        throwFailure();
+    }
+
+    /**
+     * Hands the filled part of the current buffer to the background thread.
+     * A full buffer is handed over as is; a partially filled one is copied so the buffer can be reused.
+     */
+    private void submit() throws IOException {
+        char[] chunk;
+        if (this.position == this.buffer.length) {
+            chunk = this.buffer;
+            this.buffer = new char[BUFFER_SIZE];
+        } else {
+            chunk = Arrays.copyOf(this.buffer, this.position);
+        }
+        this.position = 0;
+
+        try {
+            enqueue(chunk);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while writing report");
+        }
+    }
+
+    private void enqueue(char[] chunk) throws InterruptedException {
+        this.pending.put(chunk);
+    }
+
+    private void ensureOpen() throws IOException {
+        if (this.closed)
+            throw new IOException("Writer is closed");
+        throwFailure();
+    }
+
+    private void throwFailure() throws IOException {
+        IOException failure = this.failure;
+        if (failure != null)
+            throw failure;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.jarcompatibilitychecker.report;
+
+import net.minecraftforge.jarcompatibilitychecker.core.Baseline;
+import net.minecraftforge.jarcompatibilitychecker.core.IncompatibilityMessages;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Writes the incompatibilities of a report as a {@link Baseline} file, so a following check only reports new incompatibilities.
+ * Keys are sorted, so regenerating a baseline gives a minimal diff.
+ */
+public class BaselineReportSink implements ReportSink {
+    private final Writer writer;
+    private final Set<String> keys = new TreeSet<>();
+
+    public BaselineReportSink(Writer writer) {
+        this.writer = writer;
+    }
+
+    @Override
+    public void start() {
+        this.keys.clear();
+    }
+
+    @Override
+    public void incompatibility(CheckResult.ClassResult owner, CheckResult.Entry entry) {
+        String type = IncompatibilityMessages.getType(entry.message);
+        if (type != null)
+            this.keys.add(Baseline.formatKey(owner.name, entry.name, entry.desc, type));
+    }
+
+    @Override
+    public void finish(int errorCount, int warningCount, boolean budgetReached) throws IOException {
+        this.writer.write(Baseline.HEADER);
+        this.writer.write('\n');
+        for (String key : this.keys) {
+            this.writer.write(key);
+            this.writer.write('\n');
+        }
+        this.writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.writer.close();
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.jarcompatibilitychecker.report;
+
+import net.minecraftforge.jarcompatibilitychecker.core.IncompatibilityMessages;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the records of a file written by {@link BinaryReportSink} one at a time, so reading takes constant memory regardless of the size of the report.
+ * Only the previous record and the few shared message constants are retained.
+ * The order of the records is verified while reading.
+ */
+public class BinaryReportReader implements Closeable {
+    private static final CheckResult.Kind[] KINDS = CheckResult.Kind.values();
+
+    private final Path file;
+    private final DataInputStream data;
+    private final boolean budgetReached;
+    private final int count;
+    private int read;
+    @Nullable
+    private Record previous;
+    private final List<String> messages = new ArrayList<>();
+
+    public BinaryReportReader(Path file) throws IOException {
+        this.file = file;
+        this.data = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+        try {
+            if (this.data.readInt() != BinaryReportSink.MAGIC)
+                throw new IOException(file + " is not a binary report");
+            int version = this.data.readInt();
+            if (version != BinaryReportSink.VERSION)
+                throw new IOException("Unsupported binary report version " + version + " in " + file);
+            this.budgetReached = (this.data.readInt() & BinaryReportSink.HEADER_BUDGET_REACHED) != 0;
+            this.count = this.data.readInt();
+        } catch (IOException e) {
+            this.data.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return whether the check which wrote the report stopped after reaching its error budget
+     */
+    public boolean isBudgetReached() {
+        return this.budgetReached;
+    }
+
+    public int getCount() {
+        return this.count;
+    }
+
+    /**
+     * @return the next record, or {@code null} once all records have been read
+     */
+    @Nullable
+    public Record next() throws IOException {
+        if (this.read == this.count)
+            return null;
+
+        String previousClass = this.previous == null ? "" : this.previous.className;
+        int shared = readVarInt();
+        if (shared > previousClass.length())
+            throw new IOException("Corrupt binary report " + this.file);
+        String className = previousClass.substring(0, shared) + readString();
+
+        int flags = this.data.readUnsignedByte();
+        int kindIndex = flags >>> BinaryReportSink.KIND_SHIFT;
+        if (kindIndex >= KINDS.length)
+            throw new IOException("Corrupt binary report " + this.file);
+        CheckResult.Kind kind = KINDS[kindIndex];
+        boolean error = (flags & BinaryReportSink.FLAG_ERROR) != 0;
+        String name = readString();
+        String desc = readString();
+        if (desc.isEmpty())
+            desc = null;
+
+        String message;
+        int messageId = readVarInt();
+        if (messageId == 0) {
+            message = readString();
+            if (IncompatibilityMessages.getTemplateType(message) != null)
+                this.messages.add(message);
+        } else if (messageId <= this.messages.size()) {
+            message = this.messages.get(messageId - 1);
+        } else {
+            throw new IOException("Corrupt binary report " + this.file);
+        }
+
+        String text = (flags & BinaryReportSink.FLAG_DEFAULT_TEXT) != 0 ? BinaryReportSink.getDefaultText(kind, name, desc, message) : readString();
+        if (text == null)
+            throw new IOException("Corrupt binary report " + this.file);
+
+        Record record = new Record(className, new CheckResult.Entry(kind, name, desc, message, error, text));
+        if (this.previous != null && this.previous.compareTo(record) > 0)
+            throw new IOException("Binary report " + this.file + " is not sorted");
+
+        this.previous = record;
+        this.read++;
+        return record;
+    }
+
+    private String readString() throws IOException {
+        byte[] bytes = new byte[readVarInt()];
+        this.data.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int readVarInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = this.data.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("Corrupt binary report " + this.file);
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.data.close();
+    }
+
+    /**
+     * An incompatibility along with the class it was found in.
+     * Records are ordered by class name, kind, member name, member descriptor, message and text; the error flag is not part of the order.
+     */
+    public static final class Record implements Comparable<Record> {
+        public final String className;
+        public final CheckResult.Entry entry;
+
+        public Record(String className, CheckResult.Entry entry) {
+            this.className = className;
+            this.entry = entry;
+        }
+
+        @Override
+        public int compareTo(@NotNull Record o) {
+            int cmp = this.className.compareTo(o.className);
+            if (cmp == 0)
+                cmp = this.entry.kind.compareTo(o.entry.kind);
+            if (cmp == 0)
+                cmp = this.entry.name.compareTo(o.entry.name);
+            if (cmp == 0)
+                cmp = (this.entry.desc == null ? "" : this.entry.desc).compareTo(o.entry.desc == null ? "" : o.entry.desc);
+            if (cmp == 0)
+                cmp = this.entry.message.compareTo(o.entry.message);
+            if (cmp == 0)
+                cmp = this.entry.text.compareTo(o.entry.text);
+            return cmp;
+        }
+
+        @Override
+        public String toString() {
+            return this.className + ": " + (this.entry.error ? "error: " : "warning: ") + this.entry.text;
+        }
+    }
+}
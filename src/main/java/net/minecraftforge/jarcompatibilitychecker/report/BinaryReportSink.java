@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.jarcompatibilitychecker.report;
+
+import net.minecraftforge.jarcompatibilitychecker.core.IncompatibilityMessages;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a report as a compact binary file, sorted so two reports can be diffed in a single streaming pass with {@link ReportDiff}.
+ * <p>
+ * The file starts with {@link #MAGIC}, the format version, a flags int recording whether the error budget was reached, and the number of records, followed by the records in {@linkplain BinaryReportReader.Record#compareTo sorted order}.
+ * Each record holds:
+ * <ul>
+ *     <li>the class name, as the length of the prefix it shares with the previous class name plus the remaining suffix</li>
+ *     <li>a flags byte holding the kind, whether the text is the default text for the kind, and the error flag</li>
+ *     <li>the member name and member descriptor, with an empty descriptor marking a missing one</li>
+ *     <li>the message, as a varint which is either {@code 0} followed by the message, or the 1-based index of an earlier unformatted message constant</li>
+ *     <li>the text, only if it is not the default text which can be derived from the other fields</li>
+ * </ul>
+ * Strings are written as a varint length followed by UTF-8 bytes.
+ */
+public class BinaryReportSink implements ReportSink {
+    public static final int MAGIC = 0x4A434352; // JCCR
+    public static final int VERSION = 2;
+    static final int HEADER_BUDGET_REACHED = 1;
+    static final int FLAG_ERROR = 1;
+    static final int FLAG_DEFAULT_TEXT = 2;
+    static final int KIND_SHIFT = 2;
+
+    private final OutputStream out;
+    private final List<BinaryReportReader.Record> records = new ArrayList<>();
+
+    public BinaryReportSink(OutputStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void start() {
+        this.records.clear();
+    }
+
+    @Override
+    public void incompatibility(CheckResult.ClassResult owner, CheckResult.Entry entry) {
+        this.records.add(new BinaryReportReader.Record(owner.name, entry));
+    }
+
+    @Override
+    public void finish(int errorCount, int warningCount, boolean budgetReached) throws IOException {
+        this.records.sort(null);
+
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(this.out));
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(budgetReached ? HEADER_BUDGET_REACHED : 0);
+        data.writeInt(this.records.size());
+
+        Map<String, Integer> messageIds = new HashMap<>();
+        String previousClass = "";
+        for (BinaryReportReader.Record record : this.records) {
+            int shared = sharedPrefix(previousClass, record.className);
+            writeVarInt(data, shared);
+            writeString(data, record.className.substring(shared));
+            previousClass = record.className;
+
+            CheckResult.Entry entry = record.entry;
+            boolean defaultText = entry.text.equals(getDefaultText(entry.kind, entry.name, entry.desc, entry.message));
+            data.writeByte(entry.kind.ordinal() << KIND_SHIFT | (defaultText ? FLAG_DEFAULT_TEXT : 0) | (entry.error ? FLAG_ERROR : 0));
+            writeString(data, entry.name);
+            // Descriptors are never empty, so an empty string marks a missing descriptor
+            writeString(data, entry.desc == null ? "" : entry.desc);
+
+            Integer messageId = messageIds.get(entry.message);
+            if (messageId != null) {
+                writeVarInt(data, messageId);
+            } else {
+                writeVarInt(data, 0);
+                writeString(data, entry.message);
+                // Only unformatted constants are shared, which bounds the number of ids
+                if (IncompatibilityMessages.getTemplateType(entry.message) != null)
+                    messageIds.put(entry.message, messageIds.size() + 1);
+            }
+
+            if (!defaultText)
+                writeString(data, entry.text);
+        }
+        data.flush();
+        this.records.clear();
+    }
+
+    /**
+     * @return the text of a class, method or field incompatibility, or {@code null} for annotations which have no default text
+     */
+    @Nullable
+    static String getDefaultText(CheckResult.Kind kind, String name, @Nullable String desc, String message) {
+        switch (kind) {
+            case CLASS:
+                return message;
+            case METHOD:
+                return name + desc + " - " + message;
+            case FIELD:
+                return name + ':' + desc + " - " + message;
+            default:
+                return null;
+        }
+    }
+
+    private static int sharedPrefix(String a, String b) {
+        int max = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < max && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static void writeString(DataOutputStream data, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(data, bytes.length);
+        data.write(bytes);
+    }
+
+    private static void writeVarInt(DataOutputStream data, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            data.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data.writeByte(value);
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.out.close();
+    }
+}
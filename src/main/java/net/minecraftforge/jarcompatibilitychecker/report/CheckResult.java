@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.jarcompatibilitychecker.report;
+
+import net.minecraftforge.jarcompatibilitychecker.core.AnnotationIncompatibility;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassIncompatibility;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassInfoComparisonResults;
+import net.minecraftforge.jarcompatibilitychecker.core.FieldIncompatibility;
+import net.minecraftforge.jarcompatibilitychecker.core.Incompatibility;
+import net.minecraftforge.jarcompatibilitychecker.core.MethodIncompatibility;
+import net.minecraftforge.jarcompatibilitychecker.data.ClassInfo;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The structured result of a full compatibility check, independent of the class infos it was computed from.
+ * Unlike {@link ClassInfoComparisonResults}, a check result can be stored and replayed later.
+ */
+public final class CheckResult {
+    public final List<ClassResult> classes;
+    public final boolean budgetReached;
+
+    public CheckResult(List<ClassResult> classes, boolean budgetReached) {
+        this.classes = classes;
+        this.budgetReached = budgetReached;
+    }
+
+    public static CheckResult of(List<ClassInfoComparisonResults> results, boolean budgetReached) {
+        List<ClassResult> classes = new ArrayList<>(results.size());
+        for (ClassInfoComparisonResults compareResults : results) {
+            classes.add(of(compareResults));
+        }
+
+        return new CheckResult(classes, budgetReached);
+    }
+
+    public static ClassResult of(ClassInfoComparisonResults results) {
+        List<Entry> entries = new ArrayList<>(results.getIncompatibilities().size());
+        for (Incompatibility<?> incompatibility : results.getIncompatibilities()) {
+            entries.add(Entry.of(incompatibility));
+        }
+
+        return new ClassResult(results.classInfo.name, results.classInfo.sourceFile, entries);
+    }
+
+    public int getErrorCount() {
+        int errorCount = 0;
+        for (ClassResult classResult : this.classes) {
+            for (Entry entry : classResult.incompatibilities) {
+                if (entry.error)
+                    errorCount++;
+            }
+        }
+
+        return errorCount;
+    }
+
+    public int getWarningCount() {
+        int warningCount = 0;
+        for (ClassResult classResult : this.classes) {
+            for (Entry entry : classResult.incompatibilities) {
+                if (!entry.error)
+                    warningCount++;
+            }
+        }
+
+        return warningCount;
+    }
+
+    public boolean isEmpty() {
+        return this.classes.isEmpty();
+    }
+
+    public static final class ClassResult {
+        public final String name;
+        /**
+         * The source file of the class, see {@link ClassInfo#sourceFile}.
+         */
+        @Nullable
+        public final String sourceFile;
+        public final List<Entry> incompatibilities;
+
+        public ClassResult(String name, List<Entry> incompatibilities) {
+            this(name, null, incompatibilities);
+        }
+
+        public ClassResult(String name, @Nullable String sourceFile, List<Entry> incompatibilities) {
+            this.name = name;
+            this.sourceFile = sourceFile;
+            this.incompatibilities = incompatibilities;
+        }
+    }
+
+    public static final class Entry {
+        public final Kind kind;
+        public final String name;
+        @Nullable
+        public final String desc;
+        public final String message;
+        public final boolean error;
+        /**
+         * The human-readable form of the incompatibility, as returned by {@link Incompatibility#toString()}.
+         */
+        public final String text;
+
+        public Entry(Kind kind, String name, @Nullable String desc, String message, boolean error, String text) {
+            this.kind = kind;
+            this.name = name;
+            this.desc = desc;
+            this.message = message;
+            this.error = error;
+            this.text = text;
+        }
+
+        public static Entry of(Incompatibility<?> incompatibility) {
+            return new Entry(Kind.of(incompatibility), incompatibility.getInfo().getName(), incompatibility.getInfo().getDescriptor(),
+                    incompatibility.getMessage(), incompatibility.isError(), incompatibility.toString());
+        }
+
+        @Override
+        public String toString() {
+            return this.text;
+        }
+    }
+
+    public enum Kind {
+        CLASS,
+        METHOD,
+        FIELD,
+        ANNOTATION;
+
+        public static Kind of(Incompatibility<?> incompatibility) {
+            if (incompatibility instanceof AnnotationIncompatibility)
+                return ANNOTATION;
+            if (incompatibility instanceof MethodIncompatibility)
+                return METHOD;
+            if (incompatibility instanceof FieldIncompatibility)
+                return FIELD;
+            if (incompatibility instanceof ClassIncompatibility)
+                return CLASS;
+
+            throw new IllegalArgumentException("Unknown incompatibility type: " + incompatibility.getClass().getName());
+        }
+    }
+}
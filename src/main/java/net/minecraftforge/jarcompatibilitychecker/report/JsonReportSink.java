@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.jarcompatibilitychecker.report;
+
+import com.google.gson.stream.JsonWriter;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Streams a report as a JSON document, with the incompatibilities grouped by class in the same shape as a stored {@link CheckResult}.
+ * Only the class which is currently being written is held in memory, and the totals are written after the classes.
+ */
+public class JsonReportSink implements ReportSink {
+    private final Writer writer;
+    @Nullable
+    private JsonWriter json;
+    @Nullable
+    private String currentClass;
+
+    public JsonReportSink(Writer writer) {
+        this.writer = writer;
+    }
+
+    @Override
+    public void start() throws IOException {
+        this.json = new JsonWriter(this.writer);
+        this.json.setHtmlSafe(false);
+        this.json.setIndent("  ");
+        this.currentClass = null;
+
+        this.json.beginObject();
+        this.json.name("classes").beginArray();
+    }
+
+    @Override
+    public void incompatibility(CheckResult.ClassResult owner, CheckResult.Entry entry) throws IOException {
+        JsonWriter json = getJson();
+        if (!owner.name.equals(this.currentClass)) {
+            if (this.currentClass != null)
+                json.endArray().endObject();
+
+            this.currentClass = owner.name;
+            json.beginObject();
+            json.name("name").value(owner.name);
+            if (owner.sourceFile != null)
+                json.name("sourceFile").value(owner.sourceFile);
+            json.name("incompatibilities").beginArray();
+        }
+
+        json.beginObject();
+        json.name("kind").value(entry.kind.name());
+        json.name("name").value(entry.name);
+        if (entry.desc != null)
+            json.name("desc").value(entry.desc);
+        json.name("message").value(entry.message);
+        json.name("error").value(entry.error);
+        json.name("text").value(entry.text);
+        json.endObject();
+    }
+
+    @Override
+    public void finish(int errorCount, int warningCount, boolean budgetReached) throws IOException {
+        JsonWriter json = getJson();
+        if (this.currentClass != null)
+            json.endArray().endObject();
+
+        json.endArray();
+        json.name("errors").value(errorCount);
+        json.name("warnings").value(warningCount);
+        json.name("budgetReached").value(budgetReached);
+        json.endObject();
+        json.flush();
+        this.json = null;
+    }
+
+    private JsonWriter getJson() {
+        if (this.json == null)
+            throw new IllegalStateException("Report was not started");
+
+        return this.json;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.writer.close();
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.jarcompatibilitychecker.report;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Diffs two binary reports written by {@link BinaryReportSink}.
+ * Both reports are sorted, so they are merge-joined in a single pass which holds only the current record of each report in memory.
+ */
+public final class ReportDiff {
+    private ReportDiff() {}
+
+    public interface Listener {
+        /**
+         * Called for an incompatibility which is only in the new report.
+         */
+        void added(BinaryReportReader.Record record) throws IOException;
+
+        /**
+         * Called for an incompatibility which is only in the old report.
+         */
+        void removed(BinaryReportReader.Record record) throws IOException;
+
+        /**
+         * Called for an incompatibility which is in both reports. Its error level may have changed.
+         */
+        default void unchanged(BinaryReportReader.Record oldRecord, BinaryReportReader.Record newRecord) throws IOException {}
+    }
+
+    public static void diff(Path oldReport, Path newReport, Listener listener) throws IOException {
+        try (BinaryReportReader oldReader = new BinaryReportReader(oldReport);
+             BinaryReportReader newReader = new BinaryReportReader(newReport)) {
+            BinaryReportReader.Record oldRecord = oldReader.next();
+            BinaryReportReader.Record newRecord = newReader.next();
+
+            while (oldRecord != null || newRecord != null) {
+                int cmp = oldRecord == null ? 1 : newRecord == null ? -1 : oldRecord.compareTo(newRecord);
+                if (cmp < 0) {
+                    listener.removed(oldRecord);
+                    oldRecord = oldReader.next();
+                } else if (cmp > 0) {
+                    listener.added(newRecord);
+                    newRecord = newReader.next();
+                } else {
+                    listener.unchanged(oldRecord, newRecord);
+                    oldRecord = oldReader.next();
+                    newRecord = newReader.next();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.jarcompatibilitychecker.report;
+
+import com.google.common.collect.ImmutableList;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Merges binary reports written by {@link BinaryReportSink}, such as the reports of the shards of one check, into a single sorted report.
+ * All reports are sorted, so they are merged in a streaming pass which holds only the current record of each report in memory.
+ * Records which are in several reports are only reported once.
+ */
+public final class ReportMerge {
+    private ReportMerge() {}
+
+    /**
+     * Writes the merged records of all reports to each sink.
+     *
+     * @return the number of errors in the merged report
+     */
+    public static int merge(List<Path> reports, List<ReportSink> sinks) throws IOException {
+        for (ReportSink sink : sinks) {
+            sink.start();
+        }
+        int[] counts = new int[2]; // errors, warnings
+        CheckResult.ClassResult[] owner = new CheckResult.ClassResult[1];
+        boolean budgetReached = merge(reports, record -> {
+            counts[record.entry.error ? 0 : 1]++;
+            if (owner[0] == null || !owner[0].name.equals(record.className))
+                owner[0] = new CheckResult.ClassResult(record.className, ImmutableList.of());
+            for (ReportSink sink : sinks) {
+                sink.incompatibility(owner[0], record.entry);
+            }
+        });
+        for (ReportSink sink : sinks) {
+            sink.finish(counts[0], counts[1], budgetReached);
+        }
+
+        return counts[0];
+    }
+
+    /**
+     * @return whether any of the reports reached its error budget
+     */
+    private static boolean merge(List<Path> reports, RecordConsumer consumer) throws IOException {
+        List<BinaryReportReader> readers = new ArrayList<>(reports.size());
+        try {
+            boolean budgetReached = false;
+            PriorityQueue<Cursor> cursors = new PriorityQueue<>(Math.max(1, reports.size()), (a, b) -> a.record.compareTo(b.record));
+            for (Path report : reports) {
+                BinaryReportReader reader = new BinaryReportReader(report);
+                readers.add(reader);
+                budgetReached |= reader.isBudgetReached();
+
+                BinaryReportReader.Record record = reader.next();
+                if (record != null)
+                    cursors.add(new Cursor(reader, record));
+            }
+
+            BinaryReportReader.Record previous = null;
+            Cursor cursor;
+            while ((cursor = cursors.poll()) != null) {
+                if (previous == null || previous.compareTo(cursor.record) != 0)
+                    consumer.accept(cursor.record);
+                previous = cursor.record;
+
+                BinaryReportReader.Record next = cursor.reader.next();
+                if (next != null) {
+                    cursor.record = next;
+                    cursors.add(cursor);
+                }
+            }
+
+            return budgetReached;
+        } finally {
+            for (BinaryReportReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    private interface RecordConsumer {
+        void accept(BinaryReportReader.Record record) throws IOException;
+    }
+
+    private static final class Cursor {
+        private final BinaryReportReader reader;
+        private BinaryReportReader.Record record;
+
+        Cursor(BinaryReportReader reader, BinaryReportReader.Record record) {
+            this.reader = reader;
+            this.record = record;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.jarcompatibilitychecker.report;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Receives the incompatibilities of a check as structured events.
+ * A report consists of one call to {@link #start()}, one call to {@link #incompatibility} for every incompatibility grouped by class,
+ * and one call to {@link #finish}. The totals of a report are only passed to {@link #finish}, so incompatibilities can be reported as they are found.
+ * Sinks are closed by whoever created them, not by the checker.
+ */
+public interface ReportSink extends Closeable {
+    /**
+     * Starts a report.
+     */
+    void start() throws IOException;
+
+    /**
+     * Reports an incompatibility. All incompatibilities of a class are reported consecutively.
+     *
+     * @param owner the class the incompatibility was found in
+     */
+    void incompatibility(CheckResult.ClassResult owner, CheckResult.Entry entry) throws IOException;
+
+    /**
+     * Finishes a report.
+     *
+     * @param errorCount the number of reported errors
+     * @param warningCount the number of reported warnings
+     * @param budgetReached whether checking stopped early because the error budget was reached
+     */
+    void finish(int errorCount, int warningCount, boolean budgetReached) throws IOException;
+
+    @Override
+    default void close() throws IOException {}
+
+    /**
+     * Writes the whole check result to the given sink.
+     */
+    static void write(ReportSink sink, CheckResult result) throws IOException {
+        sink.start();
+        for (CheckResult.ClassResult classResult : result.classes) {
+            for (CheckResult.Entry entry : classResult.incompatibilities) {
+                sink.incompatibility(classResult, entry);
+            }
+        }
+        sink.finish(result.getErrorCount(), result.getWarningCount(), result.budgetReached);
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.jarcompatibilitychecker.report;
+
+import com.google.gson.stream.JsonWriter;
+import net.minecraftforge.jarcompatibilitychecker.core.IncompatibilityMessages;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Streams a report as a SARIF 2.1.0 log, as consumed by code scanning dashboards.
+ * Every {@link IncompatibilityMessages} constant is a rule, identified by its {@linkplain IncompatibilityMessages#getTypes() message type}.
+ * Results are written as they are reported, so the size of the report does not affect memory use.
+ * The notification for a reached error budget follows the results, once the totals are known.
+ * Locations point to the source file of the class if it was recorded, and always include the class or member as a logical location.
+ */
+public class SarifReportSink implements ReportSink {
+    private static final String SCHEMA = "https://json.schemastore.org/sarif-2.1.0.json";
+    private static final String INFORMATION_URI = "https://github.com/MinecraftForge/JarCompatibilityChecker";
+    /**
+     * The index of every rule in the rules of the log.
+     */
+    private static final Map<String, Integer> RULE_INDICES = new HashMap<>();
+
+    static {
+        for (String type : IncompatibilityMessages.getTypes().keySet()) {
+            RULE_INDICES.put(type, RULE_INDICES.size());
+        }
+    }
+
+    private final Writer writer;
+    @Nullable
+    private JsonWriter json;
+
+    public SarifReportSink(Writer writer) {
+        this.writer = writer;
+    }
+
+    @Override
+    public void start() throws IOException {
+        JsonWriter json = new JsonWriter(this.writer);
+        json.setHtmlSafe(false);
+        this.json = json;
+
+        json.beginObject();
+        json.name("$schema").value(SCHEMA);
+        json.name("version").value("2.1.0");
+        json.name("runs").beginArray();
+        json.beginObject();
+
+        json.name("tool").beginObject();
+        json.name("driver").beginObject();
+        json.name("name").value("JarCompatibilityChecker");
+        json.name("informationUri").value(INFORMATION_URI);
+        Package pkg = SarifReportSink.class.getPackage();
+        if (pkg != null && pkg.getImplementationVersion() != null)
+            json.name("version").value(pkg.getImplementationVersion());
+        json.name("rules").beginArray();
+        for (Map.Entry<String, String> rule : IncompatibilityMessages.getTypes().entrySet()) {
+            json.beginObject();
+            json.name("id").value(rule.getKey());
+            json.name("shortDescription").beginObject().name("text").value(rule.getValue()).endObject();
+            json.endObject();
+        }
+        json.endArray();
+        json.endObject();
+        json.endObject();
+
+        json.name("results").beginArray();
+    }
+
+    @Override
+    public void incompatibility(CheckResult.ClassResult owner, CheckResult.Entry entry) throws IOException {
+        JsonWriter json = getJson();
+        json.beginObject();
+
+        String type = IncompatibilityMessages.getType(entry.message);
+        if (type != null) {
+            json.name("ruleId").value(type);
+            json.name("ruleIndex").value(RULE_INDICES.get(type));
+        }
+        json.name("level").value(entry.error ? "error" : "warning");
+        json.name("message").beginObject().name("text").value(entry.text).endObject();
+
+        json.name("locations").beginArray().beginObject();
+        if (owner.sourceFile != null) {
+            int packageEnd = owner.name.lastIndexOf('/');
+            String uri = packageEnd == -1 ? owner.sourceFile : owner.name.substring(0, packageEnd + 1) + owner.sourceFile;
+            json.name("physicalLocation").beginObject();
+            json.name("artifactLocation").beginObject().name("uri").value(uri).endObject();
+            json.endObject();
+        }
+
+        String className = owner.name.replace('/', '.');
+        json.name("logicalLocations").beginArray().beginObject();
+        switch (entry.kind) {
+            case CLASS:
+                json.name("fullyQualifiedName").value(className);
+                json.name("kind").value("type");
+                break;
+            case METHOD:
+                json.name("name").value(entry.name);
+                json.name("fullyQualifiedName").value(className + '.' + entry.name + (entry.desc == null ? "" : entry.desc));
+                json.name("kind").value("function");
+                break;
+            default:
+                json.name("name").value(entry.name);
+                json.name("fullyQualifiedName").value(entry.name.equals(owner.name) ? className : className + '.' + entry.name);
+                json.name("kind").value("member");
+                break;
+        }
+        json.endObject().endArray();
+        json.endObject().endArray();
+
+        json.endObject();
+    }
+
+    @Override
+    public void finish(int errorCount, int warningCount, boolean budgetReached) throws IOException {
+        JsonWriter json = getJson();
+        json.endArray();
+
+        if (budgetReached) {
+            json.name("invocations").beginArray().beginObject();
+            json.name("executionSuccessful").value(true);
+            json.name("toolExecutionNotifications").beginArray().beginObject();
+            json.name("level").value("warning");
+            json.name("message").beginObject().name("text").value("Stopped checking after reaching the maximum number of errors; more incompatibilities may exist").endObject();
+            json.endObject().endArray();
+            json.endObject().endArray();
+        }
+
+        json.endObject();
+        json.endArray();
+        json.endObject();
+        json.flush();
+        this.json = null;
+    }
+
+    private JsonWriter getJson() {
+        if (this.json == null)
+            throw new IllegalStateException("Report was not started");
+
+        return this.json;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.writer.close();
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.jarcompatibilitychecker.report;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Writes only the totals of a report: the number of errors and warnings, the number of affected classes and the number of incompatibilities of each kind.
+ */
+public class SummaryReportSink implements ReportSink {
+    private final Writer writer;
+    private final Map<CheckResult.Kind, int[]> kindCounts = new EnumMap<>(CheckResult.Kind.class);
+    private int classCount;
+    @Nullable
+    private String currentClass;
+
+    public SummaryReportSink(Writer writer) {
+        this.writer = writer;
+    }
+
+    @Override
+    public void start() {
+        this.classCount = 0;
+        this.currentClass = null;
+        this.kindCounts.clear();
+    }
+
+    @Override
+    public void incompatibility(CheckResult.ClassResult owner, CheckResult.Entry entry) {
+        if (!owner.name.equals(this.currentClass)) {
+            this.currentClass = owner.name;
+            this.classCount++;
+        }
+
+        this.kindCounts.computeIfAbsent(entry.kind, k -> new int[1])[0]++;
+    }
+
+    @Override
+    public void finish(int errorCount, int warningCount, boolean budgetReached) throws IOException {
+        this.writer.write("Errors: " + errorCount + "\n");
+        this.writer.write("Warnings: " + warningCount + "\n");
+        this.writer.write("Classes: " + this.classCount + "\n");
+        for (CheckResult.Kind kind : CheckResult.Kind.values()) {
+            int[] count = this.kindCounts.get(kind);
+            this.writer.write(kind.name().charAt(0) + kind.name().substring(1).toLowerCase(Locale.ROOT) + " incompatibilities: " + (count == null ? 0 : count[0]) + "\n");
+        }
+        if (budgetReached)
+            this.writer.write("Stopped checking after reaching the maximum number of errors\n");
+        this.writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.writer.close();
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.jarcompatibilitychecker.report;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes a report in the same human-readable format which is logged to the console.
+ * Incompatibilities are written as they are reported, followed by the totals.
+ */
+public class TextReportSink implements ReportSink {
+    private final Writer writer;
+    @Nullable
+    private String currentClass;
+
+    public TextReportSink(Writer writer) {
+        this.writer = writer;
+    }
+
+    @Override
+    public void start() {
+        this.currentClass = null;
+    }
+
+    @Override
+    public void incompatibility(CheckResult.ClassResult owner, CheckResult.Entry entry) throws IOException {
+        if (!owner.name.equals(this.currentClass)) {
+            this.currentClass = owner.name;
+            this.writer.write(owner.name);
+            this.writer.write(":\n");
+        }
+
+        this.writer.write(entry.error ? "- error: " : "- warning: ");
+        this.writer.write(entry.text);
+        this.writer.write('\n');
+    }
+
+    @Override
+    public void finish(int errorCount, int warningCount, boolean budgetReached) throws IOException {
+        if (errorCount == 0 && warningCount == 0) {
+            this.writer.write("No incompatibilities found\n");
+        } else {
+            this.writer.write("Incompatibilities found: " + errorCount + " errors, " + warningCount + " warnings\n");
+            if (budgetReached)
+                this.writer.write("Stopped checking after reaching the maximum number of errors; more incompatibilities may exist\n");
+        }
+        this.writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.writer.close();
+    }
+}
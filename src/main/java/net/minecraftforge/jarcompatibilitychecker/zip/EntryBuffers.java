@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.jarcompatibilitychecker.zip;
+
+import java.util.zip.Inflater;
+
+/**
+ * Per-thread scratch space used by {@link ZipArchive} to read entries without allocating.
+ * The buffers only ever grow, so after the largest entry of a JAR has been read no further allocations are made.
+ */
+final class EntryBuffers {
+    static final byte[] PADDING = new byte[1];
+
+    final Inflater inflater = new Inflater(true);
+    private byte[] input = new byte[8192];
+    private byte[] output = new byte[16384];
+
+    byte[] input(int size) {
+        if (this.input.length < size)
+            this.input = new byte[grow(size)];
+        return this.input;
+    }
+
+    byte[] output(int size) {
+        if (this.output.length < size)
+            this.output = new byte[grow(size)];
+        return this.output;
+    }
+
+    private static int grow(int size) {
+        int highest = Integer.highestOneBit(size);
+        return highest == size || highest >= (1 << 30) ? size : highest << 1;
+    }
+}
@@ -0,0 +1,353 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.jarcompatibilitychecker.zip;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * A read-only ZIP reader which parses the central directory of an archive directly from a {@link ByteBuffer}.
+ * Archives on the default file system are memory-mapped, so reading an entry never goes through an {@link java.io.InputStream}.
+ * Entry data is handed out through pooled, per-thread buffers which are sized from the central directory header.
+ */
+public final class ZipArchive implements Closeable {
+    private static final int LOCAL_HEADER_SIG = 0x04034b50;
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final int CENTRAL_HEADER_SIG = 0x02014b50;
+    private static final int CENTRAL_HEADER_SIZE = 46;
+    private static final int END_HEADER_SIG = 0x06054b50;
+    private static final int END_HEADER_SIZE = 22;
+    private static final int ZIP64_LOCATOR_SIG = 0x07064b50;
+    private static final int ZIP64_LOCATOR_SIZE = 20;
+    private static final int ZIP64_END_HEADER_SIG = 0x06064b50;
+    private static final int ZIP64_EXTRA_ID = 0x0001;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+
+    private static final ThreadLocal<EntryBuffers> BUFFERS = ThreadLocal.withInitial(EntryBuffers::new);
+
+    private final String name;
+    @Nullable
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final List<Entry> entries;
+
+    private ZipArchive(String name, @Nullable FileChannel channel, ByteBuffer buffer) throws IOException {
+        this.name = name;
+        this.channel = channel;
+        this.buffer = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        this.entries = Collections.unmodifiableList(readCentralDirectory());
+    }
+
+    /**
+     * Opens the archive at the given path.
+     * Archives on the default file system are memory-mapped; archives on any other file system (e.g. nested inside another zip file system) are read into memory.
+     */
+    public static ZipArchive open(Path path) throws IOException {
+        if (path.getFileSystem() != FileSystems.getDefault())
+            return wrap(path.toString(), ByteBuffer.wrap(Files.readAllBytes(path)));
+
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            throw new FileNotFoundException("Could not open JAR file: " + e.getMessage());
+        }
+
+        try {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+                throw new ZipException("Archive " + path + " is too large to be mapped (" + size + " bytes)");
+
+            return new ZipArchive(path.toString(), channel, channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Wraps an archive which is already present in memory.
+     * The buffer is not copied, so it must not be modified while this archive is in use.
+     */
+    public static ZipArchive wrap(String name, ByteBuffer buffer) throws IOException {
+        return new ZipArchive(name, null, buffer);
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    @NotNull
+    public List<Entry> getEntries() {
+        return this.entries;
+    }
+
+    /**
+     * Passes the uncompressed contents of the given entry to the consumer.
+     * Stored entries of heap-backed archives are passed without any copy; all other entries are passed through a pooled buffer.
+     * In either case, the array is only valid for the duration of the call and must not be retained or modified by the consumer.
+     */
+    public void read(Entry entry, DataConsumer consumer) throws IOException {
+        ByteBuffer raw = getRawData(entry);
+
+        if (entry.method == Entry.STORED) {
+            if (raw.hasArray()) {
+                consumer.accept(raw.array(), raw.arrayOffset() + raw.position(), raw.remaining());
+            } else {
+                byte[] data = BUFFERS.get().output(entry.size);
+                raw.get(data, 0, entry.size);
+                consumer.accept(data, 0, entry.size);
+            }
+            return;
+        }
+
+        EntryBuffers buffers = BUFFERS.get();
+        byte[] data = buffers.output(entry.size);
+        inflate(entry, raw, buffers, data);
+        consumer.accept(data, 0, entry.size);
+    }
+
+    /**
+     * @return a newly allocated array holding the uncompressed contents of the given entry, which the caller owns
+     */
+    public byte[] readBytes(Entry entry) throws IOException {
+        ByteBuffer raw = getRawData(entry);
+        byte[] data = new byte[entry.size];
+
+        if (entry.method == Entry.STORED) {
+            raw.get(data);
+        } else {
+            inflate(entry, raw, BUFFERS.get(), data);
+        }
+
+        return data;
+    }
+
+    /**
+     * @return a view of the raw (possibly compressed) bytes of the given entry
+     */
+    public ByteBuffer getRawData(Entry entry) throws IOException {
+        ByteBuffer buf = this.buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int headerOffset = entry.localHeaderOffset;
+        if (headerOffset < 0 || headerOffset > buf.limit() - LOCAL_HEADER_SIZE || buf.getInt(headerOffset) != LOCAL_HEADER_SIG)
+            throw new ZipException("Invalid local header for entry " + entry.name + " in " + this.name);
+
+        int dataOffset = headerOffset + LOCAL_HEADER_SIZE + (buf.getShort(headerOffset + 26) & 0xFFFF) + (buf.getShort(headerOffset + 28) & 0xFFFF);
+        if (dataOffset > buf.limit() - entry.compressedSize)
+            throw new ZipException("Entry " + entry.name + " extends past the end of " + this.name);
+
+        buf.position(dataOffset);
+        buf.limit(dataOffset + entry.compressedSize);
+        return buf.slice();
+    }
+
+    private void inflate(Entry entry, ByteBuffer raw, EntryBuffers buffers, byte[] data) throws IOException {
+        int compressedSize = raw.remaining();
+        byte[] input;
+        int inputOffset;
+        if (raw.hasArray()) {
+            input = raw.array();
+            inputOffset = raw.arrayOffset() + raw.position();
+        } else {
+            input = buffers.input(compressedSize);
+            inputOffset = 0;
+            raw.get(input, 0, compressedSize);
+        }
+
+        Inflater inflater = buffers.inflater;
+        inflater.reset();
+        inflater.setInput(input, inputOffset, compressedSize);
+
+        try {
+            int read = 0;
+            boolean padded = false;
+            while (read < entry.size) {
+                int count = inflater.inflate(data, read, entry.size - read);
+                if (count == 0) {
+                    // In nowrap mode, zlib may require an extra dummy byte after the end of the compressed data
+                    if (inflater.needsInput() && !padded) {
+                        inflater.setInput(EntryBuffers.PADDING);
+                        padded = true;
+                    } else if (inflater.finished() || inflater.needsInput() || inflater.needsDictionary()) {
+                        break;
+                    }
+                }
+                read += count;
+            }
+
+            if (read != entry.size)
+                throw new ZipException("Entry " + entry.name + " in " + this.name + " inflated to " + read + " bytes, expected " + entry.size);
+        } catch (DataFormatException e) {
+            throw new ZipException("Invalid compressed data for entry " + entry.name + " in " + this.name + ": " + e.getMessage());
+        }
+    }
+
+    private List<Entry> readCentralDirectory() throws IOException {
+        ByteBuffer buf = this.buffer;
+        int endOffset = findEndHeader(buf);
+        long entryCount = buf.getShort(endOffset + 10) & 0xFFFF;
+        long directoryOffset = buf.getInt(endOffset + 16) & 0xFFFFFFFFL;
+
+        int locatorOffset = endOffset - ZIP64_LOCATOR_SIZE;
+        if (locatorOffset >= 0 && buf.getInt(locatorOffset) == ZIP64_LOCATOR_SIG) {
+            long zip64EndOffset = buf.getLong(locatorOffset + 8);
+            if (zip64EndOffset < 0 || zip64EndOffset > buf.limit() - 56 || buf.getInt((int) zip64EndOffset) != ZIP64_END_HEADER_SIG)
+                throw new ZipException("Invalid ZIP64 end of central directory in " + this.name);
+
+            entryCount = buf.getLong((int) zip64EndOffset + 32);
+            directoryOffset = buf.getLong((int) zip64EndOffset + 48);
+        }
+
+        if (directoryOffset < 0 || directoryOffset > endOffset || entryCount < 0 || entryCount > buf.limit() / CENTRAL_HEADER_SIZE)
+            throw new ZipException("Invalid central directory in " + this.name);
+
+        List<Entry> entries = new ArrayList<>((int) entryCount);
+        int offset = (int) directoryOffset;
+        for (long i = 0; i < entryCount; i++) {
+            if (offset > buf.limit() - CENTRAL_HEADER_SIZE || buf.getInt(offset) != CENTRAL_HEADER_SIG)
+                throw new ZipException("Invalid central directory header in " + this.name);
+
+            int flags = buf.getShort(offset + 8) & 0xFFFF;
+            int method = buf.getShort(offset + 10) & 0xFFFF;
+            int crc = buf.getInt(offset + 16);
+            long compressedSize = buf.getInt(offset + 20) & 0xFFFFFFFFL;
+            long size = buf.getInt(offset + 24) & 0xFFFFFFFFL;
+            int nameLength = buf.getShort(offset + 28) & 0xFFFF;
+            int extraLength = buf.getShort(offset + 30) & 0xFFFF;
+            int commentLength = buf.getShort(offset + 32) & 0xFFFF;
+            long localHeaderOffset = buf.getInt(offset + 42) & 0xFFFFFFFFL;
+
+            int nameOffset = offset + CENTRAL_HEADER_SIZE;
+            if (nameOffset > buf.limit() - nameLength - extraLength)
+                throw new ZipException("Invalid central directory header in " + this.name);
+
+            byte[] nameBytes = new byte[nameLength];
+            ByteBuffer nameBuf = buf.duplicate();
+            nameBuf.position(nameOffset);
+            nameBuf.get(nameBytes);
+            String entryName = new String(nameBytes, StandardCharsets.UTF_8);
+
+            if (compressedSize == 0xFFFFFFFFL || size == 0xFFFFFFFFL || localHeaderOffset == 0xFFFFFFFFL) {
+                // ZIP64 extended information; fields are only present if the corresponding central header field is saturated
+                int extraOffset = nameOffset + nameLength;
+                int extraEnd = extraOffset + extraLength;
+                while (extraOffset + 4 <= extraEnd) {
+                    int id = buf.getShort(extraOffset) & 0xFFFF;
+                    int length = buf.getShort(extraOffset + 2) & 0xFFFF;
+                    if (id == ZIP64_EXTRA_ID) {
+                        int field = extraOffset + 4;
+                        if (size == 0xFFFFFFFFL) {
+                            size = buf.getLong(field);
+                            field += 8;
+                        }
+                        if (compressedSize == 0xFFFFFFFFL) {
+                            compressedSize = buf.getLong(field);
+                            field += 8;
+                        }
+                        if (localHeaderOffset == 0xFFFFFFFFL)
+                            localHeaderOffset = buf.getLong(field);
+                        break;
+                    }
+                    extraOffset += 4 + length;
+                }
+            }
+
+            if ((flags & 1) != 0)
+                throw new ZipException("Entry " + entryName + " in " + this.name + " is encrypted");
+            if (method != Entry.STORED && method != Entry.DEFLATED)
+                throw new ZipException("Entry " + entryName + " in " + this.name + " uses unsupported compression method " + method);
+            if (size > Integer.MAX_VALUE || compressedSize > Integer.MAX_VALUE || localHeaderOffset > Integer.MAX_VALUE)
+                throw new ZipException("Entry " + entryName + " in " + this.name + " is too large");
+
+            entries.add(new Entry(entryName, method, crc, (int) compressedSize, (int) size, (int) localHeaderOffset));
+            offset = nameOffset + nameLength + extraLength + commentLength;
+        }
+
+        return entries;
+    }
+
+    private int findEndHeader(ByteBuffer buf) throws ZipException {
+        int last = buf.limit() - END_HEADER_SIZE;
+        int first = Math.max(0, last - MAX_COMMENT_SIZE);
+        for (int offset = last; offset >= first; offset--) {
+            if (buf.getInt(offset) == END_HEADER_SIG && offset + END_HEADER_SIZE + (buf.getShort(offset + 20) & 0xFFFF) <= buf.limit())
+                return offset;
+        }
+
+        throw new ZipException("Could not find end of central directory in " + this.name);
+    }
+
+    /**
+     * Releases the underlying file handle.
+     * The mapping itself is only released once it is garbage collected, so entries can still be read after the archive is closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.channel != null)
+            this.channel.close();
+    }
+
+    @Override
+    public String toString() {
+        return this.name;
+    }
+
+    public static final class Entry {
+        public static final int STORED = 0;
+        public static final int DEFLATED = 8;
+
+        public final String name;
+        public final int method;
+        /**
+         * The CRC-32 of the uncompressed data, as recorded in the central directory.
+         */
+        public final int crc;
+        public final int compressedSize;
+        public final int size;
+        final int localHeaderOffset;
+
+        Entry(String name, int method, int crc, int compressedSize, int size, int localHeaderOffset) {
+            this.name = name;
+            this.method = method;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+
+        public boolean isDirectory() {
+            return this.name.endsWith("/");
+        }
+
+        @Override
+        public String toString() {
+            return this.name;
+        }
+    }
+
+    @FunctionalInterface
+    public interface DataConsumer {
+        void accept(byte[] data, int offset, int length) throws IOException;
+    }
+}
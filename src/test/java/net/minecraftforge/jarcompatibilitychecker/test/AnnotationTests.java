@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.jarcompatibilitychecker.test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import net.minecraftforge.jarcompatibilitychecker.core.AnnotationCheckMode;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassInfoCache;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassInfoComparer;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassInfoComparisonResults;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassSource;
+import net.minecraftforge.jarcompatibilitychecker.core.Incompatibility;
+import net.minecraftforge.jarcompatibilitychecker.core.IncompatibilityMessages;
+import net.minecraftforge.jarcompatibilitychecker.core.InternalAnnotationCheckMode;
+import net.minecraftforge.jarcompatibilitychecker.core.InternalApiMatcher;
+import net.minecraftforge.jarcompatibilitychecker.data.AnnotationInfo;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AnnotationTests extends BaseCompatibilityTest {
+    @Test
+    public void testAnnotationValuesCompareByContent() {
+        AnnotationInfo a = new AnnotationInfo("LA;", ImmutableList.of("value", new int[] { 1, 2 }));
+        AnnotationInfo b = new AnnotationInfo("LA;", ImmutableList.of("value", new int[] { 1, 2 }));
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+        assertNotEquals(a, new AnnotationInfo("LA;", ImmutableList.of("value", new int[] { 1, 3 })));
+    }
+
+    @Test
+    public void testAddedAnnotation() throws IOException {
+        List<Incompatibility<?>> incompatibilities = compare(AnnotationCheckMode.ERROR_ADDED, ImmutableMap.of("LKept;", 1), ImmutableMap.of("LKept;", 1, "LAdded;", 1));
+        assertEquals(1, incompatibilities.size(), incompatibilities.toString());
+        assertEquals(IncompatibilityMessages.ANNOTATION_ADDED, incompatibilities.get(0).getMessage());
+        assertTrue(incompatibilities.get(0).isError());
+    }
+
+    @Test
+    public void testRemovedAndChangedAnnotations() throws IOException {
+        // Removals and value changes are only reported by the changed modes
+        assertTrue(compare(AnnotationCheckMode.WARN_ADDED, ImmutableMap.of("LRemoved;", 1, "LChanged;", 1), ImmutableMap.of("LChanged;", 2)).isEmpty());
+
+        List<Incompatibility<?>> incompatibilities = compare(AnnotationCheckMode.WARN_CHANGED, ImmutableMap.of("LRemoved;", 1, "LChanged;", 1), ImmutableMap.of("LChanged;", 2));
+        assertEquals(2, incompatibilities.size(), incompatibilities.toString());
+        assertEquals(IncompatibilityMessages.ANNOTATION_REMOVED, incompatibilities.get(0).getMessage());
+        assertEquals(String.format(Locale.ROOT, IncompatibilityMessages.ANNOTATION_CHANGED, "@Changed(value=2)"), incompatibilities.get(1).getMessage());
+        assertFalse(incompatibilities.get(1).isError());
+    }
+
+    @Test
+    public void testAnnotationsAreInterned() throws IOException {
+        ClassInfoCache cache = ClassInfoCache.fromSource(ClassSource.ofClasses(ImmutableList.of(annotatedClass("A", ImmutableMap.of("LKept;", 1)),
+                annotatedClass("B", ImmutableMap.of("LKept;", 1)), annotatedClass("C", ImmutableMap.of()), annotatedClass("D", ImmutableMap.of()))));
+        assertSame(cache.getMainClassInfo("A").getMethod("foo", "()V").annotations, cache.getMainClassInfo("B").getMethod("foo", "()V").annotations);
+        assertSame(cache.getMainClassInfo("C").getMethod("foo", "()V").annotations, cache.getMainClassInfo("D").getMethod("foo", "()V").annotations);
+    }
+
+    @Test
+    public void testInheritedInternalApi() throws IOException {
+        // pkg/A.foo() is removed, and only the package of A is marked internal
+        ClassInfoCache baseCache = ClassInfoCache.fromSource(ClassSource.ofClasses(ImmutableList.of(packageInfo("pkg"), annotatedClass("pkg/A", ImmutableMap.of()))));
+        ClassInfoCache inputCache = ClassInfoCache.fromSource(ClassSource.ofClasses(ImmutableList.of(packageInfo("pkg"), emptyClass("pkg/A"))));
+
+        List<Incompatibility<?>> incompatibilities = compareInternal(baseCache, inputCache, false, InternalAnnotationCheckMode.WARN);
+        assertEquals(1, incompatibilities.size(), incompatibilities.toString());
+        assertTrue(incompatibilities.get(0).isError());
+
+        incompatibilities = compareInternal(baseCache, inputCache, true, InternalAnnotationCheckMode.WARN);
+        assertEquals(1, incompatibilities.size(), incompatibilities.toString());
+        assertFalse(incompatibilities.get(0).isError());
+
+        assertTrue(compareInternal(baseCache, inputCache, true, InternalAnnotationCheckMode.SKIP).isEmpty());
+        assertTrue(compareInternal(baseCache, inputCache, true, InternalAnnotationCheckMode.ERROR).get(0).isError());
+    }
+
+    private static List<Incompatibility<?>> compareInternal(ClassInfoCache baseCache, ClassInfoCache inputCache, boolean inherit, InternalAnnotationCheckMode mode) {
+        InternalApiMatcher internalApi = new InternalApiMatcher(InternalAnnotationCheckMode.DEFAULT_INTERNAL_ANNOTATIONS, inherit);
+        return ClassInfoComparer.compare(true, null, internalApi, mode, baseCache, baseCache.getMainClassInfo("pkg/A"), inputCache,
+                inputCache.getMainClassInfo("pkg/A"), null).getIncompatibilities();
+    }
+
+    private static List<Incompatibility<?>> compare(AnnotationCheckMode mode, Map<String, Integer> baseAnnotations, Map<String, Integer> inputAnnotations) throws IOException {
+        ClassInfoCache baseCache = ClassInfoCache.fromSource(ClassSource.ofClasses(ImmutableList.of(annotatedClass("A", baseAnnotations))));
+        ClassInfoCache inputCache = ClassInfoCache.fromSource(ClassSource.ofClasses(ImmutableList.of(annotatedClass("A", inputAnnotations))));
+        ClassInfoComparisonResults results = ClassInfoComparer.compare(true, mode, baseCache, baseCache.getMainClassInfo("A"), inputCache, inputCache.getMainClassInfo("A"));
+        return results.getIncompatibilities();
+    }
+
+    /**
+     * Creates a class with a method foo annotated with the given annotation descriptors, each with an int value.
+     */
+    private static byte[] annotatedClass(String name, Map<String, Integer> annotations) {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, name, null, "java/lang/Object", null);
+        MethodVisitor method = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, "foo", "()V", null, null);
+        for (Map.Entry<String, Integer> entry : annotations.entrySet()) {
+            AnnotationVisitor annotation = method.visitAnnotation(entry.getKey(), true);
+            annotation.visit("value", entry.getValue());
+            annotation.visitEnd();
+        }
+        method.visitEnd();
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private static byte[] emptyClass(String name) {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, name, null, "java/lang/Object", null);
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    /**
+     * Creates the package-info class of the given package, marked with the default internal annotation.
+     */
+    private static byte[] packageInfo(String packageName) {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_ABSTRACT | Opcodes.ACC_INTERFACE | Opcodes.ACC_SYNTHETIC, packageName + "/package-info", null, "java/lang/Object", null);
+        writer.visitAnnotation(InternalAnnotationCheckMode.DEFAULT_INTERNAL_ANNOTATIONS.get(0), false).visitEnd();
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+}
@@ -7,18 +7,36 @@ package net.minecraftforge.jarcompatibilitychecker.test;
 import net.minecraftforge.jarcompatibilitychecker.core.ClassInfoCache;
 import net.minecraftforge.jarcompatibilitychecker.core.ClassInfoComparer;
 import net.minecraftforge.jarcompatibilitychecker.core.ClassInfoComparisonResults;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassSource;
+import net.minecraftforge.jarcompatibilitychecker.core.CompareEngine;
 import net.minecraftforge.jarcompatibilitychecker.core.Incompatibility;
+import net.minecraftforge.jarcompatibilitychecker.core.InternalAnnotationCheckMode;
+import net.minecraftforge.jarcompatibilitychecker.core.InternalApiMatcher;
 import net.minecraftforge.jarcompatibilitychecker.data.ClassInfo;
+import net.minecraftforge.jarcompatibilitychecker.data.FieldInfo;
+import net.minecraftforge.jarcompatibilitychecker.data.MethodInfo;
 import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -108,12 +126,128 @@ public abstract class BaseCompatibilityTest {
             ClassInfo baseClassInfo = baseCache.getMainClassInfo(className);
             assertNotNull(baseClassInfo, "Class with name " + className + " not found in " + baseFolder);
 
-            return ClassInfoComparer.compare(checkBinary, baseCache, baseClassInfo, inputCache, inputCache.getMainClassInfo(className));
+            ClassInfo inputClassInfo = inputCache.getMainClassInfo(className);
+            ClassInfoComparisonResults results = ClassInfoComparer.compare(checkBinary, baseCache, baseClassInfo, inputCache, inputClassInfo);
+
+            // The merge-join engine must find the same incompatibilities, though possibly in another order
+            ClassInfoComparisonResults mergeJoinResults = ClassInfoComparer.compare(checkBinary, null,
+                    new InternalApiMatcher(InternalAnnotationCheckMode.DEFAULT_INTERNAL_ANNOTATIONS, false), InternalAnnotationCheckMode.DEFAULT_MODE,
+                    baseCache, baseClassInfo, inputCache, inputClassInfo, null, null, CompareEngine.MERGE_JOIN);
+            assertEquals(sortedIncompatibilities(results), sortedIncompatibilities(mergeJoinResults), className + " had different incompatibilities with the merge-join engine");
+
+            return results;
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    private static List<String> sortedIncompatibilities(ClassInfoComparisonResults results) {
+        List<String> incompatibilities = new ArrayList<>();
+        for (Incompatibility<?> incompatibility : results.getIncompatibilities()) {
+            incompatibilities.add(incompatibility.toString() + " error=" + incompatibility.isError());
+        }
+        Collections.sort(incompatibilities);
+        return incompatibilities;
+    }
+
+    protected static void assertClassEquals(ClassInfo expected, ClassInfo actual) {
+        assertEquals(expected.name, actual.name);
+        assertEquals(expected.access, actual.access);
+        assertEquals(expected.superName, actual.superName);
+        assertEquals(expected.getInterfaces(), actual.getInterfaces());
+        assertEquals(expected.sourceFile, actual.sourceFile);
+        assertEquals(expected.annotations, actual.annotations);
+        assertEquals(expected.getMethods().keySet(), actual.getMethods().keySet());
+        for (MethodInfo method : expected.getMethods().values()) {
+            MethodInfo other = actual.getMethod(method.name, method.desc);
+            assertEquals(method.access, other.access);
+            assertEquals(method.exceptions, other.exceptions);
+            assertEquals(method.annotations, other.annotations);
+            assertEquals(method.bouncer == null ? null : method.bouncer.name + method.bouncer.desc, other.bouncer == null ? null : other.bouncer.name + other.bouncer.desc);
+        }
+        assertEquals(expected.getFields().keySet(), actual.getFields().keySet());
+        for (FieldInfo field : expected.getFields().values()) {
+            FieldInfo other = actual.getField(field.name);
+            assertEquals(field.desc, other.desc);
+            assertEquals(field.access, other.access);
+            assertEquals(field.annotations, other.annotations);
+        }
+    }
+
+    /**
+     * Generates a class with annotation values of every kind, a bridge method, declared exceptions and a field.
+     */
+    protected static byte[] indexedClass(String className) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, className, null, "java/lang/Object", new String[] { "java/io/Serializable" });
+        writer.visitSource("Indexed.java", null);
+        AnnotationVisitor annotation = writer.visitAnnotation("Llib/Values;", true);
+        annotation.visit("byte", (byte) 1);
+        annotation.visit("char", 'c');
+        annotation.visit("long", Long.MAX_VALUE);
+        annotation.visit("double", 0.5D);
+        annotation.visit("ints", new int[] { 1, 2, 3 });
+        annotation.visit("type", Type.getType("Ljava/lang/String;"));
+        annotation.visitEnum("enum", "Ljava/lang/annotation/RetentionPolicy;", "RUNTIME");
+        AnnotationVisitor array = annotation.visitArray("strings");
+        array.visit(null, "a");
+        array.visit(null, "\u00e4");
+        array.visitEnd();
+        annotation.visitAnnotation("nested", "Llib/Nested;").visitEnd();
+        annotation.visitEnd();
+        writer.visitAnnotation("Llib/Invisible;", false).visitEnd();
+
+        MethodVisitor method = writer.visitMethod(Opcodes.ACC_PUBLIC, "get", "()Ljava/lang/String;", null, new String[] { "java/io/IOException" });
+        method.visitAnnotation("Ljava/lang/Deprecated;", true).visitEnd();
+        method.visitCode();
+        method.visitInsn(Opcodes.ACONST_NULL);
+        method.visitInsn(Opcodes.ARETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+
+        MethodVisitor bridge = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_BRIDGE | Opcodes.ACC_SYNTHETIC, "get", "()Ljava/lang/Object;", null, null);
+        bridge.visitCode();
+        bridge.visitVarInsn(Opcodes.ALOAD, 0);
+        bridge.visitMethodInsn(Opcodes.INVOKEVIRTUAL, className, "get", "()Ljava/lang/String;", false);
+        bridge.visitInsn(Opcodes.ARETURN);
+        bridge.visitMaxs(0, 0);
+        bridge.visitEnd();
+
+        writer.visitField(Opcodes.ACC_PRIVATE, "value", "I", null, null).visitAnnotation("Llib/Field;", false).visitEnd();
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    /**
+     * Writes a JAR holding the given classes, and nested JARs for entries ending with {@code .jar}.
+     */
+    protected static byte[] jarBytes(Map<String, byte[]> entries) throws IOException {
+        ByteArrayOutputStream jar = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(jar)) {
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                out.putNextEntry(new ZipEntry(entry.getKey().endsWith(".jar") ? entry.getKey() : entry.getKey() + ".class"));
+                out.write(entry.getValue());
+                out.closeEntry();
+            }
+        }
+        return jar.toByteArray();
+    }
+
+    /**
+     * Stores the given classes of a test folder in an in-memory JAR.
+     */
+    protected static ClassSource jar(Path folder, String... classNames) throws IOException {
+        ByteArrayOutputStream jar = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(jar)) {
+            for (String className : classNames) {
+                out.putNextEntry(new ZipEntry(className + ".class"));
+                out.write(Files.readAllBytes(folder.resolve(className + ".dat")));
+                out.closeEntry();
+            }
+        }
+        return ClassSource.ofJar(() -> new ByteArrayInputStream(jar.toByteArray()));
+    }
+
     protected static class IncompatibilityData {
         private final String name;
         @Nullable
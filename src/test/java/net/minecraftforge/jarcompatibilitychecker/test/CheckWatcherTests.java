@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.jarcompatibilitychecker.test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import net.minecraftforge.jarcompatibilitychecker.JarCompatibilityChecker;
+import net.minecraftforge.jarcompatibilitychecker.report.CheckResult;
+import net.minecraftforge.jarcompatibilitychecker.report.ReportSink;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CheckWatcherTests {
+    private static final long TIMEOUT_SECONDS = 30;
+
+    @TempDir
+    Path tempDir;
+    private final BlockingQueue<Set<String>> reports = new LinkedBlockingQueue<>();
+    private final BlockingQueue<String> changes = new LinkedBlockingQueue<>();
+    private final CountDownLatch watching = new CountDownLatch(1);
+    private Thread watcher;
+    private volatile Exception failure;
+
+    @AfterEach
+    public void stopWatcher() throws InterruptedException {
+        if (this.watcher != null) {
+            this.watcher.interrupt();
+            this.watcher.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+        }
+    }
+
+    @Test
+    public void testJarChanges() throws Exception {
+        Path baseJar = this.tempDir.resolve("base.jar");
+        Path inputJar = this.tempDir.resolve("input.jar");
+        writeJar(baseJar, true, true, true);
+        writeJar(inputJar, false, true, true);
+
+        // Child inherits run() from a class of a nested JAR, which must not be reported as removed
+        startWatcher(baseJar, inputJar);
+        assertEquals(ImmutableSet.of(), nextReport());
+
+        // A single changed class is parsed and compared again
+        replaceJar(inputJar, false, false, true);
+        assertEquals("Detected changes to 1 classes, rechecking", nextChange());
+        assertEquals(ImmutableSet.of("Other.run()V"), nextReport());
+
+        // Rebuilding the JAR with a changed nested class affects the class inheriting from it
+        replaceJar(inputJar, false, false, false);
+        assertEquals("Detected changes to 1 classes, rechecking", nextChange());
+        assertEquals(ImmutableSet.of("Other.run()V", "Child.run()V"), nextReport());
+
+        // Writing the same JAR again does not cause a recheck
+        replaceJar(inputJar, false, false, false);
+        replaceJar(inputJar, false, true, true);
+        assertEquals("Detected changes to 2 classes, rechecking", nextChange());
+        assertEquals(ImmutableSet.of(), nextReport());
+    }
+
+    private void startWatcher(Path baseJar, Path inputJar) throws InterruptedException {
+        JarCompatibilityChecker checker = new JarCompatibilityChecker(baseJar.toFile(), inputJar.toFile(), true, null,
+                ImmutableList.of(), ImmutableList.of(), ImmutableList.of(), line -> {
+                    if (line.startsWith("Watching "))
+                        this.watching.countDown();
+                    else if (line.startsWith("Detected changes"))
+                        this.changes.add(line);
+                }, line -> {});
+        checker.addReportSink(new ReportSink() {
+            private Set<String> members;
+
+            @Override
+            public void start() {
+                this.members = new HashSet<>();
+            }
+
+            @Override
+            public void incompatibility(CheckResult.ClassResult owner, CheckResult.Entry entry) {
+                this.members.add(owner.name + '.' + entry.name + entry.desc);
+            }
+
+            @Override
+            public void finish(int errorCount, int warningCount, boolean budgetReached) {
+                CheckWatcherTests.this.reports.add(this.members);
+            }
+        });
+
+        this.watcher = new Thread(() -> {
+            try {
+                checker.watch();
+            } catch (InterruptedException e) {
+                // Stopped by the test
+            } catch (IOException | RuntimeException e) {
+                this.failure = e;
+                this.watching.countDown();
+            }
+        }, "CheckWatcherTests");
+        this.watcher.setDaemon(true);
+        this.watcher.start();
+        assertTrue(this.watching.await(TIMEOUT_SECONDS, TimeUnit.SECONDS), "Watcher did not start");
+        assertNull(this.failure, "Watcher failed");
+    }
+
+    private Set<String> nextReport() throws InterruptedException {
+        Set<String> report = this.reports.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull(report, "No report within the timeout");
+        return report;
+    }
+
+    private String nextChange() throws InterruptedException {
+        String change = this.changes.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull(change, "No change detected within the timeout");
+        return change;
+    }
+
+    /**
+     * Rebuilds the JAR next to the input and moves it into place, like build tools do.
+     */
+    private void replaceJar(Path jar, boolean childMethod, boolean otherMethod, boolean nestedParentMethod) throws IOException {
+        Path temp = Files.createTempFile(this.tempDir, "rebuilt", ".tmp");
+        writeJar(temp, childMethod, otherMethod, nestedParentMethod);
+        Files.move(temp, jar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeJar(Path jar, boolean childMethod, boolean otherMethod, boolean nestedParentMethod) throws IOException {
+        ByteArrayOutputStream nested = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(nested)) {
+            putClass(out, "NestedParent", "java/lang/Object", nestedParentMethod);
+        }
+
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+            putClass(out, "Child", "NestedParent", childMethod);
+            putClass(out, "Other", "java/lang/Object", otherMethod);
+            out.putNextEntry(new ZipEntry("META-INF/jarjar/nested.jar"));
+            out.write(nested.toByteArray());
+            out.closeEntry();
+        }
+    }
+
+    private static void putClass(ZipOutputStream out, String name, String superName, boolean method) throws IOException {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, name, null, superName, null);
+        if (method)
+            writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, "run", "()V", null, null).visitEnd();
+        writer.visitEnd();
+
+        out.putNextEntry(new ZipEntry(name + ".class"));
+        out.write(writer.toByteArray());
+        out.closeEntry();
+    }
+}
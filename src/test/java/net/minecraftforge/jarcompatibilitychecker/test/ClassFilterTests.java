@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.jarcompatibilitychecker.test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassFilter;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassInfoCache;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassInfoComparer;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassInfoComparisonResults;
+import net.minecraftforge.jarcompatibilitychecker.core.IncompatibilityMessages;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClassFilterTests extends BaseCompatibilityTest {
+    private static final ClassFilter API_FILTER = ClassFilter.of(ImmutableList.of("net.minecraftforge.api.**", "A"), ImmutableList.of("**/internal/*"));
+
+    @Test
+    public void testGlobs() {
+        assertTrue(API_FILTER.matches("net/minecraftforge/api/Foo"));
+        assertTrue(API_FILTER.matches("net/minecraftforge/api/event/Foo$Bar"));
+        assertTrue(API_FILTER.matchesEntry("net/minecraftforge/api/event/Foo.class"));
+        assertFalse(API_FILTER.matches("net/minecraftforge/api/internal/Foo"));
+        assertTrue(API_FILTER.matches("net/minecraftforge/api/internal/sub/Foo"));
+        assertFalse(API_FILTER.matches("net/minecraftforge/apix/Foo"));
+        assertTrue(API_FILTER.matches("A"));
+        assertFalse(API_FILTER.matches("AB"));
+        assertTrue(ClassFilter.of(ImmutableList.of("a/*/C?"), ImmutableList.of()).matches("a/b/C1"));
+        assertFalse(ClassFilter.of(ImmutableList.of("a/*/C?"), ImmutableList.of()).matches("a/b/c/C1"));
+        assertSame(ClassFilter.ALL, ClassFilter.of(ImmutableList.of(), ImmutableList.of()));
+    }
+
+    @Test
+    public void testShardsAreDisjoint() {
+        List<String> classNames = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            classNames.add("net/minecraftforge/api/pkg" + i % 10 + "/Class" + i);
+            classNames.add("net/minecraftforge/api/internal/Class" + i);
+        }
+
+        for (int shardCount : new int[] { 1, 2, 3, 7 }) {
+            Set<String> sharded = new HashSet<>();
+            for (int i = 0; i < shardCount; i++) {
+                ClassFilter shard = API_FILTER.withShard(i, shardCount);
+                int selected = 0;
+                for (String className : classNames) {
+                    if (shard.matches(className)) {
+                        // Shards still apply the globs, and test entry names like class names
+                        assertTrue(API_FILTER.matches(className), className);
+                        assertTrue(shard.matchesEntry(className + ".class"), className);
+                        assertTrue(sharded.add(className), className + " is in more than one of " + shardCount + " shards");
+                        selected++;
+                    } else {
+                        assertFalse(shard.matchesEntry(className + ".class"), className);
+                    }
+                }
+                assertTrue(selected > 0, "Shard " + i + " of " + shardCount + " is empty");
+            }
+
+            Set<String> expected = new HashSet<>();
+            for (String className : classNames) {
+                if (API_FILTER.matches(className))
+                    expected.add(className);
+            }
+            assertEquals(expected, sharded, "Every selected class must be in one of " + shardCount + " shards");
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> API_FILTER.withShard(3, 3));
+        assertThrows(IllegalArgumentException.class, () -> API_FILTER.withShard(-1, 3));
+        assertThrows(IllegalArgumentException.class, () -> API_FILTER.withShard(0, 0));
+    }
+
+    @Test
+    public void testShardsAreDeterministic() {
+        // Shards of one check may be run by different processes and builds, so the assignment must never change
+        assertShard("A", 3, 4);
+        assertShard("B", 1, 4);
+        assertShard("net/minecraftforge/api/Foo", 1, 4);
+        assertShard("net/minecraftforge/api/Foo$Bar", 2, 4);
+        assertShard("A", 0, 7);
+        assertShard("B", 4, 7);
+
+        // The assignment only depends on the class name, not on the globs
+        ClassFilter other = ClassFilter.of(ImmutableList.of("net.**"), ImmutableList.of());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(API_FILTER.withShard(i, 4).matches("net/minecraftforge/api/Foo"), other.withShard(i, 4).matches("net/minecraftforge/api/Foo"));
+        }
+    }
+
+    @Test
+    public void testShardedCaches() throws IOException {
+        Path folder = getRoot().resolve("SuperClass/MissingPublicSuperClass/base");
+        Set<String> mainClasses = new HashSet<>();
+        for (int i = 0; i < 3; i++) {
+            ClassInfoCache cache = ClassInfoCache.fromSource(jar(folder, "A", "B", "C"), ImmutableList.of(), false, ClassFilter.ALL.withShard(i, 3));
+            for (String className : cache.getMainClasses().keySet()) {
+                assertTrue(mainClasses.add(className), className + " is in more than one shard");
+            }
+            // Classes of other shards stay available for hierarchy lookups
+            for (String className : ImmutableList.of("A", "B", "C")) {
+                assertNotNull(cache.findClassHeader(className), className);
+            }
+        }
+        assertEquals(ImmutableSet.of("A", "B", "C"), mainClasses);
+    }
+
+    @Test
+    public void testFilteredCaches() throws IOException {
+        // Only A is checked, but its excluded super class stays available for hierarchy lookups
+        Path folder = getRoot().resolve("SuperClass/MissingPublicSuperClass");
+        ClassInfoCache baseCache = ClassInfoCache.fromSource(jar(folder.resolve("base"), "A", "B", "C"), ImmutableList.of(), false, ClassFilter.of(ImmutableList.of("A"), ImmutableList.of()));
+        ClassInfoCache inputCache = ClassInfoCache.fromSource(jar(folder.resolve("input"), "A", "B"), ImmutableList.of(), true, ClassFilter.of(ImmutableList.of("A"), ImmutableList.of()));
+        assertEquals(ImmutableList.of("A"), ImmutableList.copyOf(baseCache.getMainClasses().keySet()));
+        assertEquals(ImmutableList.of("A"), ImmutableList.copyOf(inputCache.getMainClassNames()));
+        assertNull(baseCache.getMainClassInfo("B"));
+        assertNotNull(baseCache.findClassHeader("B"));
+
+        ClassInfoComparisonResults results = ClassInfoComparer.compare(false, baseCache, baseCache.getMainClassInfo("A"), inputCache, inputCache.getMainClassInfo("A"));
+        assertEquals(1, results.getIncompatibilities().size(), results.toString());
+        assertEquals(String.format(Locale.ROOT, IncompatibilityMessages.CLASS_MISSING_SUPERCLASS, "C"), results.getIncompatibilities().get(0).getMessage());
+    }
+
+    private static void assertShard(String className, int shardIndex, int shardCount) {
+        for (int i = 0; i < shardCount; i++) {
+            assertEquals(i == shardIndex, ClassFilter.ALL.withShard(i, shardCount).matches(className), className + " in shard " + i + " of " + shardCount);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.jarcompatibilitychecker.test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import net.minecraftforge.jarcompatibilitychecker.core.CancellationToken;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassInfoCache;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassInfoComparer;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassInfoComparisonResults;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassPipeline;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassSource;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClassPipelineTests extends BaseCompatibilityTest {
+    @Test
+    public void testClassPipeline() throws IOException {
+        Path folder = getRoot().resolve("SuperClass/MissingPublicSuperClass");
+        for (int threads : new int[] { 0, 2 }) {
+            ClassInfoCache baseCache = ClassInfoCache.fromSource(jar(folder.resolve("base"), "A", "B", "C"), ImmutableList.of(), threads > 0);
+            ClassInfoCache inputCache = ClassInfoCache.fromSource(jar(folder.resolve("input"), "A", "B"), ImmutableList.of(), threads > 0);
+            Map<String, Integer> incompatibilities = new HashMap<>();
+            try (ClassPipeline pipeline = new ClassPipeline(baseCache, inputCache, threads, CancellationToken.NONE)) {
+                ClassPipeline.Pair pair;
+                while ((pair = pipeline.next()) != null) {
+                    assertSame(baseCache.getMainClassInfo(pair.className), pair.base);
+                    ClassInfoComparisonResults results = ClassInfoComparer.compare(false, baseCache, pair.base, inputCache, pair.concrete);
+                    incompatibilities.put(pair.className, results.getIncompatibilities().size());
+                }
+            }
+
+            assertEquals(ImmutableMap.of("A", 1, "B", 0, "C", 1), incompatibilities, "Threads: " + threads);
+        }
+    }
+
+    @Test
+    public void testClassOrder() throws IOException {
+        // More classes than the workers parse ahead, so the queue is refilled while classes are handed out
+        Map<String, byte[]> classes = new LinkedHashMap<>();
+        for (int i = 0; i < 100; i++) {
+            classes.put("pkg/Class" + i, indexedClass("pkg/Class" + i));
+        }
+        byte[] jar = jarBytes(classes);
+
+        List<String> expected = null;
+        for (int threads : new int[] { 0, 1, 3 }) {
+            ClassInfoCache baseCache = ClassInfoCache.fromSource(ClassSource.ofJar(() -> new ByteArrayInputStream(jar)), ImmutableList.of(), true);
+            ClassInfoCache inputCache = ClassInfoCache.fromSource(ClassSource.ofJar(() -> new ByteArrayInputStream(jar)), ImmutableList.of(), true);
+            List<String> order = new ArrayList<>();
+            try (ClassPipeline pipeline = new ClassPipeline(baseCache, inputCache, threads, CancellationToken.NONE)) {
+                assertEquals(100, pipeline.size());
+                ClassPipeline.Pair pair;
+                while ((pair = pipeline.next()) != null) {
+                    assertSame(baseCache.getMainClassInfo(pair.className), pair.base);
+                    assertSame(inputCache.getMainClassInfo(pair.className), pair.concrete);
+                    assertClassEquals(pair.base, pair.concrete);
+                    order.add(pair.className);
+                }
+            }
+
+            // Classes are handed out in the same order no matter how many threads parse them
+            if (expected == null)
+                expected = order;
+            assertEquals(expected, order, "Threads: " + threads);
+        }
+        assertEquals(classes.size(), expected.size());
+        assertTrue(expected.containsAll(classes.keySet()));
+    }
+
+    @Test
+    public void testCancellation() throws IOException {
+        Path folder = getRoot().resolve("SuperClass/MissingPublicSuperClass");
+        ClassInfoCache baseCache = ClassInfoCache.fromSource(jar(folder.resolve("base"), "A", "B", "C"), ImmutableList.of(), true);
+        ClassInfoCache inputCache = ClassInfoCache.fromSource(jar(folder.resolve("input"), "A", "B"), ImmutableList.of(), true);
+        CancellationToken cancellation = new CancellationToken();
+        try (ClassPipeline pipeline = new ClassPipeline(baseCache, inputCache, 2, cancellation)) {
+            assertNotNull(pipeline.next());
+            cancellation.cancel();
+            assertThrows(CancellationException.class, pipeline::next);
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> new ClassPipeline(baseCache, inputCache, -1, CancellationToken.NONE));
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.jarcompatibilitychecker.test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassInfoCache;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassInfoComparer;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassInfoComparisonResults;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassSource;
+import net.minecraftforge.jarcompatibilitychecker.core.IncompatibilityMessages;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClassSourceTests extends BaseCompatibilityTest {
+    @Test
+    public void testInMemorySources() throws IOException {
+        Path folder = getRoot().resolve("SuperClass/MissingPublicSuperClass");
+        byte[] baseA = Files.readAllBytes(folder.resolve("base/A.dat"));
+        byte[] baseB = Files.readAllBytes(folder.resolve("base/B.dat"));
+        byte[] baseC = Files.readAllBytes(folder.resolve("base/C.dat"));
+        byte[] inputA = Files.readAllBytes(folder.resolve("input/A.dat"));
+        byte[] inputB = Files.readAllBytes(folder.resolve("input/B.dat"));
+
+        ByteArrayOutputStream jar = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(jar)) {
+            out.putNextEntry(new ZipEntry("A.class"));
+            out.write(inputA);
+            out.closeEntry();
+        }
+
+        ClassInfoCache baseCache = ClassInfoCache.fromSource(ClassSource.ofClasses(ImmutableMap.of("A.class", baseA, "B.class", baseB)),
+                ImmutableList.of(ClassSource.ofClasses(ImmutableList.of(baseC))));
+        ClassInfoCache inputCache = ClassInfoCache.fromSource(ClassSource.ofJar(() -> new ByteArrayInputStream(jar.toByteArray())),
+                ImmutableList.of(ClassSource.ofClasses(ImmutableList.of(inputB))));
+
+        assertEquals(2, baseCache.getMainClasses().size());
+        assertEquals(1, inputCache.getMainClasses().size());
+
+        ClassInfoComparisonResults results = ClassInfoComparer.compare(false, baseCache, baseCache.getMainClassInfo("A"), inputCache, inputCache.getMainClassInfo("A"));
+        assertEquals(1, results.getIncompatibilities().size(), results.toString());
+        assertEquals(String.format(Locale.ROOT, IncompatibilityMessages.CLASS_MISSING_SUPERCLASS, "C"), results.getIncompatibilities().get(0).getMessage());
+    }
+}
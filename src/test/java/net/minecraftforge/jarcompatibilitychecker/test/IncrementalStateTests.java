@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.jarcompatibilitychecker.test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import net.minecraftforge.jarcompatibilitychecker.JarCompatibilityChecker;
+import net.minecraftforge.jarcompatibilitychecker.cache.IncrementalState;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassFilter;
+import net.minecraftforge.jarcompatibilitychecker.core.ProgressListener;
+import net.minecraftforge.jarcompatibilitychecker.report.CheckResult;
+import net.minecraftforge.jarcompatibilitychecker.report.ReportSink;
+import net.minecraftforge.jarcompatibilitychecker.zip.ZipArchive;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IncrementalStateTests {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testOnlyAffectedClassesAreRecompared() throws IOException {
+        Path baseJar = this.tempDir.resolve("base.jar");
+        Path inputJar = this.tempDir.resolve("input.jar");
+        Path stateFile = this.tempDir.resolve("state.json");
+        writeJar(baseJar, true, true);
+        writeJar(inputJar, true, true);
+
+        assertEquals("Recompared 4 of 4 classes", check(baseJar, inputJar, stateFile));
+        assertEquals("Recompared 0 of 4 classes", check(baseJar, inputJar, stateFile));
+
+        // Removing a method from Parent affects Parent and its subclass Child, but not the other classes
+        writeJar(inputJar, false, true);
+        assertEquals(ImmutableSet.of("Parent", "Child"), getAffectedClasses(stateFile, baseJar, inputJar));
+        assertEquals("Recompared 2 of 4 classes", check(baseJar, inputJar, stateFile));
+
+        // A class of a nested JAR only affects the main classes which inherit from it
+        writeJar(inputJar, false, false);
+        assertEquals(ImmutableSet.of("NestedChild"), getAffectedClasses(stateFile, baseJar, inputJar));
+        assertEquals("Recompared 1 of 4 classes", check(baseJar, inputJar, stateFile));
+    }
+
+    @Test
+    public void testFolderInput() throws IOException {
+        Path baseJar = this.tempDir.resolve("base.jar");
+        Path inputFolder = this.tempDir.resolve("input");
+        Path stateFile = this.tempDir.resolve("state.json");
+        writeJar(baseJar, true, true);
+        Files.createDirectories(inputFolder);
+        Files.write(inputFolder.resolve("Parent.class"), classBytes("Parent", "java/lang/Object", true));
+        Files.write(inputFolder.resolve("Child.class"), classBytes("Child", "Parent", false));
+        Files.write(inputFolder.resolve("Other.class"), classBytes("Other", "java/lang/Object", true));
+
+        assertEquals("Recompared 4 of 4 classes", check(baseJar, inputFolder, stateFile));
+        assertEquals("Recompared 0 of 4 classes", check(baseJar, inputFolder, stateFile));
+
+        Files.write(inputFolder.resolve("Parent.class"), classBytes("Parent", "java/lang/Object", false));
+        assertEquals("Recompared 2 of 4 classes", check(baseJar, inputFolder, stateFile));
+
+        // Removing a class file is a change to that class
+        Files.delete(inputFolder.resolve("Other.class"));
+        assertEquals("Recompared 1 of 4 classes", check(baseJar, inputFolder, stateFile));
+    }
+
+    @Test
+    public void testFilteredAncestors() throws IOException {
+        Path baseJar = this.tempDir.resolve("base.jar");
+        Path inputJar = this.tempDir.resolve("input.jar");
+        Path stateFile = this.tempDir.resolve("state.json");
+        ClassFilter filter = ClassFilter.of(ImmutableList.of(), ImmutableList.of("Parent"));
+        writeJar(baseJar, true, true);
+        writeJar(inputJar, true, true);
+
+        assertEquals("Recompared 3 of 3 classes", check(baseJar, inputJar, stateFile, filter));
+        assertEquals("Recompared 0 of 3 classes", check(baseJar, inputJar, stateFile, filter));
+
+        // Parent is not checked, but Child inherits from it and is compared again when it changes
+        writeJar(inputJar, false, true);
+        assertEquals("Recompared 1 of 3 classes", check(baseJar, inputJar, stateFile, filter));
+    }
+
+    @Test
+    public void testInheritedInternalApi() throws IOException {
+        Path baseJar = this.tempDir.resolve("base.jar");
+        Path inputJar = this.tempDir.resolve("input.jar");
+        Path stateFile = this.tempDir.resolve("state.json");
+        writeInternalJar(baseJar, true, false, false);
+        writeInternalJar(inputJar, false, false, false);
+
+        assertEquals("Recompared 5 of 5 classes", check(baseJar, inputJar, stateFile, ClassFilter.ALL, true));
+        assertEquals("Recompared 0 of 5 classes", check(baseJar, inputJar, stateFile, ClassFilter.ALL, true));
+
+        // Marking an outer class internal affects the classes nested in it
+        writeInternalJar(baseJar, true, true, false);
+        assertEquals(ImmutableSet.of("pkg/Outer", "pkg/Outer$Inner", "pkg/Outer$Inner$Deep"), getAffectedClasses(stateFile, baseJar, inputJar));
+        assertEquals("Recompared 3 of 5 classes", check(baseJar, inputJar, stateFile, ClassFilter.ALL, true));
+
+        // Marking the package internal affects every class in it
+        writeInternalJar(baseJar, true, true, true);
+        assertEquals(ImmutableSet.of("pkg/package-info", "pkg/Outer", "pkg/Outer$Inner", "pkg/Outer$Inner$Deep", "pkg/Other"),
+                getAffectedClasses(stateFile, baseJar, inputJar));
+        assertEquals("Recompared 5 of 5 classes", check(baseJar, inputJar, stateFile, ClassFilter.ALL, true));
+    }
+
+    @Test
+    public void testReusedClassesAreNotParsed() throws IOException {
+        Path baseJar = this.tempDir.resolve("base.jar");
+        Path inputJar = this.tempDir.resolve("input.jar");
+        Path stateFile = this.tempDir.resolve("state.json");
+        writeJar(baseJar, true, true);
+        writeJar(inputJar, false, true);
+
+        Report first = report(baseJar, inputJar, stateFile);
+        assertEquals(ImmutableMap.of("Parent", "Parent.java"), first.sourceFiles);
+        assertTrue(first.parsed > 0);
+
+        // Reused results keep their source file without parsing the class again
+        Report second = report(baseJar, inputJar, stateFile);
+        assertEquals(first.sourceFiles, second.sourceFiles);
+        assertEquals(0, second.parsed);
+    }
+
+    private static Set<String> getAffectedClasses(Path stateFile, Path baseJar, Path inputJar) throws IOException {
+        IncrementalState state = IncrementalState.load(stateFile);
+        assertNotNull(state);
+        Set<String> changedClasses;
+        try (ZipArchive baseZip = ZipArchive.open(baseJar); ZipArchive inputZip = ZipArchive.open(inputJar)) {
+            changedClasses = state.getChangedClasses(IncrementalState.hashClasses(baseZip), IncrementalState.hashClasses(inputZip));
+        }
+
+        Set<String> affected = new HashSet<>();
+        for (Map.Entry<String, IncrementalState.ClassState> entry : state.classes.entrySet()) {
+            if (entry.getValue().isAffectedBy(entry.getKey(), changedClasses))
+                affected.add(entry.getKey());
+        }
+        return affected;
+    }
+
+    private static String check(Path baseJar, Path inputJar, Path stateFile) throws IOException {
+        return check(baseJar, inputJar, stateFile, ClassFilter.ALL);
+    }
+
+    private static String check(Path baseJar, Path inputJar, Path stateFile, ClassFilter filter) throws IOException {
+        return check(baseJar, inputJar, stateFile, filter, false);
+    }
+
+    private static String check(Path baseJar, Path inputJar, Path stateFile, ClassFilter filter, boolean inheritInternalApi) throws IOException {
+        List<String> recompared = new ArrayList<>();
+        new JarCompatibilityChecker(baseJar.toFile(), inputJar.toFile(), true, null, ImmutableList.of(), ImmutableList.of(), ImmutableList.of(),
+                line -> {
+                    if (line.startsWith("Recompared "))
+                        recompared.add(line);
+                }, line -> {})
+                .setIncrementalStateFile(stateFile)
+                .setClassFilter(filter)
+                .setInheritInternalApi(inheritInternalApi)
+                .check();
+        assertEquals(1, recompared.size());
+        return recompared.get(0);
+    }
+
+    private static Report report(Path baseJar, Path inputJar, Path stateFile) throws IOException {
+        Report report = new Report();
+        new JarCompatibilityChecker(baseJar.toFile(), inputJar.toFile(), true, null, ImmutableList.of(), ImmutableList.of(), ImmutableList.of(), line -> {}, line -> {})
+                .setIncrementalStateFile(stateFile)
+                .setProgressListener(new ProgressListener() {
+                    @Override
+                    public void classesParsed(int parsed) {
+                        report.parsed++;
+                    }
+                })
+                .addReportSink(new ReportSink() {
+                    @Override
+                    public void start() {}
+
+                    @Override
+                    public void incompatibility(CheckResult.ClassResult owner, CheckResult.Entry entry) {
+                        report.sourceFiles.put(owner.name, owner.sourceFile);
+                    }
+
+                    @Override
+                    public void finish(int errorCount, int warningCount, boolean budgetReached) {}
+                })
+                .check();
+        return report;
+    }
+
+    private static void writeJar(Path jar, boolean parentMethod, boolean nestedParentMethod) throws IOException {
+        ByteArrayOutputStream nested = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(nested)) {
+            putClass(out, "NestedParent", "java/lang/Object", nestedParentMethod);
+        }
+
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+            putClass(out, "Parent", "java/lang/Object", parentMethod);
+            putClass(out, "Child", "Parent", false);
+            putClass(out, "Other", "java/lang/Object", true);
+            putClass(out, "NestedChild", "NestedParent", false);
+            out.putNextEntry(new ZipEntry("META-INF/jarjar/nested.jar"));
+            out.write(nested.toByteArray());
+            out.closeEntry();
+        }
+    }
+
+    /**
+     * Writes a package with an outer class, its nested classes and another class, where all but the outer class may have a method.
+     */
+    private static void writeInternalJar(Path jar, boolean methods, boolean outerInternal, boolean packageInternal) throws IOException {
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+            putInternalClass(out, "pkg/package-info", false, packageInternal);
+            putInternalClass(out, "pkg/Outer", false, outerInternal);
+            putInternalClass(out, "pkg/Outer$Inner", methods, false);
+            putInternalClass(out, "pkg/Outer$Inner$Deep", methods, false);
+            putInternalClass(out, "pkg/Other", methods, false);
+        }
+    }
+
+    private static void putInternalClass(ZipOutputStream out, String name, boolean method, boolean internal) throws IOException {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null);
+        if (internal)
+            writer.visitAnnotation("Lorg/jetbrains/annotations/ApiStatus$Internal;", false).visitEnd();
+        if (method)
+            writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, "run", "()V", null, null).visitEnd();
+        writer.visitEnd();
+
+        out.putNextEntry(new ZipEntry(name + ".class"));
+        out.write(writer.toByteArray());
+        out.closeEntry();
+    }
+
+    private static void putClass(ZipOutputStream out, String name, String superName, boolean method) throws IOException {
+        out.putNextEntry(new ZipEntry(name + ".class"));
+        out.write(classBytes(name, superName, method));
+        out.closeEntry();
+    }
+
+    private static byte[] classBytes(String name, String superName, boolean method) {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, name, null, superName, null);
+        writer.visitSource(name + ".java", null);
+        if (method) {
+            MethodVisitor visitor = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, "run", "()V", null, null);
+            visitor.visitEnd();
+        }
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private static final class Report {
+        final Map<String, String> sourceFiles = new HashMap<>();
+        int parsed;
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.jarcompatibilitychecker.test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import net.minecraftforge.jarcompatibilitychecker.core.CancellationToken;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassFilter;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassInfoCache;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassSource;
+import net.minecraftforge.jarcompatibilitychecker.core.LibraryIndex;
+import net.minecraftforge.jarcompatibilitychecker.core.ProgressListener;
+import net.minecraftforge.jarcompatibilitychecker.data.MethodInfo;
+import net.minecraftforge.jarcompatibilitychecker.zip.ZipArchive;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LibraryIndexTests extends BaseCompatibilityTest {
+    private static final ClassSource EMPTY = ClassSource.ofClasses(ImmutableList.<byte[]>of());
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testIndexedClasses() throws IOException {
+        Path jarPath = writeLibrary();
+        Path indexPath = LibraryIndex.getIndexPath(jarPath);
+        assertEquals(jarPath.resolveSibling("lib.jar" + LibraryIndex.EXTENSION), indexPath);
+        assertEquals(3, LibraryIndex.write(jarPath, indexPath));
+
+        try (ZipArchive zip = ZipArchive.open(jarPath)) {
+            assertNotNull(LibraryIndex.open(indexPath, zip));
+        }
+
+        ClassInfoCache indexed = ClassInfoCache.fromSource(EMPTY, ImmutableList.of(ClassSource.ofJar(jarPath)));
+        byte[] jar = Files.readAllBytes(jarPath);
+        ClassInfoCache parsed = ClassInfoCache.fromSource(EMPTY, ImmutableList.of(ClassSource.ofJar(() -> new ByteArrayInputStream(jar))));
+        for (String className : ImmutableList.of("lib/Indexed\u00e4", "lib/Nested", "lib/Shadowed")) {
+            assertClassEquals(parsed.getClassInfo(className), indexed.getClassInfo(className));
+        }
+        assertNull(indexed.findClassHeader("lib/Missing"));
+
+        MethodInfo bridge = indexed.getClassInfo("lib/Nested").getMethod("get", "()Ljava/lang/Object;");
+        assertNotNull(bridge.bouncer);
+        assertEquals("get", bridge.bouncer.name);
+        assertEquals("()Ljava/lang/String;", bridge.bouncer.desc);
+    }
+
+    @Test
+    public void testPrecedence() throws IOException {
+        Path jarPath = writeLibrary();
+        LibraryIndex.write(jarPath, LibraryIndex.getIndexPath(jarPath));
+
+        // Classes of the outer JAR take precedence over those of nested JARs
+        ClassInfoCache indexed = ClassInfoCache.fromSource(EMPTY, ImmutableList.of(ClassSource.ofJar(jarPath)));
+        assertEquals("lib/Shadowed", indexed.getClassInfo("lib/Shadowed").name);
+
+        // Classes of an index take precedence over classes of libraries read after it
+        ClassSource later = ClassSource.ofClasses(ImmutableList.of(plainClass("lib/Nested")));
+        ClassInfoCache ordered = ClassInfoCache.fromSource(EMPTY, ImmutableList.of(ClassSource.ofJar(jarPath), later));
+        assertEquals(ImmutableList.of("java/io/Serializable"), ordered.getClassInfo("lib/Nested").getInterfaces());
+        ClassInfoCache reversed = ClassInfoCache.fromSource(EMPTY, ImmutableList.of(later, ClassSource.ofJar(jarPath)));
+        assertEquals(ImmutableList.of(), reversed.getClassInfo("lib/Nested").getInterfaces());
+    }
+
+    @Test
+    public void testStaleIndex() throws IOException {
+        Path jarPath = writeLibrary();
+        Path indexPath = LibraryIndex.getIndexPath(jarPath);
+        LibraryIndex.write(jarPath, indexPath);
+        byte[] index = Files.readAllBytes(indexPath);
+
+        // Adding and removing classes makes the index stale, so the JAR is read instead
+        Files.write(jarPath, jarBytes(ImmutableMap.of("lib/Indexed\u00e4", indexedClass("lib/Indexed\u00e4"), "lib/Added", indexedClass("lib/Added"))));
+        try (ZipArchive zip = ZipArchive.open(jarPath)) {
+            assertNull(LibraryIndex.open(indexPath, zip));
+        }
+        ClassInfoCache stale = ClassInfoCache.fromSource(EMPTY, ImmutableList.of(ClassSource.ofJar(jarPath)));
+        assertNotNull(stale.findClassInfo("lib/Added"));
+        assertNull(stale.findClassHeader("lib/Nested"));
+        // A stale index is left alone rather than rewritten behind the user's back
+        assertArrayEquals(index, Files.readAllBytes(indexPath));
+
+        // Changing only the contents of a class of a nested JAR makes the index stale as well
+        writeLibrary();
+        LibraryIndex.write(jarPath, indexPath);
+        byte[] nested = jarBytes(ImmutableMap.of("lib/Nested", plainClass("lib/Nested"), "lib/Shadowed", indexedClass("lib/Nested")));
+        Files.write(jarPath, jarBytes(ImmutableMap.of("lib/Indexed\u00e4", indexedClass("lib/Indexed\u00e4"), "lib/Shadowed", indexedClass("lib/Shadowed"),
+                "META-INF/jarjar/nested.jar", nested)));
+        try (ZipArchive zip = ZipArchive.open(jarPath)) {
+            assertNull(LibraryIndex.open(indexPath, zip));
+        }
+        ClassInfoCache changed = ClassInfoCache.fromSource(EMPTY, ImmutableList.of(ClassSource.ofJar(jarPath)));
+        assertEquals(ImmutableList.of(), changed.getClassInfo("lib/Nested").getInterfaces());
+        assertTrue(changed.getClassInfo("lib/Nested").getMethods().isEmpty());
+
+        // Rewriting the index makes it current again
+        assertEquals(3, LibraryIndex.write(jarPath, indexPath));
+        try (ZipArchive zip = ZipArchive.open(jarPath)) {
+            assertNotNull(LibraryIndex.open(indexPath, zip));
+        }
+        ClassInfoCache rewritten = ClassInfoCache.fromSource(EMPTY, ImmutableList.of(ClassSource.ofJar(jarPath)));
+        assertClassEquals(changed.getClassInfo("lib/Nested"), rewritten.getClassInfo("lib/Nested"));
+    }
+
+    @Test
+    public void testIndexedLibraryProgress() throws IOException {
+        Path jarPath = writeLibrary();
+        LibraryIndex.write(jarPath, LibraryIndex.getIndexPath(jarPath));
+        Path otherPath = this.tempDir.resolve("other.jar");
+        Files.write(otherPath, jarBytes(ImmutableMap.of("other/Indexed", indexedClass("other/Indexed"))));
+        LibraryIndex.write(otherPath, LibraryIndex.getIndexPath(otherPath));
+
+        // Indexed libraries are reported as fully read, whether libraries are read one by one or concurrently
+        for (List<ClassSource> libraries : ImmutableList.of(ImmutableList.of(ClassSource.ofJar(jarPath)), ImmutableList.of(ClassSource.ofJar(jarPath), ClassSource.ofJar(otherPath)))) {
+            Map<String, String> progress = new HashMap<>();
+            ClassInfoCache.fromSource(EMPTY, libraries, false, ClassFilter.ALL, new ProgressListener() {
+                @Override
+                public void entriesRead(String source, int read, int total) {
+                    progress.put(source, read + "/" + total);
+                }
+            }, CancellationToken.NONE);
+
+            assertEquals(libraries.size(), progress.size(), progress.toString());
+            assertEquals("3/3", progress.get(findSource(progress, "lib.jar")));
+            if (libraries.size() > 1)
+                assertEquals("1/1", progress.get(findSource(progress, "other.jar")));
+        }
+    }
+
+    private static String findSource(Map<String, String> progress, String fileName) {
+        for (String source : progress.keySet()) {
+            if (source.endsWith(fileName))
+                return source;
+        }
+        return fail("No progress reported for " + fileName + ": " + progress);
+    }
+
+    /**
+     * Writes a library with a class of its own, a class of a nested JAR and a class in both.
+     */
+    private Path writeLibrary() throws IOException {
+        Path jarPath = this.tempDir.resolve("lib.jar");
+        byte[] nested = jarBytes(ImmutableMap.of("lib/Nested", indexedClass("lib/Nested"), "lib/Shadowed", indexedClass("lib/Nested")));
+        Files.write(jarPath, jarBytes(ImmutableMap.of("lib/Indexed\u00e4", indexedClass("lib/Indexed\u00e4"), "lib/Shadowed", indexedClass("lib/Shadowed"),
+                "META-INF/jarjar/nested.jar", nested)));
+        return jarPath;
+    }
+
+    private static byte[] plainClass(String className) {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, className, null, "java/lang/Object", null);
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+}
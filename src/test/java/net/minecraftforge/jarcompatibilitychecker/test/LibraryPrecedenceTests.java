@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.jarcompatibilitychecker.test;
+
+import net.minecraftforge.jarcompatibilitychecker.core.CancellationToken;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassFilter;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassInfoCache;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassSource;
+import net.minecraftforge.jarcompatibilitychecker.core.ProgressListener;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LibraryPrecedenceTests extends BaseCompatibilityTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testFolderAndJarLibraries() throws IOException {
+        // A extends B in the folder library and A extends C in the JAR library
+        Path folder = getRoot().resolve("SuperClass/NewSuperClass/base");
+        Path jar = this.tempDir.resolve("library.jar");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+            out.putNextEntry(new ZipEntry("A.class"));
+            out.write(Files.readAllBytes(getRoot().resolve("SuperClass/NewSuperClass/input/A.dat")));
+            out.closeEntry();
+        }
+
+        for (boolean offHeapIndex : new boolean[] { false, true }) {
+            assertEquals("B", readLibraries(offHeapIndex, ClassSource.ofFolder(folder), ClassSource.ofJar(jar)).getClassInfo("A").superName,
+                    "The folder library comes first, off-heap index: " + offHeapIndex);
+            assertEquals("C", readLibraries(offHeapIndex, ClassSource.ofJar(jar), ClassSource.ofFolder(folder)).getClassInfo("A").superName,
+                    "The JAR library comes first, off-heap index: " + offHeapIndex);
+            assertEquals("C", readLibraries(offHeapIndex, ClassSource.ofJar(jar), ClassSource.ofFolder(folder)).getClassHeader("A").superName,
+                    "The JAR library comes first, off-heap index: " + offHeapIndex);
+        }
+    }
+
+    private static ClassInfoCache readLibraries(boolean offHeapIndex, ClassSource... libraries) throws IOException {
+        List<ClassSource> sources = Arrays.asList(libraries);
+        return ClassInfoCache.fromSource(ClassSource.ofClasses(Collections.emptyList()), sources, false, ClassFilter.ALL,
+                ProgressListener.NONE, CancellationToken.NONE, offHeapIndex);
+    }
+}
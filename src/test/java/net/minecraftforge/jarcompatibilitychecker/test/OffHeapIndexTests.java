@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.jarcompatibilitychecker.test;
+
+import com.google.common.collect.ImmutableList;
+import net.minecraftforge.jarcompatibilitychecker.core.CancellationToken;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassFilter;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassInfoCache;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassSource;
+import net.minecraftforge.jarcompatibilitychecker.core.ProgressListener;
+import net.minecraftforge.jarcompatibilitychecker.data.ClassHeader;
+import net.minecraftforge.jarcompatibilitychecker.data.ClassInfo;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OffHeapIndexTests extends BaseCompatibilityTest {
+    @Test
+    public void testOffHeapIndex() throws IOException {
+        // Enough library classes, with non-ASCII names, to grow every buffer of the index
+        ByteArrayOutputStream lib = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(lib)) {
+            for (int i = 0; i < 3000; i++) {
+                ClassWriter writer = new ClassWriter(0);
+                writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, "lib/Klasse\u00e4" + i, null, i == 0 ? "java/lang/Object" : "lib/Klasse\u00e4" + (i - 1),
+                        new String[] { "java/io/Serializable", "lib/Marker" + i % 7 });
+                writer.visitEnd();
+                out.putNextEntry(new ZipEntry("lib/Klasse\u00e4" + i + ".class"));
+                out.write(writer.toByteArray());
+                out.closeEntry();
+            }
+        }
+
+        ClassInfoCache cache = readLibrary(lib.toByteArray(), true);
+        for (int i = 2999; i >= 0; i--) {
+            ClassHeader header = cache.getClassHeader("lib/Klasse\u00e4" + i);
+            assertEquals("lib/Klasse\u00e4" + i, header.name);
+            assertEquals(i == 0 ? "java/lang/Object" : "lib/Klasse\u00e4" + (i - 1), header.superName);
+            assertEquals(ImmutableList.of("java/io/Serializable", "lib/Marker" + i % 7), header.getInterfaces());
+        }
+        // Headers are read once and then served from the index
+        assertEquals("lib/Klasse\u00e41500", cache.getClassHeader("lib/Klasse\u00e41501").superName);
+        assertNull(cache.findClassHeader("lib/Missing"));
+
+        ClassInfo info = cache.getClassInfo("lib/Klasse\u00e442");
+        assertSame(info, cache.getClassInfo("lib/Klasse\u00e442"));
+        assertSame(info, cache.findClassHeader("lib/Klasse\u00e442"));
+    }
+
+    @Test
+    public void testParityWithOnHeapClasses() throws IOException {
+        Map<String, byte[]> classes = new LinkedHashMap<>();
+        for (int i = 0; i < 50; i++) {
+            classes.put("lib/Indexed\u00e4" + i, indexedClass("lib/Indexed\u00e4" + i));
+        }
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT | Opcodes.ACC_INTERFACE, "lib/Api", null, "java/lang/Object", new String[] { "lib/Indexed\u00e40" });
+        writer.visitEnd();
+        classes.put("lib/Api", writer.toByteArray());
+        byte[] lib = jarBytes(classes);
+
+        ClassInfoCache onHeap = readLibrary(lib, false);
+        ClassInfoCache offHeap = readLibrary(lib, true);
+        for (String className : classes.keySet()) {
+            // Headers are served from the index before the class is parsed, and must match the parsed class
+            ClassHeader expected = onHeap.getClassHeader(className);
+            ClassHeader actual = offHeap.getClassHeader(className);
+            assertEquals(expected.name, actual.name);
+            assertEquals(expected.access, actual.access);
+            assertEquals(expected.superName, actual.superName);
+            assertEquals(expected.getInterfaces(), actual.getInterfaces());
+
+            assertClassEquals(onHeap.getClassInfo(className), offHeap.getClassInfo(className));
+        }
+        assertNull(onHeap.findClassHeader("lib/Missing"));
+        assertNull(offHeap.findClassHeader("lib/Missing"));
+    }
+
+    private static ClassInfoCache readLibrary(byte[] jar, boolean offHeapIndex) throws IOException {
+        return ClassInfoCache.fromSource(ClassSource.ofClasses(ImmutableList.<byte[]>of()), ImmutableList.of(ClassSource.ofJar(() -> new ByteArrayInputStream(jar))),
+                false, ClassFilter.ALL, ProgressListener.NONE, CancellationToken.NONE, offHeapIndex);
+    }
+}
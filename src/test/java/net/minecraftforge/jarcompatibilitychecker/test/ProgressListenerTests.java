@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.jarcompatibilitychecker.test;
+
+import com.google.common.collect.ImmutableList;
+import net.minecraftforge.jarcompatibilitychecker.core.CancellationToken;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassFilter;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassInfoCache;
+import net.minecraftforge.jarcompatibilitychecker.core.ProgressListener;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProgressListenerTests extends BaseCompatibilityTest {
+    @Test
+    public void testProgress() throws IOException {
+        Path folder = getRoot().resolve("SuperClass/MissingPublicSuperClass/base");
+        int[] entries = new int[2];
+        int[] parsed = new int[1];
+        ProgressListener progress = new ProgressListener() {
+            @Override
+            public void entriesRead(String source, int read, int total) {
+                entries[0] = read;
+                entries[1] = total;
+            }
+
+            @Override
+            public void classesParsed(int count) {
+                parsed[0] = count;
+            }
+        };
+
+        ClassInfoCache cache = ClassInfoCache.fromSource(jar(folder, "A", "B", "C"), ImmutableList.of(), true, ClassFilter.ALL, progress, CancellationToken.NONE);
+        assertArrayEquals(new int[] { 3, 3 }, entries);
+        // Deferred classes are only reported once they are parsed
+        assertEquals(0, parsed[0]);
+        cache.getMainClasses();
+        assertEquals(3, parsed[0]);
+    }
+
+    @Test
+    public void testCancellation() throws IOException {
+        Path folder = getRoot().resolve("SuperClass/MissingPublicSuperClass/base");
+        CancellationToken cancellation = new CancellationToken();
+        assertFalse(cancellation.isCancelled());
+        assertNotNull(ClassInfoCache.fromSource(jar(folder, "A", "B", "C"), ImmutableList.of(), false, ClassFilter.ALL, ProgressListener.NONE, cancellation));
+
+        cancellation.cancel();
+        assertTrue(cancellation.isCancelled());
+        assertThrows(CancellationException.class, () -> ClassInfoCache.fromSource(jar(folder, "A", "B", "C"), ImmutableList.of(), false, ClassFilter.ALL, ProgressListener.NONE, cancellation));
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.jarcompatibilitychecker.test;
+
+import com.google.common.collect.ImmutableList;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassInfoCache;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassInfoComparer;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassInfoComparisonResults;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassSource;
+import net.minecraftforge.jarcompatibilitychecker.core.IncompatibilityMessages;
+import net.minecraftforge.jarcompatibilitychecker.core.InternalAnnotationCheckMode;
+import net.minecraftforge.jarcompatibilitychecker.core.InternalApiMatcher;
+import net.minecraftforge.jarcompatibilitychecker.core.ReferenceIndex;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReferenceIndexTests extends BaseCompatibilityTest {
+    @Test
+    public void testConsumerScopedCheck() throws IOException {
+        Path folder = getRoot().resolve("Method/RemovedPublicMethod");
+        ClassInfoCache baseCache = ClassInfoCache.fromFolder(folder.resolve("base"));
+        ClassInfoCache inputCache = ClassInfoCache.fromFolder(folder.resolve("input"));
+
+        // A consumer which only constructs A does not care about the removed method
+        assertTrue(compare(baseCache, inputCache, consumer("java/lang/Object", "<init>", "()V")).isCompatible());
+
+        // A consumer which calls A.foo() is broken by its removal
+        ClassInfoComparisonResults results = compare(baseCache, inputCache, consumer("java/lang/Object", "foo", "()V"));
+        assertEquals(1, results.getIncompatibilities().size(), results.toString());
+        assertEquals(IncompatibilityMessages.METHOD_REMOVED, results.getIncompatibilities().get(0).getMessage());
+
+        // A consumer which extends A may call or override any of its methods
+        assertFalse(compare(baseCache, inputCache, consumer("A", "<init>", "()V")).isCompatible());
+    }
+
+    private static ClassInfoComparisonResults compare(ClassInfoCache baseCache, ClassInfoCache inputCache, byte[] consumer) throws IOException {
+        ReferenceIndex.Scope references = ReferenceIndex.scan(ImmutableList.of(ClassSource.ofClasses(ImmutableList.of(consumer)))).scope(baseCache);
+        return ClassInfoComparer.compare(true, null, new InternalApiMatcher(InternalAnnotationCheckMode.DEFAULT_INTERNAL_ANNOTATIONS, false),
+                InternalAnnotationCheckMode.DEFAULT_MODE, baseCache, baseCache.getMainClassInfo("A"), inputCache, inputCache.getMainClassInfo("A"), references);
+    }
+
+    /**
+     * Creates a consumer class extending the given super class, with a method which constructs A and calls the given method on it.
+     */
+    private static byte[] consumer(String superName, String methodName, String methodDesc) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, "Consumer", null, superName, null);
+        MethodVisitor method = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "run", "()V", null, null);
+        method.visitCode();
+        method.visitTypeInsn(Opcodes.NEW, "A");
+        method.visitInsn(Opcodes.DUP);
+        method.visitMethodInsn(Opcodes.INVOKESPECIAL, "A", "<init>", "()V", false);
+        if (!methodName.equals("<init>"))
+            method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "A", methodName, methodDesc, false);
+        method.visitInsn(Opcodes.RETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+}
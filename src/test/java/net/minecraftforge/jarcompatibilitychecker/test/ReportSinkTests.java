@@ -0,0 +1,289 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.jarcompatibilitychecker.test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import net.minecraftforge.jarcompatibilitychecker.JarCompatibilityChecker;
+import net.minecraftforge.jarcompatibilitychecker.core.Baseline;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassInfoCache;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassInfoComparer;
+import net.minecraftforge.jarcompatibilitychecker.core.ClassInfoComparisonResults;
+import net.minecraftforge.jarcompatibilitychecker.core.InternalAnnotationCheckMode;
+import net.minecraftforge.jarcompatibilitychecker.core.InternalApiMatcher;
+import net.minecraftforge.jarcompatibilitychecker.core.ProgressListener;
+import net.minecraftforge.jarcompatibilitychecker.report.AsyncFileWriter;
+import net.minecraftforge.jarcompatibilitychecker.report.BaselineReportSink;
+import net.minecraftforge.jarcompatibilitychecker.report.BinaryReportReader;
+import net.minecraftforge.jarcompatibilitychecker.report.BinaryReportSink;
+import net.minecraftforge.jarcompatibilitychecker.report.CheckResult;
+import net.minecraftforge.jarcompatibilitychecker.report.JsonReportSink;
+import net.minecraftforge.jarcompatibilitychecker.report.ReportDiff;
+import net.minecraftforge.jarcompatibilitychecker.report.ReportMerge;
+import net.minecraftforge.jarcompatibilitychecker.report.ReportSink;
+import net.minecraftforge.jarcompatibilitychecker.report.SarifReportSink;
+import net.minecraftforge.jarcompatibilitychecker.report.TextReportSink;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReportSinkTests extends BaseCompatibilityTest {
+    @Test
+    public void testJsonReportMatchesResult() throws IOException {
+        CheckResult result = checkResult();
+        StringWriter writer = new StringWriter();
+        ReportSink.write(new JsonReportSink(writer), result);
+
+        CheckResult read = new Gson().fromJson(writer.toString(), CheckResult.class);
+        assertEquals(result.classes.size(), read.classes.size());
+        assertEquals(result.getErrorCount(), read.getErrorCount());
+        assertEquals(result.classes.get(0).name, read.classes.get(0).name);
+        assertEquals(result.classes.get(0).incompatibilities.get(0).text, read.classes.get(0).incompatibilities.get(0).text);
+
+        JsonObject json = JsonParser.parseString(writer.toString()).getAsJsonObject();
+        assertEquals(result.getErrorCount(), json.get("errors").getAsInt());
+        assertEquals(result.getWarningCount(), json.get("warnings").getAsInt());
+        assertFalse(json.get("budgetReached").getAsBoolean());
+    }
+
+    @Test
+    public void testAsyncFileWriter() throws IOException {
+        Path file = Files.createTempFile("report", ".txt");
+        try {
+            CheckResult result = checkResult();
+            StringWriter expected = new StringWriter();
+            try (Writer writer = new AsyncFileWriter(file)) {
+                // Enough reports to fill several buffers
+                for (int i = 0; i < 2000; i++) {
+                    ReportSink.write(new TextReportSink(writer), result);
+                    ReportSink.write(new TextReportSink(expected), result);
+                }
+            }
+
+            assertEquals(expected.toString(), new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testSarifReport() throws IOException {
+        StringWriter writer = new StringWriter();
+        ReportSink.write(new SarifReportSink(writer), checkResult());
+
+        JsonObject run = JsonParser.parseString(writer.toString()).getAsJsonObject().getAsJsonArray("runs").get(0).getAsJsonObject();
+        JsonArray results = run.getAsJsonArray("results");
+        assertEquals(1, results.size());
+        JsonObject result = results.get(0).getAsJsonObject();
+        assertEquals("METHOD_REMOVED", result.get("ruleId").getAsString());
+        assertEquals("error", result.get("level").getAsString());
+
+        JsonArray rules = run.getAsJsonObject("tool").getAsJsonObject("driver").getAsJsonArray("rules");
+        assertEquals("METHOD_REMOVED", rules.get(result.get("ruleIndex").getAsInt()).getAsJsonObject().get("id").getAsString());
+    }
+
+    @Test
+    public void testBaselineSuppressesKnownIncompatibilities() throws IOException {
+        Path file = Files.createTempFile("baseline", ".txt");
+        try {
+            try (ReportSink sink = new BaselineReportSink(new AsyncFileWriter(file))) {
+                ReportSink.write(sink, checkResult());
+            }
+
+            Baseline baseline = Baseline.load(file);
+            assertEquals(1, baseline.size());
+
+            Path folder = getRoot().resolve("Method/RemovedPublicMethod");
+            ClassInfoCache baseCache = ClassInfoCache.fromFolder(folder.resolve("base"));
+            ClassInfoCache inputCache = ClassInfoCache.fromFolder(folder.resolve("input"));
+            ClassInfoComparisonResults results = ClassInfoComparer.compare(true, null, new InternalApiMatcher(InternalAnnotationCheckMode.DEFAULT_INTERNAL_ANNOTATIONS, false),
+                    InternalAnnotationCheckMode.DEFAULT_MODE, baseCache, baseCache.getMainClassInfo("A"), inputCache, inputCache.getMainClassInfo("A"), null, baseline);
+            assertTrue(results.isCompatible(), results.toString());
+            assertEquals(1, results.getSuppressedCount());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testBinaryReportDiff() throws IOException {
+        Path oldFile = Files.createTempFile("old", ".bin");
+        Path newFile = Files.createTempFile("new", ".bin");
+        try {
+            CheckResult result = checkResult();
+            try (ReportSink sink = new BinaryReportSink(Files.newOutputStream(oldFile))) {
+                ReportSink.write(sink, result);
+            }
+
+            // Annotation texts cannot be derived from the other fields, so they are kept as written
+            CheckResult.Entry added = new CheckResult.Entry(CheckResult.Kind.ANNOTATION, "b", "()V", "Annotation was added", false, "Member b annotated with LB; - Annotation was added");
+            List<CheckResult.ClassResult> classes = new ArrayList<>(result.classes);
+            classes.add(new CheckResult.ClassResult("B", ImmutableList.of(added)));
+            try (ReportSink sink = new BinaryReportSink(Files.newOutputStream(newFile))) {
+                ReportSink.write(sink, new CheckResult(classes, false));
+            }
+
+            List<BinaryReportReader.Record> addedRecords = new ArrayList<>();
+            List<BinaryReportReader.Record> removedRecords = new ArrayList<>();
+            List<BinaryReportReader.Record> unchangedRecords = new ArrayList<>();
+            ReportDiff.diff(oldFile, newFile, new ReportDiff.Listener() {
+                @Override
+                public void added(BinaryReportReader.Record record) {
+                    addedRecords.add(record);
+                }
+
+                @Override
+                public void removed(BinaryReportReader.Record record) {
+                    removedRecords.add(record);
+                }
+
+                @Override
+                public void unchanged(BinaryReportReader.Record oldRecord, BinaryReportReader.Record newRecord) {
+                    unchangedRecords.add(newRecord);
+                }
+            });
+
+            assertEquals(1, addedRecords.size());
+            assertEquals("B", addedRecords.get(0).className);
+            assertEquals(added.text, addedRecords.get(0).entry.text);
+            assertTrue(removedRecords.isEmpty());
+            assertEquals(1, unchangedRecords.size());
+            CheckResult.Entry expected = result.classes.get(0).incompatibilities.get(0);
+            assertEquals(expected.text, unchangedRecords.get(0).entry.text);
+            assertEquals(expected.error, unchangedRecords.get(0).entry.error);
+        } finally {
+            Files.delete(oldFile);
+            Files.delete(newFile);
+        }
+    }
+
+    @Test
+    public void testMergeReports() throws IOException {
+        Path first = Files.createTempFile("first", ".bin");
+        Path second = Files.createTempFile("second", ".bin");
+        try {
+            CheckResult result = checkResult();
+            try (ReportSink sink = new BinaryReportSink(Files.newOutputStream(first))) {
+                ReportSink.write(sink, result);
+            }
+            CheckResult.Entry warning = new CheckResult.Entry(CheckResult.Kind.CLASS, "B", null, "Class was removed", false, "Class was removed");
+            try (ReportSink sink = new BinaryReportSink(Files.newOutputStream(second))) {
+                ReportSink.write(sink, new CheckResult(ImmutableList.of(new CheckResult.ClassResult("B", ImmutableList.of(warning))), true));
+            }
+
+            // The first report is merged twice, but its incompatibility is only reported once
+            StringWriter writer = new StringWriter();
+            int errors = ReportMerge.merge(ImmutableList.of(first, second, first), ImmutableList.of(new TextReportSink(writer)));
+            assertEquals(1, errors);
+
+            StringWriter expected = new StringWriter();
+            List<CheckResult.ClassResult> classes = new ArrayList<>(result.classes);
+            classes.add(new CheckResult.ClassResult("B", ImmutableList.of(warning)));
+            ReportSink.write(new TextReportSink(expected), new CheckResult(classes, true));
+            assertEquals(expected.toString(), writer.toString());
+            // Totals are only known once every record was merged, so they follow the incompatibilities
+            assertTrue(writer.toString().startsWith("A:\n"), writer.toString());
+            assertTrue(writer.toString().endsWith("Incompatibilities found: 1 errors, 1 warnings\n"
+                    + "Stopped checking after reaching the maximum number of errors; more incompatibilities may exist\n"), writer.toString());
+        } finally {
+            Files.delete(first);
+            Files.delete(second);
+        }
+    }
+
+    @Test
+    public void testIncompatibilitiesAreStreamed() throws IOException {
+        Path baseJar = Files.createTempFile("base", ".jar");
+        Path inputJar = Files.createTempFile("input", ".jar");
+        Path stateFile = Files.createTempFile("state", ".json");
+        try {
+            Map<String, byte[]> baseClasses = new LinkedHashMap<>();
+            Map<String, byte[]> inputClasses = new LinkedHashMap<>();
+            for (int i = 0; i < 5; i++) {
+                baseClasses.put("Streamed" + i, indexedClass("Streamed" + i));
+                ClassWriter writer = new ClassWriter(0);
+                writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, "Streamed" + i, null, "java/lang/Object", new String[] { "java/io/Serializable" });
+                writer.visitEnd();
+                inputClasses.put("Streamed" + i, writer.toByteArray());
+            }
+            Files.write(baseJar, jarBytes(baseClasses));
+            Files.write(inputJar, jarBytes(inputClasses));
+            Files.delete(stateFile);
+
+            // Both full and incremental checks report the incompatibilities of each class before the next class is compared
+            for (boolean incremental : new boolean[] { false, true }) {
+                List<String> events = new ArrayList<>();
+                JarCompatibilityChecker checker = new JarCompatibilityChecker(baseJar.toFile(), inputJar.toFile(), true, null, ImmutableList.of(), ImmutableList.of(),
+                        ImmutableList.of(), line -> {}, line -> {})
+                        .setProgressListener(new ProgressListener() {
+                            @Override
+                            public void classesCompared(int compared, int total) {
+                                events.add("compared " + compared);
+                            }
+                        })
+                        .addReportSink(new ReportSink() {
+                            @Override
+                            public void start() {
+                                events.add("start");
+                            }
+
+                            @Override
+                            public void incompatibility(CheckResult.ClassResult owner, CheckResult.Entry entry) {
+                                if (!events.get(events.size() - 1).equals(owner.name))
+                                    events.add(owner.name);
+                            }
+
+                            @Override
+                            public void finish(int errorCount, int warningCount, boolean budgetReached) {
+                                events.add("finish " + errorCount + " " + warningCount);
+                            }
+                        });
+                if (incremental)
+                    checker.setIncrementalStateFile(stateFile);
+                int errors = checker.check();
+
+                assertEquals(12, events.size(), events.toString());
+                assertEquals("start", events.get(0));
+                Set<String> reported = new HashSet<>();
+                for (int i = 0; i < 5; i++) {
+                    assertEquals("compared " + (i + 1), events.get(1 + i * 2), events.toString());
+                    assertTrue(reported.add(events.get(2 + i * 2)), events.toString());
+                }
+                assertEquals(baseClasses.keySet(), reported);
+                assertEquals("finish " + errors + " 0", events.get(11));
+                assertTrue(errors >= 5, "Expected an error for every class: " + errors);
+            }
+        } finally {
+            Files.delete(baseJar);
+            Files.delete(inputJar);
+            Files.deleteIfExists(stateFile);
+        }
+    }
+
+    private CheckResult checkResult() throws IOException {
+        Path folder = getRoot().resolve("Method/RemovedPublicMethod");
+        ClassInfoCache baseCache = ClassInfoCache.fromFolder(folder.resolve("base"));
+        ClassInfoCache inputCache = ClassInfoCache.fromFolder(folder.resolve("input"));
+        return CheckResult.of(ImmutableList.of(ClassInfoComparer.compare(true, baseCache, baseCache.getMainClassInfo("A"), inputCache, inputCache.getMainClassInfo("A"))), false);
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.jarcompatibilitychecker.test;
+
+import com.google.common.collect.ImmutableList;
+import net.minecraftforge.jarcompatibilitychecker.JarCompatibilityChecker;
+import net.minecraftforge.jarcompatibilitychecker.cache.ResultCache;
+import net.minecraftforge.jarcompatibilitychecker.core.CompareEngine;
+import net.minecraftforge.jarcompatibilitychecker.report.CheckResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResultCacheTests extends BaseCompatibilityTest {
+    private static final String REPLAYING = "Replaying cached result";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testKeyStability() throws IOException {
+        Path first = this.tempDir.resolve("first.jar");
+        Path second = this.tempDir.resolve("second.jar");
+        Files.write(first, new byte[] { 1, 2, 3 });
+        Files.write(second, new byte[] { 1, 2, 3 });
+
+        String key = ResultCache.newKey().putString("option").putBoolean(true).putInt(5).putFile(first.toFile()).build();
+        assertEquals(64, key.length());
+        assertEquals(key, ResultCache.newKey().putString("option").putBoolean(true).putInt(5).putFile(first.toFile()).build());
+        // Only the contents of a file are part of the key, not its path
+        assertEquals(key, ResultCache.newKey().putString("option").putBoolean(true).putInt(5).putFile(second.toFile()).build());
+
+        assertNotEquals(key, ResultCache.newKey().putString("option").putBoolean(false).putInt(5).putFile(first.toFile()).build());
+        assertNotEquals(ResultCache.newKey().putString("ab").putString("c").build(), ResultCache.newKey().putString("a").putString("bc").build());
+        assertNotEquals(ResultCache.newKey().putString(null).build(), ResultCache.newKey().putString("").build());
+
+        Files.write(second, new byte[] { 1, 2, 4 });
+        assertNotEquals(key, ResultCache.newKey().putString("option").putBoolean(true).putInt(5).putFile(second.toFile()).build());
+    }
+
+    @Test
+    public void testHitReplaysReport() throws IOException {
+        Path cacheDir = this.tempDir.resolve("cache");
+        File baseJar = jar("base.jar", "Method/RemovedPublicMethod/base", "A");
+        File inputJar = jar("input.jar", "Method/RemovedPublicMethod/input", "A");
+
+        Run miss = check(baseJar, inputJar, ImmutableList.of(), cacheDir, true);
+        assertFalse(miss.replayed);
+        assertTrue(miss.count > 0, "The fixture should report incompatibilities");
+        assertEquals(1, countEntries(cacheDir));
+
+        Run hit = check(baseJar, inputJar, ImmutableList.of(), cacheDir, true);
+        assertTrue(hit.replayed);
+        assertEquals(miss.count, hit.count);
+        assertEquals(miss.errors, hit.errors);
+        assertEquals(1, countEntries(cacheDir));
+    }
+
+    @Test
+    public void testMissOnChangedInputs() throws IOException {
+        Path cacheDir = this.tempDir.resolve("cache");
+        File baseJar = jar("base.jar", "Method/RemovedPublicMethod/base", "A");
+        File inputJar = jar("input.jar", "Method/RemovedPublicMethod/input", "A");
+        File library = jar("library.jar", "SuperClass/NewSuperClass/input", "C");
+
+        check(baseJar, inputJar, ImmutableList.of(), cacheDir, true);
+        assertFalse(check(baseJar, inputJar, ImmutableList.of(), cacheDir, false).replayed, "Changed options must not hit");
+        assertFalse(check(baseJar, inputJar, ImmutableList.of(library), cacheDir, true).replayed, "An added library must not hit");
+        jar("library.jar", "SuperClass/NewSuperClass/input", "B", "C");
+        assertFalse(check(baseJar, inputJar, ImmutableList.of(library), cacheDir, true).replayed, "A changed library must not hit");
+        jar("input.jar", "Method/LoweredMethodVisibility/input", "A");
+        assertFalse(check(baseJar, inputJar, ImmutableList.of(library), cacheDir, true).replayed, "A changed input JAR must not hit");
+        jar("base.jar", "Method/RemovedPrivateMethod/base", "A");
+        assertFalse(check(baseJar, inputJar, ImmutableList.of(library), cacheDir, true).replayed, "A changed base JAR must not hit");
+        assertEquals(6, countEntries(cacheDir));
+
+        assertTrue(check(baseJar, inputJar, ImmutableList.of(library), cacheDir, true).replayed);
+    }
+
+    @Test
+    public void testCheckOptions() throws IOException {
+        Path cacheDir = this.tempDir.resolve("cache");
+        File baseJar = jar("base.jar", "Method/RemovedPublicMethod/base", "A");
+        File inputJar = jar("input.jar", "Method/RemovedPublicMethod/input", "A");
+
+        Run expected = check(baseJar, inputJar, ImmutableList.of(), cacheDir, true);
+        // Engines may report incompatibilities in another order, so they do not share results
+        Run mergeJoin = check(baseJar, inputJar, ImmutableList.of(), cacheDir, true, checker -> checker.setCompareEngine(CompareEngine.MERGE_JOIN));
+        assertFalse(mergeJoin.replayed, "A changed compare engine must not hit");
+        assertEquals(expected.count, mergeJoin.count);
+        assertTrue(check(baseJar, inputJar, ImmutableList.of(), cacheDir, true, checker -> checker.setCompareEngine(CompareEngine.MERGE_JOIN)).replayed);
+
+        // How classes are read does not change the report
+        Run pipelined = check(baseJar, inputJar, ImmutableList.of(), cacheDir, true, checker -> checker.setPipelineThreads(2).setOffHeapIndex(true));
+        assertTrue(pipelined.replayed);
+        assertEquals(expected.errors, pipelined.errors);
+        assertEquals(2, countEntries(cacheDir));
+    }
+
+    @Test
+    public void testFolderInput() throws IOException {
+        Path cacheDir = this.tempDir.resolve("cache");
+        File baseJar = jar("base.jar", "Method/RemovedPublicMethod/base", "A");
+        Path inputFolder = this.tempDir.resolve("input");
+        Files.createDirectories(inputFolder.resolve("pkg"));
+        Files.copy(getRoot().resolve("Method/RemovedPublicMethod/input/A.dat"), inputFolder.resolve("A.class"));
+        Files.copy(getRoot().resolve("SuperClass/NewSuperClass/input/C.dat"), inputFolder.resolve("pkg/C.class"));
+
+        Run miss = check(baseJar, inputFolder.toFile(), ImmutableList.of(), cacheDir, true);
+        assertFalse(miss.replayed);
+        Run hit = check(baseJar, inputFolder.toFile(), ImmutableList.of(), cacheDir, true);
+        assertTrue(hit.replayed);
+        assertEquals(miss.errors, hit.errors);
+
+        Files.copy(getRoot().resolve("Method/LoweredMethodVisibility/input/A.dat"), inputFolder.resolve("A.class"), StandardCopyOption.REPLACE_EXISTING);
+        assertFalse(check(baseJar, inputFolder.toFile(), ImmutableList.of(), cacheDir, true).replayed, "A changed class file must not hit");
+        Files.delete(inputFolder.resolve("pkg/C.class"));
+        assertFalse(check(baseJar, inputFolder.toFile(), ImmutableList.of(), cacheDir, true).replayed, "A removed class file must not hit");
+        assertTrue(check(baseJar, inputFolder.toFile(), ImmutableList.of(), cacheDir, true).replayed);
+    }
+
+    @Test
+    public void testCorruptEntry() throws IOException {
+        Path cacheDir = this.tempDir.resolve("cache");
+        ResultCache cache = new ResultCache(cacheDir);
+        Files.createDirectories(cacheDir);
+        Files.write(cacheDir.resolve("corrupt.json"), "{\"classes\": [ {".getBytes(StandardCharsets.UTF_8));
+        assertNull(cache.load("corrupt"));
+        assertNull(cache.load("missing"));
+
+        CheckResult result = new CheckResult(Collections.singletonList(new CheckResult.ClassResult("A", "A.java", Collections.emptyList())), true);
+        cache.store("corrupt", result);
+        CheckResult loaded = cache.load("corrupt");
+        assertNotNull(loaded);
+        assertTrue(loaded.budgetReached);
+        assertEquals("A", loaded.classes.get(0).name);
+        assertEquals("A.java", loaded.classes.get(0).sourceFile);
+
+        // A check treats a corrupt entry as a miss and replaces it
+        File baseJar = jar("base.jar", "Method/RemovedPublicMethod/base", "A");
+        File inputJar = jar("input.jar", "Method/RemovedPublicMethod/input", "A");
+        Run expected = check(baseJar, inputJar, ImmutableList.of(), cacheDir, true);
+        try (Stream<Path> entries = Files.list(cacheDir)) {
+            for (Path entry : (Iterable<Path>) entries::iterator) {
+                Files.write(entry, "not json".getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        Run recovered = check(baseJar, inputJar, ImmutableList.of(), cacheDir, true);
+        assertFalse(recovered.replayed);
+        assertEquals(expected.errors, recovered.errors);
+        assertTrue(check(baseJar, inputJar, ImmutableList.of(), cacheDir, true).replayed);
+    }
+
+    private Run check(File baseJar, File inputJar, List<File> libraries, Path cacheDir, boolean checkBinary) throws IOException {
+        return check(baseJar, inputJar, libraries, cacheDir, checkBinary, checker -> {});
+    }
+
+    private Run check(File baseJar, File inputJar, List<File> libraries, Path cacheDir, boolean checkBinary, Consumer<JarCompatibilityChecker> options) throws IOException {
+        Run run = new Run();
+        JarCompatibilityChecker checker = new JarCompatibilityChecker(baseJar, inputJar, checkBinary, null,
+                libraries, ImmutableList.of(), ImmutableList.of(), line -> run.replayed |= line.startsWith(REPLAYING), run.errors::add)
+                .setCacheDirectory(cacheDir);
+        options.accept(checker);
+        run.count = checker.check();
+        return run;
+    }
+
+    private File jar(String name, String folder, String... classNames) throws IOException {
+        Path jar = this.tempDir.resolve(name);
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+            for (String className : classNames) {
+                out.putNextEntry(new ZipEntry(className + ".class"));
+                out.write(Files.readAllBytes(getRoot().resolve(folder).resolve(className + ".dat")));
+                out.closeEntry();
+            }
+        }
+        return jar.toFile();
+    }
+
+    private static long countEntries(Path cacheDir) throws IOException {
+        try (Stream<Path> entries = Files.list(cacheDir)) {
+            return entries.filter(path -> path.getFileName().toString().endsWith(".json")).count();
+        }
+    }
+
+    private static final class Run {
+        final List<String> errors = new ArrayList<>();
+        boolean replayed;
+        int count;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+package net.minecraftforge.jarcompatibilitychecker.test;
+
+import net.minecraftforge.jarcompatibilitychecker.core.ClassInfoCache;
+import net.minecraftforge.jarcompatibilitychecker.data.ClassHeader;
+import net.minecraftforge.jarcompatibilitychecker.data.ClassInfo;
+import net.minecraftforge.jarcompatibilitychecker.zip.ZipArchive;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ZipArchiveTests extends BaseCompatibilityTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testStoredAndDeflatedEntries() throws IOException {
+        byte[] stored = Files.readAllBytes(getRoot().resolve("SuperClass/NewSuperClass/input/A.dat"));
+        byte[] deflated = Files.readAllBytes(getRoot().resolve("SuperClass/NewSuperClass/input/B.dat"));
+        Path jar = this.tempDir.resolve("test.jar");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+            putEntry(out, "A.class", stored, ZipEntry.STORED);
+            putEntry(out, "B.class", deflated, ZipEntry.DEFLATED);
+            putEntry(out, "META-INF/MANIFEST.MF", new byte[0], ZipEntry.DEFLATED);
+        }
+
+        try (ZipArchive zip = ZipArchive.open(jar)) {
+            assertEquals(3, zip.getEntries().size());
+            assertArrayEquals(stored, zip.readBytes(zip.getEntries().get(0)));
+            assertArrayEquals(deflated, zip.readBytes(zip.getEntries().get(1)));
+            assertEquals(0, zip.readBytes(zip.getEntries().get(2)).length);
+        }
+
+        Map<String, ClassInfo> classes = new HashMap<>();
+        ClassInfoCache.readJar(jar, classes);
+        assertEquals(2, classes.size());
+        ClassInfoCache folderCache = ClassInfoCache.fromFolder(getRoot().resolve("SuperClass/NewSuperClass/input"));
+        for (String className : new String[] { "A", "B" }) {
+            ClassInfo expected = folderCache.getMainClassInfo(className);
+            ClassInfo actual = classes.get(className);
+            assertNotNull(actual, className + " was not read from the JAR");
+            assertEquals(expected.superName, actual.superName);
+            assertEquals(expected.getMethods().keySet(), actual.getMethods().keySet());
+        }
+    }
+
+    @Test
+    public void testNestedJars() throws IOException {
+        byte[] a = Files.readAllBytes(getRoot().resolve("SuperClass/NewSuperClass/input/A.dat"));
+        byte[] b = Files.readAllBytes(getRoot().resolve("SuperClass/NewSuperClass/input/B.dat"));
+        byte[] c = Files.readAllBytes(getRoot().resolve("SuperClass/NewSuperClass/input/C.dat"));
+
+        ByteArrayOutputStream inner = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(inner)) {
+            putEntry(out, "C.class", c, ZipEntry.DEFLATED);
+        }
+        ByteArrayOutputStream middle = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(middle)) {
+            putEntry(out, "B.class", b, ZipEntry.STORED);
+            putEntry(out, "META-INF/jarjar/inner.jar", inner.toByteArray(), ZipEntry.DEFLATED);
+        }
+        Path jar = this.tempDir.resolve("outer.jar");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+            putEntry(out, "A.class", a, ZipEntry.DEFLATED);
+            putEntry(out, "META-INF/jarjar/middle.jar", middle.toByteArray(), ZipEntry.STORED);
+        }
+
+        ClassInfoCache cache = ClassInfoCache.fromJarPath(jar);
+        assertEquals(1, cache.getMainClasses().size());
+        // Members of classes read from an archive are decoded on first access
+        ClassInfo expected = ClassInfoCache.fromFolder(getRoot().resolve("SuperClass/NewSuperClass/input")).getMainClassInfo("A");
+        assertEquals(expected.getMethods().keySet(), cache.getMainClassInfo("A").getMethods().keySet());
+        assertEquals(expected.getFields().keySet(), cache.getMainClassInfo("A").getFields().keySet());
+        assertNull(cache.getMainClassInfo("B"));
+        // Hierarchy lookups only read the header of a deferred class until its members are needed
+        ClassHeader header = cache.getClassHeader("B");
+        assertFalse(header instanceof ClassInfo, "Header lookup parsed the whole class");
+        assertEquals(cache.getClassInfo("B").superName, header.superName);
+        assertEquals("B", cache.getClassInfo("B").name);
+        assertEquals("C", cache.getClassInfo("C").name);
+    }
+
+    @Test
+    public void testEntrySelection() throws IOException {
+        byte[] a = Files.readAllBytes(getRoot().resolve("SuperClass/NewSuperClass/input/A.dat"));
+        byte[] b = Files.readAllBytes(getRoot().resolve("SuperClass/NewSuperClass/input/B.dat"));
+        byte[] c = Files.readAllBytes(getRoot().resolve("SuperClass/NewSuperClass/input/C.dat"));
+        Path jar = this.tempDir.resolve("entries.jar");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+            putEntry(out, "A.class", a, ZipEntry.DEFLATED);
+            putEntry(out, "classes/.versions/B.class", b, ZipEntry.DEFLATED);
+            putEntry(out, "data/C.dat", c, ZipEntry.DEFLATED);
+            putEntry(out, ".hidden/Ignored.class", new byte[] { 0 }, ZipEntry.DEFLATED);
+            putEntry(out, "data/.Ignored.dat", new byte[] { 0 }, ZipEntry.DEFLATED);
+        }
+
+        // Classes inside dot-directories are read like before; only entries starting with a dot are skipped
+        Map<String, ClassInfo> fileClasses = new HashMap<>();
+        ClassInfoCache.readJar(jar.toFile(), fileClasses);
+        assertEquals(new HashSet<>(Arrays.asList("A", "B")), fileClasses.keySet());
+
+        // The Path based readers also read .dat entries, like they did when reading JARs as folders
+        Map<String, ClassInfo> pathClasses = new HashMap<>();
+        ClassInfoCache.readJar(jar, pathClasses);
+        assertEquals(new HashSet<>(Arrays.asList("A", "B", "C")), pathClasses.keySet());
+        assertEquals(new HashSet<>(Arrays.asList("A", "B", "C")), ClassInfoCache.fromJarPath(jar).getMainClasses().keySet());
+        assertEquals(new HashSet<>(Arrays.asList("A", "B")), ClassInfoCache.fromJarFile(jar.toFile()).getMainClasses().keySet());
+    }
+
+    private static void putEntry(ZipOutputStream out, String name, byte[] data, int method) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(method);
+        if (method == ZipEntry.STORED) {
+            CRC32 crc = new CRC32();
+            crc.update(data);
+            entry.setSize(data.length);
+            entry.setCompressedSize(data.length);
+            entry.setCrc(crc.getValue());
+        }
+        out.putNextEntry(entry);
+        out.write(data);
+        out.closeEntry();
+    }
+}